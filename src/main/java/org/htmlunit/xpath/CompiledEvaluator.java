@@ -0,0 +1,640 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.TransformerException;
+
+import org.htmlunit.xpath.axes.HasPositionalPredChecker;
+import org.htmlunit.xpath.compiler.Compiler;
+import org.htmlunit.xpath.compiler.FunctionTable;
+import org.htmlunit.xpath.compiler.OpCodes;
+import org.htmlunit.xpath.compiler.OpMap;
+import org.htmlunit.xpath.compiler.XPathParser;
+import org.htmlunit.xpath.objects.XNodeSet;
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.patterns.NodeTest;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.DTMFilter;
+import org.htmlunit.xpath.xml.dtm.DTMIterator;
+import org.htmlunit.xpath.xml.dtm.ref.DTMDefaultBase;
+import org.htmlunit.xpath.xml.dtm.ref.DTMNodeTable;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.htmlunit.xpath.xml.utils.DefaultErrorHandler;
+import org.htmlunit.xpath.xml.utils.PrefixResolver;
+
+/**
+ * Opt-in evaluator for hot location paths. Paths made of child, descendant, descendant-or-self,
+ * self and attribute steps with non-positional predicates, like <code>//div[@class='x']/a</code>,
+ * are turned into a plan of straight loops over the node arrays of a completely built DTM. Node
+ * tests are checked once per expanded type and then looked up, attribute tests of the form <code>
+ * [@name]</code> and <code>[@name = 'literal']</code> are inlined, other predicates are evaluated by
+ * the interpreter. Steps on other axes and steps with positional predicates, like the last step of
+ * <code>//td/..</code>, are evaluated by the interpreter for each node the plan selected before.
+ *
+ * <p>Every other expression, and every DTM without flat node arrays, is evaluated by the
+ * interpreter, see {@link #isCompiled()}.
+ */
+public class CompiledEvaluator {
+
+  /** The expression as compiled by the interpreter, used if the plan does not apply. */
+  private final XPath m_select;
+
+  /** The steps of the plan, or null if the expression is not supported. */
+  private final Step[] m_steps;
+
+  /** True if the path starts at the root. */
+  private boolean m_absolute;
+
+  /** The number of node tests of the plan. */
+  private int m_testCount;
+
+  /**
+   * Construct a CompiledEvaluator.
+   *
+   * @param exprString The XPath expression.
+   * @param prefixResolver A prefix resolver to use to resolve prefixes to namespace URIs.
+   * @throws TransformerException if syntax or other error.
+   */
+  public CompiledEvaluator(final String exprString, final PrefixResolver prefixResolver)
+      throws TransformerException {
+    m_select = new XPath(exprString, prefixResolver, XPath.SELECT, null);
+
+    final ErrorListener errorListener = new DefaultErrorHandler();
+    final Compiler compiler = new Compiler(errorListener, new FunctionTable());
+    new XPathParser(errorListener).initXPath(compiler, exprString, prefixResolver);
+    m_steps = compilePlan(compiler);
+  }
+
+  /**
+   * @return true if the expression is evaluated by the plan; false if it is left to the
+   *     interpreter.
+   */
+  public boolean isCompiled() {
+    return null != m_steps;
+  }
+
+  private Step[] compilePlan(final Compiler compiler) throws TransformerException {
+    int opPos = 0;
+    if (OpCodes.OP_XPATH == compiler.getOp(opPos)) {
+      opPos = OpMap.getFirstChildPos(opPos);
+    }
+    if (OpCodes.OP_LOCATIONPATH != compiler.getOp(opPos)) {
+      return null;
+    }
+
+    final List<Step> steps = new ArrayList<>();
+    int stepPos = OpMap.getFirstChildPos(opPos);
+    if (OpCodes.FROM_ROOT == compiler.getOp(stepPos)) {
+      m_absolute = true;
+      stepPos = compiler.getNextStepPos(stepPos);
+    }
+
+    boolean compiled = false;
+    while (stepPos >= 0 && OpCodes.ENDOP != compiler.getOp(stepPos)) {
+      final int axis = compiler.getOp(stepPos);
+      if (axis < OpCodes.AXES_START_TYPES || axis > OpCodes.AXES_END_TYPES) {
+        // a filter expression like id('x') as first step
+        return null;
+      }
+
+      final Step step = compileStep(compiler, stepPos, axis);
+      compiled |= null == step.m_interpreted;
+
+      // descendant-or-self::node()/child::x selects the same nodes as descendant::x
+      final Step previous = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+      if (OpCodes.FROM_CHILDREN == axis
+          && null == step.m_interpreted
+          && null != previous
+          && null == previous.m_interpreted
+          && OpCodes.FROM_DESCENDANTS_OR_SELF == previous.m_axis
+          && DTMFilter.SHOW_ALL == previous.m_test.getWhatToShow()
+          && previous.m_attributeTests.length == 0
+          && previous.m_predicates.length == 0) {
+        steps.set(
+            steps.size() - 1,
+            new Step(OpCodes.FROM_DESCENDANTS, step.m_test, step.m_attributeTests, step.m_predicates));
+      }
+      else {
+        steps.add(step);
+      }
+
+      stepPos = compiler.getNextStepPos(stepPos);
+    }
+
+    // nothing to gain if every step is interpreted
+    return compiled ? steps.toArray(new Step[0]) : null;
+  }
+
+  /**
+   * Steps on other axes, and steps with positional predicates, are evaluated by the interpreter
+   * for each context node; the plan goes on with the nodes they select.
+   */
+  private Step compileStep(final Compiler compiler, final int stepPos, final int axis)
+      throws TransformerException {
+    if (OpCodes.FROM_CHILDREN != axis
+        && OpCodes.FROM_DESCENDANTS != axis
+        && OpCodes.FROM_DESCENDANTS_OR_SELF != axis
+        && OpCodes.FROM_SELF != axis
+        && OpCodes.FROM_ATTRIBUTES != axis
+        || OpCodes.NODETYPE_FUNCTEST == compiler.getStepTestType(stepPos)) {
+      return new Step(axis, compiler.locationStep(stepPos));
+    }
+
+    final int testCount = m_testCount;
+    final List<AttributeTest> attributeTests = new ArrayList<>();
+    final List<Expression> predicates = new ArrayList<>();
+    for (int predPos = compiler.getFirstPredicateOpPos(stepPos);
+        OpCodes.OP_PREDICATE == compiler.getOp(predPos);
+        predPos = compiler.getNextOpPos(predPos)) {
+      final AttributeTest attributeTest = compileAttributeTest(compiler, OpMap.getFirstChildPos(predPos));
+      if (null != attributeTest) {
+        attributeTests.add(attributeTest);
+      }
+      else {
+        final Expression predicate = compiler.predicate(predPos);
+        if (HasPositionalPredChecker.isPositional(predicate)) {
+          // the node tests of the inlined attribute tests are not used
+          m_testCount = testCount;
+          return new Step(axis, compiler.locationStep(stepPos));
+        }
+        predicates.add(predicate);
+      }
+    }
+
+    return new Step(
+        axis,
+        compileNodeTest(compiler, stepPos),
+        attributeTests.toArray(new AttributeTest[0]),
+        predicates.toArray(new Expression[0]));
+  }
+
+  private IndexedNodeTest compileNodeTest(final Compiler compiler, final int stepPos) {
+    final int whatToShow = compiler.getWhatToShow(stepPos);
+
+    // the same node test the WalkerFactory would build
+    final IndexedNodeTest test;
+    if (0 == (whatToShow
+            & (DTMFilter.SHOW_ATTRIBUTE
+                | DTMFilter.SHOW_NAMESPACE
+                | DTMFilter.SHOW_ELEMENT
+                | DTMFilter.SHOW_PROCESSING_INSTRUCTION))
+        || DTMFilter.SHOW_ALL == whatToShow) {
+      test = new IndexedNodeTest(m_testCount, whatToShow, null, null);
+    }
+    else {
+      test =
+          new IndexedNodeTest(
+              m_testCount, whatToShow, compiler.getStepNS(stepPos), compiler.getStepLocalName(stepPos));
+    }
+    m_testCount++;
+    return test;
+  }
+
+  /**
+   * Inline the predicates <code>[@name]</code>, <code>[@name = 'literal']</code> and <code>
+   * ['literal' = @name]</code>.
+   *
+   * @return the attribute test, or null if the predicate has another form
+   */
+  private AttributeTest compileAttributeTest(final Compiler compiler, final int opPos)
+      throws TransformerException {
+    if (isAttributePath(compiler, opPos)) {
+      return new AttributeTest(compileNodeTest(compiler, OpMap.getFirstChildPos(opPos)), null);
+    }
+
+    if (OpCodes.OP_EQUALS == compiler.getOp(opPos)) {
+      final int leftPos = OpMap.getFirstChildPos(opPos);
+      final int rightPos = compiler.getNextOpPos(leftPos);
+      if (isAttributePath(compiler, leftPos) && OpCodes.OP_LITERAL == compiler.getOp(rightPos)) {
+        return new AttributeTest(
+            compileNodeTest(compiler, OpMap.getFirstChildPos(leftPos)), getLiteral(compiler, rightPos));
+      }
+      if (OpCodes.OP_LITERAL == compiler.getOp(leftPos) && isAttributePath(compiler, rightPos)) {
+        return new AttributeTest(
+            compileNodeTest(compiler, OpMap.getFirstChildPos(rightPos)), getLiteral(compiler, leftPos));
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAttributePath(final Compiler compiler, final int opPos)
+      throws TransformerException {
+    if (OpCodes.OP_LOCATIONPATH != compiler.getOp(opPos)) {
+      return false;
+    }
+    final int stepPos = OpMap.getFirstChildPos(opPos);
+    return OpCodes.FROM_ATTRIBUTES == compiler.getOp(stepPos)
+        && OpCodes.NODENAME == compiler.getStepTestType(stepPos)
+        && OpCodes.OP_PREDICATE != compiler.getOp(compiler.getFirstPredicateOpPos(stepPos))
+        && OpCodes.ENDOP == compiler.getOp(compiler.getNextStepPos(stepPos));
+  }
+
+  private static String getLiteral(final Compiler compiler, final int opPos) {
+    return ((XString) compiler.getToken(compiler.getOp(OpMap.getFirstChildPos(opPos)))).str();
+  }
+
+  /**
+   * Given a context, evaluate the expression and return the result.
+   *
+   * @param xctxt The execution context.
+   * @param contextNode The node that "." expresses.
+   * @param namespaceContext The context in which namespaces in the XPath are supposed to be
+   *     expanded.
+   * @return The result of the XPath.
+   * @throws TransformerException in case of error
+   */
+  public XObject execute(
+      final XPathContext xctxt,
+      final org.w3c.dom.Node contextNode,
+      final PrefixResolver namespaceContext)
+      throws TransformerException {
+    return execute(xctxt, xctxt.getDTMHandleFromNode(contextNode), namespaceContext);
+  }
+
+  /**
+   * Given a context, evaluate the expression and return the result.
+   *
+   * @param xctxt The execution context.
+   * @param contextNode The node that "." expresses.
+   * @param namespaceContext The context in which namespaces in the XPath are supposed to be
+   *     expanded.
+   * @return The result of the XPath.
+   * @throws TransformerException in case of error
+   */
+  public XObject execute(
+      final XPathContext xctxt, final int contextNode, final PrefixResolver namespaceContext)
+      throws TransformerException {
+    if (null == m_steps) {
+      return m_select.execute(xctxt, contextNode, namespaceContext);
+    }
+
+    final DTM dtm = xctxt.getDTM(contextNode);
+    if (dtm instanceof DOM2DTM) {
+      ((DOM2DTM) dtm).buildFully();
+    }
+    if (!(dtm instanceof DTMDefaultBase) || null == ((DTMDefaultBase) dtm).getNodeTable()) {
+      return m_select.execute(xctxt, contextNode, namespaceContext);
+    }
+
+    // the document may have changed since the last evaluation
+    xctxt.clearInvariants();
+    xctxt.pushNamespaceContext(namespaceContext);
+    try {
+      final Run run = new Run(xctxt, (DTMDefaultBase) dtm);
+      final int start = m_absolute ? dtm.getDocumentRoot(contextNode) : contextNode;
+      run.m_nodes[0] = run.m_dtm.makeNodeIdentity(start);
+      run.m_count = 1;
+      for (final Step step : m_steps) {
+        run.step(step);
+      }
+
+      final XNodeSet result = new XNodeSet(xctxt.getDTMManager());
+      final NodeSetDTM nodes = result.mutableNodeset();
+      for (int i = 0; i < run.m_count; i++) {
+        nodes.addNode(run.m_dtm.makeNodeHandle(run.m_nodes[i]));
+      }
+      return result;
+    }
+    finally {
+      xctxt.popNamespaceContext();
+    }
+  }
+
+  /** A node test that knows its index in the plan. */
+  private static final class IndexedNodeTest extends NodeTest {
+
+    private final int m_index;
+
+    IndexedNodeTest(final int index, final int whatToShow, final String namespace, final String name) {
+      super(whatToShow, namespace, name);
+      m_index = index;
+    }
+  }
+
+  /** One location step of the plan. */
+  private static final class Step {
+
+    private final int m_axis;
+    private final IndexedNodeTest m_test;
+    private final AttributeTest[] m_attributeTests;
+    private final Expression[] m_predicates;
+
+    /** The step as location path of the interpreter, or null if the plan evaluates it. */
+    private final Expression m_interpreted;
+
+    Step(
+        final int axis,
+        final IndexedNodeTest test,
+        final AttributeTest[] attributeTests,
+        final Expression[] predicates) {
+      m_axis = axis;
+      m_test = test;
+      m_attributeTests = attributeTests;
+      m_predicates = predicates;
+      m_interpreted = null;
+    }
+
+    Step(final int axis, final Expression interpreted) {
+      m_axis = axis;
+      m_test = null;
+      m_attributeTests = null;
+      m_predicates = null;
+      m_interpreted = interpreted;
+    }
+  }
+
+  /** An inlined test for an attribute, with or without value. */
+  private static final class AttributeTest {
+
+    private final IndexedNodeTest m_test;
+
+    /** The value the attribute must have, or null if it only has to exist. */
+    private final String m_value;
+
+    AttributeTest(final IndexedNodeTest test, final String value) {
+      m_test = test;
+      m_value = value;
+    }
+  }
+
+  /** The state of one evaluation of the plan. */
+  private final class Run {
+
+    private static final byte MATCH = 1;
+    private static final byte NO_MATCH = 2;
+
+    private final XPathContext m_xctxt;
+    private final DTMDefaultBase m_dtm;
+    private final DTMNodeTable m_table;
+    private final int m_size;
+
+    /** Per node test, the outcome of the test for each expanded type; 0 if not known yet. */
+    private final byte[][] m_matches = new byte[m_testCount][];
+
+    /** The node type for each expanded type; 0 if not known yet. */
+    private byte[] m_nodeTypes = new byte[64];
+
+    /** The context nodes of the current step, then its result; node identities in document order. */
+    private int[] m_nodes = new int[16];
+    private int m_count;
+
+    private int[] m_next = new int[16];
+    private int m_nextCount;
+
+    Run(final XPathContext xctxt, final DTMDefaultBase dtm) {
+      m_xctxt = xctxt;
+      m_dtm = dtm;
+      m_table = dtm.getNodeTable();
+      m_size = dtm.getNumberOfNodes();
+    }
+
+    void step(final Step step) throws TransformerException {
+      m_nextCount = 0;
+      boolean sorted = true;
+
+      if (null != step.m_interpreted) {
+        interpret(step.m_interpreted);
+        return;
+      }
+
+      switch (step.m_axis) {
+        case OpCodes.FROM_CHILDREN:
+          for (int i = 0; i < m_count; i++) {
+            for (int child = m_table.firstch(m_nodes[i]); DTM.NULL != child; child = m_table.nextsib(child)) {
+              if (accept(step, child)) {
+                sorted &= add(child);
+              }
+            }
+          }
+          break;
+        case OpCodes.FROM_DESCENDANTS:
+        case OpCodes.FROM_DESCENDANTS_OR_SELF:
+          final boolean self = OpCodes.FROM_DESCENDANTS_OR_SELF == step.m_axis;
+          int covered = 0;
+          for (int i = 0; i < m_count; i++) {
+            final int context = m_nodes[i];
+            if (context < covered) {
+              // inside the subtree of an earlier context node, already visited;
+              // the subtree walk skips attributes and namespaces, so their self match is still due
+              if (self && isAttributeOrNamespace(context) && accept(step, context)) {
+                sorted &= add(context);
+              }
+              continue;
+            }
+            if (self && accept(step, context)) {
+              add(context);
+            }
+            if (isAttributeOrNamespace(context)) {
+              continue;
+            }
+            final int end = getSubtreeEnd(context);
+            for (int node = context + 1; node < end; node++) {
+              if (!isAttributeOrNamespace(node) && accept(step, node)) {
+                add(node);
+              }
+            }
+            covered = end;
+          }
+          break;
+        case OpCodes.FROM_SELF:
+          for (int i = 0; i < m_count; i++) {
+            if (accept(step, m_nodes[i])) {
+              add(m_nodes[i]);
+            }
+          }
+          break;
+        default:
+          // attributes
+          for (int i = 0; i < m_count; i++) {
+            final int context = m_nodes[i];
+            if (DTM.ELEMENT_NODE != getNodeType(context)) {
+              continue;
+            }
+            for (int node = context + 1; node < m_size; node++) {
+              final int type = getNodeType(node);
+              if (DTM.ATTRIBUTE_NODE == type) {
+                if (accept(step, node)) {
+                  add(node);
+                }
+              }
+              else if (DTM.NAMESPACE_NODE != type) {
+                break;
+              }
+            }
+          }
+      }
+
+      final int[] nodes = m_nodes;
+      m_nodes = m_next;
+      m_count = m_nextCount;
+      m_next = nodes;
+
+      if (!sorted) {
+        Arrays.sort(m_nodes, 0, m_count);
+      }
+    }
+
+    /**
+     * Evaluate a step with the interpreter for each context node; the nodes selected from
+     * different context nodes may overlap and come in any order.
+     */
+    private void interpret(final Expression step) throws TransformerException {
+      for (int i = 0; i < m_count; i++) {
+        final DTMIterator nodes = step.asIterator(m_xctxt, m_dtm.makeNodeHandle(m_nodes[i]));
+        try {
+          for (int node = nodes.nextNode(); DTM.NULL != node; node = nodes.nextNode()) {
+            add(m_dtm.makeNodeIdentity(node));
+          }
+        }
+        finally {
+          nodes.detach();
+        }
+      }
+
+      final int[] next = m_next;
+      Arrays.sort(next, 0, m_nextCount);
+      int count = 0;
+      for (int i = 0; i < m_nextCount; i++) {
+        if (0 == count || next[count - 1] != next[i]) {
+          next[count++] = next[i];
+        }
+      }
+
+      m_next = m_nodes;
+      m_nodes = next;
+      m_count = count;
+    }
+
+    /** @return false if the node is before the last one added */
+    private boolean add(final int node) {
+      if (m_nextCount == m_next.length) {
+        m_next = Arrays.copyOf(m_next, m_nextCount * 2);
+      }
+      m_next[m_nextCount++] = node;
+      return 1 == m_nextCount || m_next[m_nextCount - 2] < node;
+    }
+
+    private int getSubtreeEnd(final int identity) {
+      for (int node = identity; DTM.NULL != node; node = m_table.parent(node)) {
+        final int next = m_table.nextsib(node);
+        if (DTM.NULL != next) {
+          return next;
+        }
+      }
+      return m_size;
+    }
+
+    private boolean accept(final Step step, final int identity) throws TransformerException {
+      if (!matches(step.m_test, identity)) {
+        return false;
+      }
+
+      for (final AttributeTest attributeTest : step.m_attributeTests) {
+        if (!hasAttribute(identity, attributeTest)) {
+          return false;
+        }
+      }
+
+      if (step.m_predicates.length > 0) {
+        m_xctxt.pushCurrentNode(m_dtm.makeNodeHandle(identity));
+        try {
+          for (final Expression predicate : step.m_predicates) {
+            if (!predicate.execute(m_xctxt).bool()) {
+              return false;
+            }
+          }
+        }
+        finally {
+          m_xctxt.popCurrentNode();
+        }
+      }
+      return true;
+    }
+
+    private boolean hasAttribute(final int element, final AttributeTest attributeTest)
+        throws TransformerException {
+      if (DTM.ELEMENT_NODE != getNodeType(element)) {
+        return false;
+      }
+
+      for (int node = element + 1; node < m_size; node++) {
+        final int type = getNodeType(node);
+        if (DTM.ATTRIBUTE_NODE == type) {
+          if (matches(attributeTest.m_test, node)
+              && (null == attributeTest.m_value
+                  || attributeTest.m_value.equals(m_dtm.getStringValue(m_dtm.makeNodeHandle(node)).toString()))) {
+            return true;
+          }
+        }
+        else if (DTM.NAMESPACE_NODE != type) {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    private boolean matches(final IndexedNodeTest test, final int identity) throws TransformerException {
+      final int exptype = m_table.exptype(identity);
+
+      byte[] matches = m_matches[test.m_index];
+      if (null == matches || exptype >= matches.length) {
+        matches = grow(matches, exptype);
+        m_matches[test.m_index] = matches;
+      }
+
+      byte match = matches[exptype];
+      if (0 == match) {
+        // the outcome only depends on the node type and the name, that is on the expanded type
+        final XObject score = test.execute(m_xctxt, m_dtm.makeNodeHandle(identity), m_dtm, exptype);
+        match = XPath.MATCH_SCORE_NONE == score.num() ? NO_MATCH : MATCH;
+        matches[exptype] = match;
+      }
+      return MATCH == match;
+    }
+
+    private int getNodeType(final int identity) {
+      final int exptype = m_table.exptype(identity);
+      if (exptype >= m_nodeTypes.length) {
+        m_nodeTypes = grow(m_nodeTypes, exptype);
+      }
+
+      byte type = m_nodeTypes[exptype];
+      if (0 == type) {
+        type = (byte) m_dtm.getNodeType(m_dtm.makeNodeHandle(identity));
+        m_nodeTypes[exptype] = type;
+      }
+      return type;
+    }
+
+    private boolean isAttributeOrNamespace(final int identity) {
+      final int type = getNodeType(identity);
+      return DTM.ATTRIBUTE_NODE == type || DTM.NAMESPACE_NODE == type;
+    }
+
+    private byte[] grow(final byte[] array, final int index) {
+      final int length = Math.max(64, Integer.highestOneBit(index) << 1);
+      return null == array ? new byte[length] : Arrays.copyOf(array, length);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.TransformerException;
+
+import org.htmlunit.xpath.axes.HasPositionalPredChecker;
+import org.htmlunit.xpath.objects.XNodeSet;
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.htmlunit.xpath.xml.utils.DefaultErrorHandler;
+import org.htmlunit.xpath.xml.utils.NodeVector;
+import org.htmlunit.xpath.xml.utils.PrefixResolver;
+import org.htmlunit.xpath.xml.utils.WrappedRuntimeException;
+
+/**
+ * Opt-in evaluator that splits descendant-heavy expressions over large documents into chunks of
+ * document order and tests the chunks on a {@link ForkJoinPool}.
+ *
+ * <p>Only absolute location paths that are also valid match patterns (for example <code>
+ * //para[@class='x']</code> or <code>/doc/chapter//title</code>) are evaluated in parallel; for
+ * those, selecting from the root and matching every node in document order give the same node-set.
+ * Positional predicates are left to the sequential path, as is every other expression, and so are
+ * documents smaller than {@link #getThreshold()} nodes.
+ *
+ * <p>The DTM is built completely before the chunks are forked, so the workers only read from it.
+ * The underlying DOM has to allow concurrent reads.
+ */
+public class ParallelEvaluator {
+
+  /** The default minimal number of DTM nodes before we go parallel. */
+  public static final int DEFAULT_THRESHOLD = 8192;
+
+  /** The default number of DTM nodes tested by one task. */
+  public static final int DEFAULT_CHUNK_SIZE = 2048;
+
+  /** The expression compiled as select expression, used for the sequential path. */
+  private final XPath m_select;
+
+  /** The expression compiled as match pattern, or null if it can not be evaluated in parallel. */
+  private final XPath m_match;
+
+  /** The pool running the chunks. */
+  private final ForkJoinPool m_pool;
+
+  /** The minimal number of DTM nodes before we go parallel. */
+  private int m_threshold = DEFAULT_THRESHOLD;
+
+  /** The number of DTM nodes tested by one task. */
+  private int m_chunkSize = DEFAULT_CHUNK_SIZE;
+
+  /**
+   * Construct a ParallelEvaluator.
+   *
+   * @param exprString The XPath expression.
+   * @param prefixResolver A prefix resolver to use to resolve prefixes to namespace URIs.
+   * @param pool the pool used to run the chunks.
+   * @throws TransformerException if syntax or other error.
+   */
+  public ParallelEvaluator(
+      final String exprString, final PrefixResolver prefixResolver, final ForkJoinPool pool)
+      throws TransformerException {
+    m_select = new XPath(exprString, prefixResolver, XPath.SELECT, null);
+    m_match = compileMatch(exprString, prefixResolver);
+    m_pool = pool;
+  }
+
+  private static XPath compileMatch(final String exprString, final PrefixResolver prefixResolver) {
+    if (!exprString.trim().startsWith("/")) {
+      return null;
+    }
+
+    final XPath match;
+    try {
+      match = new XPath(exprString, prefixResolver, XPath.MATCH, new DefaultErrorHandler());
+    }
+    catch (final TransformerException | RuntimeException e) {
+      // not a pattern, use the select expression
+      return null;
+    }
+
+    if (HasPositionalPredChecker.check(match)) {
+      return null;
+    }
+    return match;
+  }
+
+  /**
+   * @return true if the expression qualifies for parallel evaluation.
+   */
+  public boolean isParallelizable() {
+    return null != m_match;
+  }
+
+  /**
+   * @return the minimal number of DTM nodes before we go parallel.
+   */
+  public int getThreshold() {
+    return m_threshold;
+  }
+
+  /**
+   * @param threshold the minimal number of DTM nodes before we go parallel.
+   */
+  public void setThreshold(final int threshold) {
+    m_threshold = threshold;
+  }
+
+  /**
+   * @return the number of DTM nodes tested by one task.
+   */
+  public int getChunkSize() {
+    return m_chunkSize;
+  }
+
+  /**
+   * @param chunkSize the number of DTM nodes tested by one task, has to be positive.
+   */
+  public void setChunkSize(final int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize has to be positive");
+    }
+    m_chunkSize = chunkSize;
+  }
+
+  /**
+   * Given a context, evaluate the expression and return the result.
+   *
+   * @param xctxt The execution context.
+   * @param contextNode The node that "." expresses.
+   * @param namespaceContext The context in which namespaces in the XPath are supposed to be
+   *     expanded.
+   * @return The result of the XPath.
+   * @throws TransformerException in case of error
+   */
+  public XObject execute(
+      final XPathContext xctxt,
+      final org.w3c.dom.Node contextNode,
+      final PrefixResolver namespaceContext)
+      throws TransformerException {
+    return execute(xctxt, xctxt.getDTMHandleFromNode(contextNode), namespaceContext);
+  }
+
+  /**
+   * Given a context, evaluate the expression and return the result.
+   *
+   * @param xctxt The execution context.
+   * @param contextNode The node that "." expresses.
+   * @param namespaceContext The context in which namespaces in the XPath are supposed to be
+   *     expanded.
+   * @return The result of the XPath.
+   * @throws TransformerException in case of error
+   */
+  public XObject execute(
+      final XPathContext xctxt, final int contextNode, final PrefixResolver namespaceContext)
+      throws TransformerException {
+    if (null == m_match || !(xctxt.getDTM(contextNode) instanceof DOM2DTM)) {
+      return m_select.execute(xctxt, contextNode, namespaceContext);
+    }
+
+    final DOM2DTM dtm = (DOM2DTM) xctxt.getDTM(contextNode);
+    dtm.buildFully();
+
+    final int size = dtm.getNumberOfNodes();
+    if (size < m_threshold) {
+      return m_select.execute(xctxt, contextNode, namespaceContext);
+    }
+
+    final NodeVector matches;
+    try {
+      matches = m_pool.invoke(new MatchTask(xctxt, dtm, namespaceContext, 0, size));
+    }
+    catch (final WrappedRuntimeException e) {
+      final Exception ex = e.getException();
+      if (ex instanceof TransformerException te) {
+        throw te;
+      }
+      throw e;
+    }
+
+    final XNodeSet result = new XNodeSet(xctxt.getDTMManager());
+    final NodeSetDTM nodes = result.mutableNodeset();
+    for (int i = 0; i < matches.size(); i++) {
+      nodes.addNode(matches.elementAt(i));
+    }
+    return result;
+  }
+
+  /** Tests the nodes of one range of node identities against the match pattern. */
+  private final class MatchTask extends RecursiveTask<NodeVector> {
+
+    private final XPathContext m_xctxt;
+    private final DOM2DTM m_dtm;
+    private final PrefixResolver m_namespaceContext;
+    private final int m_from;
+    private final int m_to;
+
+    MatchTask(
+        final XPathContext xctxt,
+        final DOM2DTM dtm,
+        final PrefixResolver namespaceContext,
+        final int from,
+        final int to) {
+      m_xctxt = xctxt;
+      m_dtm = dtm;
+      m_namespaceContext = namespaceContext;
+      m_from = from;
+      m_to = to;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected NodeVector compute() {
+      if (m_to - m_from > m_chunkSize) {
+        final int mid = (m_from + m_to) >>> 1;
+        final MatchTask right = new MatchTask(m_xctxt, m_dtm, m_namespaceContext, mid, m_to);
+        right.fork();
+        final NodeVector result =
+            new MatchTask(m_xctxt, m_dtm, m_namespaceContext, m_from, mid).compute();
+        final NodeVector rightResult = right.join();
+        for (int i = 0; i < rightResult.size(); i++) {
+          result.addElement(rightResult.elementAt(i));
+        }
+        return result;
+      }
+
+      // every worker needs its own stacks, but all share the same DTMs
+      final XPathContext xctxt = new XPathContext(false);
+      xctxt.m_dtmManager = m_xctxt.getDTMManager();
+      final ErrorListener errorListener = m_xctxt.getErrorListener();
+      if (null != errorListener) {
+        xctxt.setErrorListener(errorListener);
+      }
+
+      // the pattern is tested directly, without XPath.execute(); that would look up the DTM
+      // and drop the hoisted subexpressions again for every node
+      final Expression pattern = m_match.getExpression();
+      final NodeVector result = new NodeVector();
+      xctxt.pushNamespaceContext(m_namespaceContext);
+      try {
+        for (int identity = m_from; identity < m_to; identity++) {
+          final int node = m_dtm.makeNodeHandle(identity);
+          if (DTM.NAMESPACE_NODE == m_dtm.getNodeType(node)) {
+            continue;
+          }
+          xctxt.pushCurrentNodeAndExpression(node);
+          try {
+            final XObject score = pattern.execute(xctxt, node, m_dtm, m_dtm.getExpandedTypeID(node));
+            if (XPath.MATCH_SCORE_NONE != score.num()) {
+              result.addElement(node);
+            }
+          }
+          finally {
+            xctxt.popCurrentNodeAndExpression();
+          }
+        }
+      }
+      catch (final TransformerException e) {
+        throw new WrappedRuntimeException(e);
+      }
+      finally {
+        xctxt.popNamespaceContext();
+      }
+      return result;
+    }
+  }
+}
@@ -17,6 +17,9 @@
  */
 package org.htmlunit.xpath;
 
+import java.util.Collections;
+import java.util.List;
+
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.SourceLocator;
 import javax.xml.transform.TransformerException;
@@ -24,6 +27,11 @@ import javax.xml.transform.TransformerException;
 import org.htmlunit.xpath.compiler.Compiler;
 import org.htmlunit.xpath.compiler.FunctionTable;
 import org.htmlunit.xpath.compiler.XPathParser;
+import org.htmlunit.xpath.jfr.CompileEvent;
+import org.htmlunit.xpath.jfr.EvaluateEvent;
+import org.htmlunit.xpath.jfr.FlightRecorderSupport;
+import org.htmlunit.xpath.metrics.Metrics;
+import org.htmlunit.xpath.objects.XNodeSet;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.res.XPATHErrorResources;
 import org.htmlunit.xpath.res.XPATHMessages;
@@ -42,6 +50,15 @@ public class XPath {
    */
   private final Expression m_mainExp;
 
+  /** The rewrites the compiler applied to the expression. */
+  private final List<String> m_rewrites;
+
+  /** The expression as text, or null if the XPath was built from an Expression. */
+  private final String m_patternString;
+
+  /** The profile of the expression, or null if profiling is off. */
+  private volatile XPathProfile m_profile;
+
   /** The function table for xpath build-in functions */
   private transient FunctionTable m_funcTable = null;
 
@@ -50,6 +67,15 @@ public class XPath {
     m_funcTable = new FunctionTable();
   }
 
+  /**
+   * Get the raw Expression object that this class wraps.
+   *
+   * @return the raw Expression object, which should not normally be null.
+   */
+  public Expression getExpression() {
+    return m_mainExp;
+  }
+
   /**
    * Get the SourceLocator on the expression object.
    *
@@ -59,6 +85,66 @@ public class XPath {
     return m_mainExp;
   }
 
+  /**
+   * Get the rewrites the compiler applied to the expression, like constant subexpressions folded
+   * into literals.
+   *
+   * @return the rewrites as text, in the order they fired
+   */
+  public List<String> getRewrites() {
+    return m_rewrites;
+  }
+
+  /**
+   * @return the expression as text, or null if the XPath was built from an Expression
+   */
+  public String getPatternString() {
+    return m_patternString;
+  }
+
+  /**
+   * Describe how the expression is evaluated: the iterators and walkers chosen for the location
+   * paths, their axes, node tests and predicates, and an estimate of the cost.
+   *
+   * @return the plan of the expression
+   */
+  public XPathPlan explain() {
+    return XPathPlan.explain(m_mainExp);
+  }
+
+  /**
+   * Turn profiling on or off. While profiling is on, every iterator and walker of the expression
+   * counts the nodes it visits and accepts, its predicate evaluations and clones, and the time spent
+   * testing nodes. Turning profiling on again starts with new counters.
+   *
+   * @param profiling true to turn profiling on
+   */
+  public synchronized void setProfiling(final boolean profiling) {
+    final XPathPlan plan = explain();
+    XPathProfile.detach(plan);
+    m_profile = profiling ? new XPathProfile(plan) : null;
+  }
+
+  /**
+   * @return the counters collected since profiling was turned on, or null if profiling is off
+   */
+  public XPathProfile getProfile() {
+    return m_profile;
+  }
+
+  /**
+   * The size of a result, without running the iteration of a lazy node-set.
+   *
+   * @return the number of nodes of a node-set whose nodes have been collected already, -1 for
+   *     other node-sets, 1 for other results
+   */
+  private static int getResultSize(final XObject result) {
+    if (result instanceof XNodeSet nodeSet) {
+      return nodeSet.cacheComplete() ? nodeSet.getLength() : -1;
+    }
+    return 1;
+  }
+
   /** Represents a select type expression. */
   public static final int SELECT = 0;
 
@@ -81,30 +167,9 @@ public class XPath {
       final String exprString,
       final PrefixResolver prefixResolver,
       final int type,
-      ErrorListener errorListener)
+      final ErrorListener errorListener)
       throws javax.xml.transform.TransformerException {
-    initFunctionTable();
-    if (null == errorListener) {
-      errorListener = new org.htmlunit.xpath.xml.utils.DefaultErrorHandler();
-    }
-
-    final XPathParser parser = new XPathParser(errorListener);
-    final Compiler compiler = new Compiler(errorListener, m_funcTable);
-
-    if (SELECT == type) {
-        parser.initXPath(compiler, exprString, prefixResolver);
-    }
-    else if (MATCH == type) {
-        parser.initMatchPattern(compiler, exprString, prefixResolver);
-    }
-    else {
-        throw new RuntimeException(
-                XPATHMessages.createXPATHMessage(
-                    XPATHErrorResources.ER_CANNOT_DEAL_XPATH_TYPE,
-                    new Object[] {Integer.toString(type)}));
-    }
-
-    m_mainExp = compiler.compile(0);
+    this(exprString, prefixResolver, type, errorListener, new FunctionTable());
   }
 
   /**
@@ -127,6 +192,14 @@ public class XPath {
       ErrorListener errorListener,
       final FunctionTable aTable)
       throws javax.xml.transform.TransformerException {
+    final CompileEvent event = FlightRecorderSupport.isAvailable() ? new CompileEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    final boolean metrics = Metrics.isEnabled();
+    final long compileStart = metrics ? System.nanoTime() : 0;
+
+    m_patternString = exprString;
     m_funcTable = aTable;
     if (null == errorListener) {
       errorListener = new org.htmlunit.xpath.xml.utils.DefaultErrorHandler();
@@ -149,6 +222,18 @@ public class XPath {
     }
 
     m_mainExp = compiler.compile(0);
+    m_rewrites = compiler.getRewrites();
+
+    if (metrics) {
+      Metrics.getMetrics().compiled(System.nanoTime() - compileStart);
+    }
+    if (null != event) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.expression = exprString;
+        event.commit();
+      }
+    }
   }
 
   /**
@@ -173,7 +258,9 @@ public class XPath {
    * @param expr The Expression object.
    */
   public XPath(final Expression expr) {
+    m_patternString = null;
     m_mainExp = expr;
+    m_rewrites = Collections.emptyList();
     initFunctionTable();
   }
 
@@ -211,10 +298,21 @@ public class XPath {
       final XPathContext xctxt, final int contextNode, final PrefixResolver namespaceContext)
       throws javax.xml.transform.TransformerException {
 
+    // the document may have changed since the last evaluation
+    xctxt.clearInvariants();
+
     xctxt.pushNamespaceContext(namespaceContext);
 
     xctxt.pushCurrentNodeAndExpression(contextNode);
 
+    final XPathProfile profile = m_profile;
+    final boolean metrics = Metrics.isEnabled();
+    final long start = null == profile && !metrics ? 0 : System.nanoTime();
+    final EvaluateEvent event = FlightRecorderSupport.isAvailable() ? new EvaluateEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+
     XObject xobj = null;
 
     try {
@@ -253,6 +351,28 @@ public class XPath {
       xctxt.popNamespaceContext();
 
       xctxt.popCurrentNodeAndExpression();
+
+      if (null != profile || metrics) {
+        final long nanos = System.nanoTime() - start;
+        if (null != profile) {
+          profile.executed(nanos);
+        }
+        if (metrics) {
+          Metrics.getMetrics().evaluated(nanos);
+        }
+      }
+    }
+
+    if (null != event) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.expression = m_patternString;
+        if (null != xobj) {
+          event.resultType = xobj.getTypeString();
+          event.resultSize = getResultSize(xobj);
+        }
+        event.commit();
+      }
     }
 
     return xobj;
@@ -18,12 +18,15 @@
 package org.htmlunit.xpath;
 
 import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Stack;
 
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.URIResolver;
 
 import org.htmlunit.xpath.axes.SubContextList;
+import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.res.XPATHErrorResources;
 import org.htmlunit.xpath.res.XPATHMessages;
 import org.htmlunit.xpath.xml.dtm.DTM;
@@ -73,6 +76,66 @@ public class XPathContext extends DTMManager {
     return m_dtmManager.getDTMHandleFromNode(node);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public boolean release(final DTM dtm) {
+    return m_dtmManager.release(dtm);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void clearStringValueCaches() {
+    m_dtmManager.clearStringValueCaches();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean getIncremental() {
+    return m_dtmManager.getIncremental();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setIncremental(final boolean incremental) {
+    m_dtmManager.setIncremental(incremental);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean getOffHeap() {
+    return m_dtmManager.getOffHeap();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setOffHeap(final boolean offHeap) {
+    m_dtmManager.setOffHeap(offHeap);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getNodeCountHint() {
+    return m_dtmManager.getNodeCountHint();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setNodeCountHint(final int nodeCountHint) {
+    m_dtmManager.setNodeCountHint(nodeCountHint);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getStringValueCacheSize() {
+    return m_dtmManager.getStringValueCacheSize();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setStringValueCacheSize(final int stringValueCacheSize) {
+    m_dtmManager.setStringValueCacheSize(stringValueCacheSize);
+  }
+
   /**
    * Create an XPathContext instance. This is equivalent to calling the {@link
    * #XPathContext(boolean)} constructor with the value <code>true</code>.
@@ -94,7 +157,12 @@ public class XPathContext extends DTMManager {
 
   /** Reset for new run. */
   public void reset() {
+    final DTMManager oldManager = m_dtmManager;
     m_dtmManager = DTMManager.newInstance();
+    m_dtmManager.setIncremental(oldManager.getIncremental());
+    m_dtmManager.setNodeCountHint(oldManager.getNodeCountHint());
+    m_dtmManager.setOffHeap(oldManager.getOffHeap());
+    m_dtmManager.setStringValueCacheSize(oldManager.getStringValueCacheSize());
 
     m_axesIteratorStack.clear();
     m_predicatePos.clear();
@@ -104,6 +172,8 @@ public class XPathContext extends DTMManager {
 
     m_currentNodes.clear();
     m_currentNodes.push(DTM.NULL);
+
+    clearInvariants();
   }
 
   // =================================================
@@ -220,6 +290,56 @@ public class XPathContext extends DTMManager {
     m_currentNodes.pop();
   }
 
+  /**
+   * The results of the context independent subexpressions of the current evaluation, see {@link
+   * org.htmlunit.xpath.operations.Invariant}.
+   */
+  private final Map<Expression, XObject> m_invariants = new IdentityHashMap<>();
+
+  /** The document the results in m_invariants belong to. */
+  private int m_invariantsDocument = DTM.NULL;
+
+  /**
+   * Get the result of a context independent subexpression, if it was already evaluated for the
+   * given document.
+   *
+   * @param expr the subexpression
+   * @param document the document the subexpression is evaluated for
+   * @return the result, or null
+   */
+  public XObject getInvariant(final Expression expr, final int document) {
+    if (document != m_invariantsDocument) {
+      return null;
+    }
+    return m_invariants.get(expr);
+  }
+
+  /**
+   * Remember the result of a context independent subexpression. Results for another document are
+   * dropped.
+   *
+   * @param expr the subexpression
+   * @param document the document the subexpression was evaluated for
+   * @param result the result
+   */
+  public void setInvariant(final Expression expr, final int document, final XObject result) {
+    if (document != m_invariantsDocument) {
+      m_invariants.clear();
+      m_invariantsDocument = document;
+    }
+    m_invariants.put(expr, result);
+  }
+
+  /**
+   * Drop the results of the context independent subexpressions and the cached string-values of the
+   * DTMs, the document may have changed.
+   */
+  public void clearInvariants() {
+    m_invariants.clear();
+    m_invariantsDocument = DTM.NULL;
+    m_dtmManager.clearStringValueCaches();
+  }
+
   private final ArrayDeque<Integer> m_predicatePos = new ArrayDeque<>();
 
   public final int getPredicatePos() {
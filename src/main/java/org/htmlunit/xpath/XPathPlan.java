@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.htmlunit.xpath.axes.AxesWalker;
+import org.htmlunit.xpath.axes.DescendantIterator;
+import org.htmlunit.xpath.axes.FilterExprWalker;
+import org.htmlunit.xpath.axes.LocPathIterator;
+import org.htmlunit.xpath.axes.PredicatedNodeTest;
+import org.htmlunit.xpath.axes.SelfIteratorNoPredicate;
+import org.htmlunit.xpath.axes.UnionChildIterator;
+import org.htmlunit.xpath.axes.UnionPathIterator;
+import org.htmlunit.xpath.axes.WalkerFactory;
+import org.htmlunit.xpath.axes.WalkingIterator;
+import org.htmlunit.xpath.compiler.CostModel;
+import org.htmlunit.xpath.functions.Function;
+import org.htmlunit.xpath.functions.Function2Args;
+import org.htmlunit.xpath.functions.Function3Args;
+import org.htmlunit.xpath.functions.FunctionMultiArgs;
+import org.htmlunit.xpath.functions.FunctionOneArg;
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.operations.And;
+import org.htmlunit.xpath.operations.Invariant;
+import org.htmlunit.xpath.operations.Operation;
+import org.htmlunit.xpath.operations.Or;
+import org.htmlunit.xpath.operations.UnaryOperation;
+import org.htmlunit.xpath.patterns.NodeTest;
+import org.htmlunit.xpath.patterns.StepPattern;
+import org.htmlunit.xpath.patterns.UnionPattern;
+import org.htmlunit.xpath.xml.dtm.Axis;
+import org.htmlunit.xpath.xml.dtm.DTMFilter;
+
+/**
+ * The plan of a compiled expression, as returned by {@link XPath#explain()}. Every node of the
+ * expression tree becomes a plan node: location paths show the iterator the {@link WalkerFactory}
+ * picked, with one step per walker, and every step its axis, node test and predicates.
+ *
+ * <p>The cost is a rough estimate of the work for one context node, from the {@link CostModel} the
+ * compiler orders predicates by: attribute steps are cheap, steps over the whole subtree are
+ * expensive. The cost of a node includes the cost of its steps, predicates and arguments.
+ */
+public final class XPathPlan {
+
+  private final Object m_source;
+  private final String m_type;
+  private String m_axis;
+  private int m_axisID = -1;
+  private String m_nodeTest;
+  private String m_literal;
+  private int m_analysis;
+  private boolean m_needsSorting;
+  private boolean m_cached;
+  private int m_cost;
+  private final List<XPathPlan> m_steps = new ArrayList<>();
+  private final List<XPathPlan> m_predicates = new ArrayList<>();
+  private final List<XPathPlan> m_arguments = new ArrayList<>();
+
+  private XPathPlan(final Object expr) {
+    m_source = expr;
+    m_type = expr.getClass().getSimpleName();
+  }
+
+  /**
+   * @return the expression, iterator or walker of this node
+   */
+  Object getSource() {
+    return m_source;
+  }
+
+  /**
+   * @return the simple class name of the expression, for location paths the iterator or walker
+   */
+  public String getType() {
+    return m_type;
+  }
+
+  /**
+   * @return the name of the axis, or null if the node is no step
+   */
+  public String getAxis() {
+    return m_axis;
+  }
+
+  /**
+   * @return the node test in XPath syntax, names as <code>{namespace}local</code>; or null if the
+   *     node is no step
+   */
+  public String getNodeTest() {
+    return m_nodeTest;
+  }
+
+  /**
+   * @return the value of a literal in XPath syntax, or null if the node is no literal
+   */
+  public String getLiteral() {
+    return m_literal;
+  }
+
+  /**
+   * @return the analysis bits of a location path, see {@link WalkerFactory}; 0 for other nodes
+   */
+  public int getAnalysis() {
+    return m_analysis;
+  }
+
+  /**
+   * @return true if the nodes of the location path are not found in document order and have to be
+   *     sorted
+   */
+  public boolean needsSorting() {
+    return m_needsSorting;
+  }
+
+  /**
+   * @return true if the nodes are collected before they are returned
+   */
+  public boolean isCached() {
+    return m_cached;
+  }
+
+  /**
+   * @return the estimated cost, including steps, predicates and arguments
+   */
+  public int getCost() {
+    return m_cost;
+  }
+
+  /**
+   * @return the steps of a location path walked by walkers, in order
+   */
+  public List<XPathPlan> getSteps() {
+    return Collections.unmodifiableList(m_steps);
+  }
+
+  /**
+   * @return the predicates of a step, in the order they are evaluated
+   */
+  public List<XPathPlan> getPredicates() {
+    return Collections.unmodifiableList(m_predicates);
+  }
+
+  /**
+   * @return the operands of an operation, the arguments of a function, the members of a union or
+   *     the expression of a filter
+   */
+  public List<XPathPlan> getArguments() {
+    return Collections.unmodifiableList(m_arguments);
+  }
+
+  /**
+   * Build the plan of an expression tree.
+   *
+   * @param expr the compiled expression
+   * @return the plan
+   */
+  static XPathPlan explain(final Expression expr) {
+    return explain(expr, null);
+  }
+
+  private static XPathPlan explain(final Expression expr, final LocPathIterator owner) {
+    final XPathPlan plan = new XPathPlan(expr);
+
+    if (expr instanceof UnionPathIterator union) {
+      plan.m_needsSorting = !union.isDocOrdered();
+      plan.m_cached = plan.m_needsSorting;
+      if (null != union.getPaths()) {
+        for (final LocPathIterator path : union.getPaths()) {
+          plan.addArgument(explain(path, null));
+        }
+      }
+    }
+    else if (expr instanceof UnionChildIterator union) {
+      plan.m_cost = CostModel.COST_STEP;
+      if (null != union.getNodeTests()) {
+        for (final PredicatedNodeTest test : union.getNodeTests()) {
+          final XPathPlan step = new XPathPlan(test);
+          step.setStep(Axis.CHILD, test);
+          step.addPredicates(test, null);
+          plan.addArgument(step);
+        }
+      }
+    }
+    else if (expr instanceof LocPathIterator path) {
+      plan.m_analysis = path.getAnalysis();
+      plan.m_needsSorting = !path.isDocOrdered();
+      plan.m_cached = plan.m_needsSorting;
+
+      if (path instanceof WalkingIterator walking) {
+        for (AxesWalker walker = walking.getFirstWalker(); null != walker; walker = walker.getNextWalker()) {
+          plan.m_steps.add(explainWalker(walker, path));
+          plan.m_cost += plan.m_steps.get(plan.m_steps.size() - 1).m_cost;
+        }
+      }
+      else {
+        final int axis;
+        if (path instanceof DescendantIterator) {
+          axis = Axis.DESCENDANT;
+        }
+        else if (path instanceof SelfIteratorNoPredicate) {
+          axis = Axis.SELF;
+        }
+        else {
+          axis = path.getAxis();
+        }
+        plan.setStep(axis, path);
+        plan.m_cost = CostModel.getStepCost(axis);
+        plan.addPredicates(path, path);
+      }
+    }
+    else if (expr instanceof Invariant invariant) {
+      // evaluated once per document
+      plan.addArgument(explain(invariant.getExpression(), owner));
+      plan.m_cost = CostModel.COST_ATTRIBUTE;
+    }
+    else if (expr instanceof UnaryOperation unary) {
+      plan.addArgument(explain(unary.getOperand(), owner));
+      if (unary instanceof org.htmlunit.xpath.operations.String
+          || unary instanceof org.htmlunit.xpath.operations.Number) {
+        plan.m_cost += plan.m_arguments.get(0).getStringValueCost();
+      }
+    }
+    else if (expr instanceof Operation operation) {
+      plan.addArgument(explain(operation.getLeftOperand(), owner));
+      plan.addArgument(explain(operation.getRightOperand(), owner));
+      if (!(operation instanceof And || operation instanceof Or)) {
+        // the nodes are compared or computed by their string values
+        for (final XPathPlan argument : plan.m_arguments) {
+          plan.m_cost += argument.getStringValueCost();
+        }
+      }
+    }
+    else if (expr instanceof Function function) {
+      explainFunction(plan, function, owner);
+    }
+    else if (expr instanceof XObject object) {
+      plan.m_literal = object instanceof XString ? "'" + object.str() + "'" : object.toString();
+    }
+    else if (expr instanceof UnionPattern union) {
+      if (null != union.getPatterns()) {
+        for (final StepPattern pattern : union.getPatterns()) {
+          plan.addArgument(explain(pattern, owner));
+        }
+      }
+    }
+    else if (expr instanceof StepPattern pattern) {
+      plan.m_nodeTest = getNodeTest(pattern);
+      for (int i = 0; i < pattern.getPredicateCount(); i++) {
+        plan.addPredicate(explain(pattern.getPredicate(i), owner));
+      }
+      if (null != pattern.getRelativePathPattern()) {
+        plan.addArgument(explain(pattern.getRelativePathPattern(), owner));
+      }
+    }
+    return plan;
+  }
+
+  private static XPathPlan explainWalker(final AxesWalker walker, final LocPathIterator owner) {
+    final XPathPlan step = new XPathPlan(walker);
+    if (walker instanceof FilterExprWalker filter) {
+      // the result of the expression is collected before it is walked, at the top level
+      step.m_axisID = Axis.FILTEREDLIST;
+      step.m_axis = Axis.getNames(Axis.FILTEREDLIST);
+      step.m_cached = owner.getIsTopLevel();
+      step.addArgument(explain(filter.getInnerExpression(), owner));
+    }
+    else {
+      step.setStep(walker.getAxis(), walker);
+      step.m_cost = CostModel.getStepCost(walker.getAxis());
+    }
+    step.addPredicates(walker, owner);
+    return step;
+  }
+
+  private static void explainFunction(
+      final XPathPlan plan, final Function function, final LocPathIterator owner) {
+    final List<Expression> args = new ArrayList<>();
+    if (function instanceof FunctionOneArg oneArg && null != oneArg.getArg0()) {
+      args.add(oneArg.getArg0());
+    }
+    if (function instanceof Function2Args twoArgs && null != twoArgs.getArg1()) {
+      args.add(twoArgs.getArg1());
+    }
+    if (function instanceof Function3Args threeArgs && null != threeArgs.getArg2()) {
+      args.add(threeArgs.getArg2());
+    }
+    if (function instanceof FunctionMultiArgs multiArgs && null != multiArgs.getArgs()) {
+      Collections.addAll(args, multiArgs.getArgs());
+    }
+    final int funcID = CostModel.getFunctionID(function);
+    final boolean stringValues = CostModel.usesStringValues(funcID);
+    for (final Expression arg : args) {
+      final XPathPlan argument = explain(arg, owner);
+      plan.addArgument(argument);
+      if (stringValues) {
+        plan.m_cost += argument.getStringValueCost();
+      }
+    }
+    plan.m_cost += CostModel.getFunctionCost(funcID, !args.isEmpty());
+  }
+
+  private void setStep(final int axis, final NodeTest test) {
+    m_axisID = axis;
+    m_axis = axis < 0 ? null : Axis.getNames(axis);
+    m_nodeTest = getNodeTest(test);
+  }
+
+  private void addPredicates(final PredicatedNodeTest test, final LocPathIterator owner) {
+    for (int i = 0; i < test.getPredicateCount(); i++) {
+      addPredicate(explain(test.getPredicate(i), owner));
+    }
+  }
+
+  private void addPredicate(final XPathPlan predicate) {
+    m_predicates.add(predicate);
+    m_cost += predicate.m_cost;
+  }
+
+  private void addArgument(final XPathPlan argument) {
+    m_arguments.add(argument);
+    m_cost += argument.m_cost;
+  }
+
+  /**
+   * @return the cost of the string values of the nodes this location path selects, 0 for other
+   *     nodes
+   */
+  private int getStringValueCost() {
+    if (m_source instanceof Invariant) {
+      return m_arguments.get(0).getStringValueCost();
+    }
+    if (!(m_source instanceof LocPathIterator)
+        || m_source instanceof UnionPathIterator
+        || m_source instanceof UnionChildIterator) {
+      return 0;
+    }
+    final int axis = m_steps.isEmpty() ? m_axisID : m_steps.get(m_steps.size() - 1).m_axisID;
+    return CostModel.getStringValueCost(axis);
+  }
+
+  private static String getNodeTest(final NodeTest test) {
+    final int whatToShow = test.getNodeTestWhatToShow();
+    final String name = test.getLocalName();
+    if (DTMFilter.SHOW_PROCESSING_INSTRUCTION == whatToShow) {
+      return "processing-instruction(" + name + ")";
+    }
+    if (!name.isEmpty()) {
+      final String namespace = test.getNamespace();
+      if (null == namespace || NodeTest.WILD.equals(namespace) && NodeTest.WILD.equals(name)) {
+        return name;
+      }
+      return "{" + namespace + "}" + name;
+    }
+    if (DTMFilter.SHOW_ALL == (whatToShow | DTMFilter.SHOW_ENTITY_REFERENCE)) {
+      return "node()";
+    }
+    if (0 != (whatToShow & (DTMFilter.SHOW_TEXT | DTMFilter.SHOW_CDATA_SECTION))) {
+      return "text()";
+    }
+    if (0 != (whatToShow & DTMFilter.SHOW_COMMENT)) {
+      return "comment()";
+    }
+    if (0 != (whatToShow & (DTMFilter.SHOW_DOCUMENT | DTMFilter.SHOW_DOCUMENT_FRAGMENT))) {
+      return "/";
+    }
+    return "node()";
+  }
+
+  /**
+   * Returns the plan as indented text, one line per node.
+   *
+   * @return the plan as text
+   */
+  @Override
+  public String toString() {
+    final StringBuilder buf = new StringBuilder();
+    append(buf, "", 0);
+    return buf.toString();
+  }
+
+  private void append(final StringBuilder buf, final String role, final int depth) {
+    for (int i = 0; i < depth; i++) {
+      buf.append("  ");
+    }
+    buf.append(role).append(m_type);
+    if (null != m_axis) {
+      buf.append(' ').append(m_axis);
+      if (null != m_nodeTest) {
+        buf.append("::").append(m_nodeTest);
+      }
+    }
+    else if (null != m_nodeTest) {
+      buf.append(' ').append(m_nodeTest);
+    }
+    if (null != m_literal) {
+      buf.append(' ').append(m_literal);
+    }
+    buf.append(" (cost ").append(m_cost);
+    if (0 != m_analysis) {
+      buf.append(", analysis ").append(WalkerFactory.getAnalysisString(m_analysis).trim());
+    }
+    if (m_needsSorting) {
+      buf.append(", sorted");
+    }
+    if (m_cached) {
+      buf.append(", cached");
+    }
+    buf.append(")\n");
+
+    for (final XPathPlan step : m_steps) {
+      step.append(buf, "step: ", depth + 1);
+    }
+    for (final XPathPlan predicate : m_predicates) {
+      predicate.append(buf, "predicate: ", depth + 1);
+    }
+    for (final XPathPlan argument : m_arguments) {
+      argument.append(buf, "", depth + 1);
+    }
+  }
+}
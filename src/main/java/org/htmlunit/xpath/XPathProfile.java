@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.htmlunit.xpath.axes.PredicatedNodeTest;
+
+/**
+ * Counters of an {@link XPath} with profiling turned on, see {@link XPath#setProfiling(boolean)}.
+ * The counters are aggregated over all executions until {@link #reset()}, and may be read while
+ * other threads execute the expression.
+ *
+ * <p>There is one {@link Step} for every iterator and walker of the expression, including the ones
+ * in predicates and function arguments, in the order of {@link XPath#explain()}.
+ */
+public final class XPathProfile {
+
+  private final List<Step> m_steps = new ArrayList<>();
+  private final LongAdder m_executions = new LongAdder();
+  private final LongAdder m_nanos = new LongAdder();
+
+  /**
+   * Create the profile of an expression and attach its steps to the iterators and walkers.
+   *
+   * @param plan the plan of the expression
+   */
+  XPathProfile(final XPathPlan plan) {
+    attach(plan, 0);
+  }
+
+  private void attach(final XPathPlan plan, final int depth) {
+    int childDepth = depth;
+    if (plan.getSource() instanceof PredicatedNodeTest test) {
+      final StringBuilder description = new StringBuilder(plan.getType());
+      if (null != plan.getAxis()) {
+        description.append(' ').append(plan.getAxis());
+        if (null != plan.getNodeTest()) {
+          description.append("::").append(plan.getNodeTest());
+        }
+      }
+      final Step step = new Step(description.toString(), depth);
+      m_steps.add(step);
+      test.setProfile(step);
+      childDepth++;
+    }
+
+    for (final XPathPlan child : plan.getSteps()) {
+      attach(child, childDepth);
+    }
+    for (final XPathPlan child : plan.getPredicates()) {
+      attach(child, childDepth);
+    }
+    for (final XPathPlan child : plan.getArguments()) {
+      attach(child, childDepth);
+    }
+  }
+
+  /**
+   * Detach the steps from the iterators and walkers of the expression.
+   *
+   * @param plan the plan of the expression
+   */
+  static void detach(final XPathPlan plan) {
+    if (plan.getSource() instanceof PredicatedNodeTest test) {
+      test.setProfile(null);
+    }
+
+    for (final XPathPlan child : plan.getSteps()) {
+      detach(child);
+    }
+    for (final XPathPlan child : plan.getPredicates()) {
+      detach(child);
+    }
+    for (final XPathPlan child : plan.getArguments()) {
+      detach(child);
+    }
+  }
+
+  /**
+   * Record one execution.
+   *
+   * @param nanos the time spent in {@link XPath#execute}
+   */
+  void executed(final long nanos) {
+    m_executions.increment();
+    m_nanos.add(nanos);
+  }
+
+  /**
+   * @return the number of executions
+   */
+  public long getExecutions() {
+    return m_executions.sum();
+  }
+
+  /**
+   * The time spent in {@link XPath#execute}. Node-sets are iterated lazily; for location paths most
+   * of the work is done when the result is read, see {@link Step#getNanos()}.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getNanos() {
+    return m_nanos.sum();
+  }
+
+  /**
+   * @return the steps of the expression
+   */
+  public List<Step> getSteps() {
+    return Collections.unmodifiableList(m_steps);
+  }
+
+  /** Reset all counters to 0. */
+  public void reset() {
+    m_executions.reset();
+    m_nanos.reset();
+    for (final Step step : m_steps) {
+      step.reset();
+    }
+  }
+
+  /**
+   * Returns the counters as text, one line per step.
+   *
+   * @return the counters as text
+   */
+  @Override
+  public String toString() {
+    final StringBuilder buf = new StringBuilder();
+    buf.append("executions: ")
+        .append(getExecutions())
+        .append(", time: ")
+        .append(TimeUnit.NANOSECONDS.toMicros(getNanos()))
+        .append("us\n");
+    for (final Step step : m_steps) {
+      for (int i = 0; i < step.m_depth; i++) {
+        buf.append("  ");
+      }
+      buf.append(step).append('\n');
+    }
+    return buf.toString();
+  }
+
+  /** The counters of one iterator or walker. */
+  public static final class Step {
+
+    private final String m_description;
+    private final int m_depth;
+    private final LongAdder m_visited = new LongAdder();
+    private final LongAdder m_accepted = new LongAdder();
+    private final LongAdder m_predicates = new LongAdder();
+    private final LongAdder m_clones = new LongAdder();
+    private final LongAdder m_nanos = new LongAdder();
+
+    Step(final String description, final int depth) {
+      m_description = description;
+      m_depth = depth;
+    }
+
+    /**
+     * Record a node tested by the step.
+     *
+     * @param accepted true if the node passed the node test and the predicates
+     * @param nanos the time spent testing the node, including the predicates
+     */
+    public void nodeTested(final boolean accepted, final long nanos) {
+      m_visited.increment();
+      if (accepted) {
+        m_accepted.increment();
+      }
+      m_nanos.add(nanos);
+    }
+
+    /** Record the evaluation of one predicate for one node. */
+    public void predicateEvaluated() {
+      m_predicates.increment();
+    }
+
+    /** Record a clone of the iterator or walker. */
+    public void cloned() {
+      m_clones.increment();
+    }
+
+    /**
+     * @return the iterator or walker class, with axis and node test
+     */
+    public String getDescription() {
+      return m_description;
+    }
+
+    /**
+     * @return the number of nodes the axis traverser delivered to the step
+     */
+    public long getVisited() {
+      return m_visited.sum();
+    }
+
+    /**
+     * @return the number of nodes that passed the node test and the predicates
+     */
+    public long getAccepted() {
+      return m_accepted.sum();
+    }
+
+    /**
+     * @return the number of predicate evaluations, one per predicate and node
+     */
+    public long getPredicateEvaluations() {
+      return m_predicates.sum();
+    }
+
+    /**
+     * @return the number of clones made from the pool or to count the nodes for last()
+     */
+    public long getClones() {
+      return m_clones.sum();
+    }
+
+    /**
+     * @return the time spent testing nodes, including the predicates, in nanoseconds
+     */
+    public long getNanos() {
+      return m_nanos.sum();
+    }
+
+    void reset() {
+      m_visited.reset();
+      m_accepted.reset();
+      m_predicates.reset();
+      m_clones.reset();
+      m_nanos.reset();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return m_description
+          + ": visited "
+          + getVisited()
+          + ", accepted "
+          + getAccepted()
+          + ", predicates "
+          + getPredicateEvaluations()
+          + ", clones "
+          + getClones()
+          + ", time "
+          + TimeUnit.NANOSECONDS.toMicros(getNanos())
+          + "us";
+    }
+  }
+}
@@ -275,7 +275,7 @@ public class AxesWalker extends PredicatedNodeTest implements Cloneable, PathCom
                 walker = walker.m_prevWalker;
             }
             else {
-                if (walker.acceptNode(nextNode) != DTMIterator.FILTER_ACCEPT) {
+                if (walker.filterNode(nextNode) != DTMIterator.FILTER_ACCEPT) {
                     continue;
                 }
 
@@ -315,6 +315,9 @@ public class AxesWalker extends PredicatedNodeTest implements Cloneable, PathCom
         catch (final CloneNotSupportedException cnse) {
             return -1;
         }
+        if (null != m_profile) {
+            m_profile.cloned();
+        }
 
         walker.setPredicateCount(m_predicateIndex);
         walker.setNextWalker(null);
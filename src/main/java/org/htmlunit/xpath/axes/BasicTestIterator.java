@@ -98,7 +98,7 @@ public abstract class BasicTestIterator extends LocPathIterator {
             next = getNextNode();
 
             if (DTM.NULL != next) {
-                if (DTMIterator.FILTER_ACCEPT == acceptNode(next)) {
+                if (DTMIterator.FILTER_ACCEPT == filterNode(next)) {
                     break;
                 }
                 continue;
@@ -73,6 +73,9 @@ public class ChildIterator extends LocPathIterator {
 
         // m_lastFetched = next;
         if (DTM.NULL != next) {
+            if (null != m_profile) {
+                m_profile.nodeTested(true, 0);
+            }
             m_pos++;
             return next;
         }
@@ -170,7 +170,7 @@ public class DescendantIterator extends LocPathIterator {
             }
 
             if (DTM.NULL != next) {
-                if (DTMIterator.FILTER_ACCEPT == acceptNode(next)) {
+                if (DTMIterator.FILTER_ACCEPT == filterNode(next)) {
                     break;
                 }
                 continue;
@@ -200,15 +200,26 @@ public class DescendantIterator extends LocPathIterator {
         final String localName = getLocalName();
         final String namespace = getNamespace();
         final int what = m_whatToShow;
-        if (DTMFilter.SHOW_ALL == what
-                || NodeTest.WILD.equals(localName)
-                || NodeTest.WILD.equals(namespace)) {
-            m_extendedTypeID = 0;
-        }
-        else {
+        if (isTypedWalk(what, namespace, localName)) {
             final int type = getNodeTypeTest(what);
             m_extendedTypeID = m_cdtm.getExpandedTypeID(namespace, localName, type);
         }
+        else {
+            m_extendedTypeID = 0;
+        }
+    }
+
+    /**
+     * A typed walk only finds the nodes of one expanded type. text() also selects CDATA sections,
+     * these have their own node type in the DTM and are left to the node test.
+     *
+     * @return true if the nodes can be found by their expanded type
+     */
+    private static boolean isTypedWalk(final int what, final String namespace, final String localName) {
+        return DTMFilter.SHOW_ALL != what
+                && 0 == (what & DTMFilter.SHOW_CDATA_SECTION)
+                && !NodeTest.WILD.equals(localName)
+                && !NodeTest.WILD.equals(namespace);
     }
 
     /**
@@ -228,9 +239,12 @@ public class DescendantIterator extends LocPathIterator {
         final String localName = getLocalName();
         final String namespace = getNamespace();
         final int what = m_whatToShow;
-        if (DTMFilter.SHOW_ALL == what || localName == NodeTest.WILD || namespace == NodeTest.WILD) {
+        if (DTMFilter.SHOW_ALL == what) {
             return traverser.first(current);
         }
+        if (!isTypedWalk(what, namespace, localName)) {
+            return super.asNode(xctxt);
+        }
         final int type = getNodeTypeTest(what);
         final int extendedType = dtm.getExpandedTypeID(namespace, localName, type);
         return traverser.first(current, extendedType);
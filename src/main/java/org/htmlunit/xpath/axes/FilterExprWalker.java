@@ -205,6 +205,15 @@ public class FilterExprWalker extends AxesWalker {
      */
     private Expression m_expr;
 
+    /**
+     * Get the inner contained expression of this filter.
+     *
+     * @return the filter expression
+     */
+    public Expression getInnerExpression() {
+        return m_expr;
+    }
+
     /**
      * The result of executing m_expr. Needs to be deep cloned on clone op.
      */
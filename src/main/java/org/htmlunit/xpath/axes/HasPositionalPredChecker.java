@@ -18,15 +18,38 @@
 package org.htmlunit.xpath.axes;
 
 import org.htmlunit.xpath.Expression;
+import org.htmlunit.xpath.XPath;
 import org.htmlunit.xpath.XPathVisitor;
+import org.htmlunit.xpath.functions.FuncBoolean;
+import org.htmlunit.xpath.functions.FuncConcat;
+import org.htmlunit.xpath.functions.FuncContains;
+import org.htmlunit.xpath.functions.FuncFalse;
+import org.htmlunit.xpath.functions.FuncId;
+import org.htmlunit.xpath.functions.FuncLang;
 import org.htmlunit.xpath.functions.FuncLast;
+import org.htmlunit.xpath.functions.FuncLocalPart;
+import org.htmlunit.xpath.functions.FuncNamespace;
+import org.htmlunit.xpath.functions.FuncNormalizeSpace;
+import org.htmlunit.xpath.functions.FuncNormalizeSpaceCompare;
+import org.htmlunit.xpath.functions.FuncNot;
 import org.htmlunit.xpath.functions.FuncPosition;
+import org.htmlunit.xpath.functions.FuncPositionFilter;
+import org.htmlunit.xpath.functions.FuncQname;
+import org.htmlunit.xpath.functions.FuncStartsWith;
+import org.htmlunit.xpath.functions.FuncString;
+import org.htmlunit.xpath.functions.FuncSubstring;
+import org.htmlunit.xpath.functions.FuncSubstringAfter;
+import org.htmlunit.xpath.functions.FuncSubstringBefore;
+import org.htmlunit.xpath.functions.FuncTranslate;
+import org.htmlunit.xpath.functions.FuncTrue;
 import org.htmlunit.xpath.functions.Function;
 import org.htmlunit.xpath.objects.XNumber;
 import org.htmlunit.xpath.operations.Div;
+import org.htmlunit.xpath.operations.Invariant;
 import org.htmlunit.xpath.operations.Minus;
 import org.htmlunit.xpath.operations.Mod;
 import org.htmlunit.xpath.operations.Mult;
+import org.htmlunit.xpath.operations.Neg;
 import org.htmlunit.xpath.operations.Plus;
 
 public class HasPositionalPredChecker extends XPathVisitor {
@@ -47,12 +70,67 @@ public class HasPositionalPredChecker extends XPathVisitor {
         return hppc.m_hasPositionalPred;
     }
 
+    /**
+     * Process the XPath to see if any of its steps or patterns has a positional predicate.
+     *
+     * @param path XPath to check.
+     * @return true if a positional predicate was found.
+     */
+    public static boolean check(final XPath path) {
+        final HasPositionalPredChecker hppc = new HasPositionalPredChecker();
+        path.callVisitors(hppc);
+        return hppc.m_hasPositionalPred;
+    }
+
+    /**
+     * Check a single predicate, to see if it selects by position.
+     *
+     * @param pred the predicate
+     * @return true if the predicate may evaluate to a number or uses position() or last().
+     */
+    public static boolean isPositional(final Expression pred) {
+        final HasPositionalPredChecker hppc = new HasPositionalPredChecker();
+        hppc.visitPredicate(pred);
+        return hppc.m_hasPositionalPred;
+    }
+
+    /**
+     * FuncPositionFilter never returns a number either, it is found positional by visitFunction.
+     *
+     * @param func the function
+     * @return false if the function never returns a number.
+     */
+    private static boolean mayBeNumber(final Function func) {
+        return !(func instanceof FuncNot
+                || func instanceof FuncTrue
+                || func instanceof FuncFalse
+                || func instanceof FuncBoolean
+                || func instanceof FuncStartsWith
+                || func instanceof FuncContains
+                || func instanceof FuncLang
+                || func instanceof FuncString
+                || func instanceof FuncConcat
+                || func instanceof FuncSubstring
+                || func instanceof FuncSubstringBefore
+                || func instanceof FuncSubstringAfter
+                || func instanceof FuncNormalizeSpace
+                || func instanceof FuncNormalizeSpaceCompare
+                || func instanceof FuncPositionFilter
+                || func instanceof FuncTranslate
+                || func instanceof FuncLocalPart
+                || func instanceof FuncNamespace
+                || func instanceof FuncQname
+                || func instanceof FuncId);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean visitFunction(final Function func) {
-        if ((func instanceof FuncPosition) || (func instanceof FuncLast)) {
+        if ((func instanceof FuncPosition)
+                || (func instanceof FuncLast)
+                || (func instanceof FuncPositionFilter)) {
             m_hasPositionalPred = true;
         }
         return true;
@@ -62,9 +140,13 @@ public class HasPositionalPredChecker extends XPathVisitor {
      * {@inheritDoc}
      */
     @Override
-    public boolean visitPredicate(final Expression pred) {
+    public boolean visitPredicate(final Expression predicate) {
         m_predDepth++;
 
+        // look at the expression the compiler has hoisted
+        final Expression pred =
+                predicate instanceof Invariant invariant ? invariant.getExpression() : predicate;
+
         if (m_predDepth == 1) {
             if ((pred instanceof XNumber)
                     || (pred instanceof Div)
@@ -72,8 +154,9 @@ public class HasPositionalPredChecker extends XPathVisitor {
                     || (pred instanceof Minus)
                     || (pred instanceof Mod)
                     || (pred instanceof Mult)
+                    || (pred instanceof Neg)
                     || (pred instanceof org.htmlunit.xpath.operations.Number)
-                    || (pred instanceof Function)) {
+                    || (pred instanceof Function && mayBeNumber((Function) pred))) {
                 m_hasPositionalPred = true;
             }
             else {
@@ -19,6 +19,9 @@ package org.htmlunit.xpath.axes;
 
 import java.util.ArrayList;
 
+import org.htmlunit.xpath.jfr.FlightRecorderSupport;
+import org.htmlunit.xpath.jfr.IteratorPoolMissEvent;
+import org.htmlunit.xpath.metrics.Metrics;
 import org.htmlunit.xpath.xml.dtm.DTMIterator;
 import org.htmlunit.xpath.xml.utils.WrappedRuntimeException;
 
@@ -57,7 +60,10 @@ public final class IteratorPool {
         if (m_freeStack.isEmpty()) {
 
             // Create a new object if so.
-            return (DTMIterator) m_orig.clone();
+            return cloneOriginal();
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.getMetrics().iteratorPoolHit();
         }
         // Remove object from end of free pool.
         return m_freeStack.remove(m_freeStack.size() - 1);
@@ -74,16 +80,45 @@ public final class IteratorPool {
 
             // Create a new object if so.
             try {
-                return (DTMIterator) m_orig.clone();
+                return cloneOriginal();
             }
             catch (final Exception ex) {
                 throw new WrappedRuntimeException(ex);
             }
         }
+        if (Metrics.isEnabled()) {
+            Metrics.getMetrics().iteratorPoolHit();
+        }
         // Remove object from end of free pool.
         return m_freeStack.remove(m_freeStack.size() - 1);
     }
 
+    private DTMIterator cloneOriginal() throws CloneNotSupportedException {
+        if (m_orig instanceof PredicatedNodeTest test && null != test.getProfile()) {
+            test.getProfile().cloned();
+        }
+
+        if (Metrics.isEnabled()) {
+            Metrics.getMetrics().iteratorPoolMiss();
+        }
+
+        if (FlightRecorderSupport.isAvailable()) {
+            final IteratorPoolMissEvent event = new IteratorPoolMissEvent();
+            if (event.isEnabled()) {
+                event.iteratorClass = m_orig.getClass().getName();
+                event.commit();
+            }
+        }
+        return (DTMIterator) m_orig.clone();
+    }
+
+    /**
+     * Drop all pooled instances, for example because the original changed.
+     */
+    public synchronized void clear() {
+        m_freeStack.clear();
+    }
+
     /**
      * Add an instance of the given object to the pool
      *
@@ -18,6 +18,7 @@
 package org.htmlunit.xpath.axes;
 
 import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.XPathProfile;
 import org.htmlunit.xpath.XPathVisitor;
 import org.htmlunit.xpath.objects.XNodeSet;
 import org.htmlunit.xpath.objects.XObject;
@@ -82,6 +83,7 @@ public abstract class LocPathIterator extends PredicatedNodeTest implements Clon
     protected LocPathIterator(final int analysis, final boolean shouldLoadWalkers)
             throws javax.xml.transform.TransformerException {
         setLocPathIterator(this);
+        m_analysis = analysis;
     }
 
     /**
@@ -174,6 +176,27 @@ public abstract class LocPathIterator extends PredicatedNodeTest implements Clon
         return m_isTopLevel;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProfile(final XPathProfile.Step profile) {
+        super.setProfile(profile);
+
+        // the pooled clones still share the previous counters
+        m_clones.clear();
+    }
+
+    /**
+     * Get the analysis of the location path the iterator was created for.
+     *
+     * @return the analysis bits of {@link WalkerFactory}, or 0 if the iterator was not created from a
+     *     location path.
+     */
+    public int getAnalysis() {
+        return m_analysis;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -277,6 +300,9 @@ public abstract class LocPathIterator extends PredicatedNodeTest implements Clon
         catch (final CloneNotSupportedException cnse) {
             return -1;
         }
+        if (null != m_profile) {
+            m_profile.cloned();
+        }
 
         // We want to clip off the last predicate, but only if we are a sub
         // context node list, NOT if we are a context list. See pos68 test,
@@ -508,6 +534,11 @@ public abstract class LocPathIterator extends PredicatedNodeTest implements Clon
      */
     private boolean m_isTopLevel = false;
 
+    /**
+     * The analysis of the location path, see {@link WalkerFactory}.
+     */
+    private int m_analysis;
+
     /**
      * The last node that was fetched, usually by nextNode.
      */
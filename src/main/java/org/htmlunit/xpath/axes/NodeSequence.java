@@ -19,6 +19,7 @@ package org.htmlunit.xpath.axes;
 
 import org.htmlunit.xpath.NodeSetDTM;
 import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.metrics.Metrics;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.xml.dtm.DTM;
 import org.htmlunit.xpath.xml.dtm.DTMFilter;
@@ -85,8 +86,10 @@ public class NodeSequence extends XObject implements DTMIterator, Cloneable, Pat
     /**
      * If this NodeSequence has a cache, and that cache is fully populated then this method returns
      * true, otherwise if there is no cache or it is not complete it returns false.
+     *
+     * @return true if all nodes have been collected in the cache
      */
-    private boolean cacheComplete() {
+    public boolean cacheComplete() {
         final boolean complete;
         if (m_cache != null) {
             complete = m_cache.isComplete();
@@ -105,6 +108,9 @@ public class NodeSequence extends XObject implements DTMIterator, Cloneable, Pat
         final NodeVector nv = getVector();
         if (nv != null) {
             m_cache.setCacheComplete(true);
+            if (Metrics.isEnabled()) {
+                Metrics.getMetrics().nodeSequenceCacheFilled(nv.size());
+            }
         }
     }
 
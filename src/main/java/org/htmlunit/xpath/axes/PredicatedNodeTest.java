@@ -19,8 +19,10 @@ package org.htmlunit.xpath.axes;
 
 import org.htmlunit.xpath.Expression;
 import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.XPathProfile;
 import org.htmlunit.xpath.XPathVisitor;
 import org.htmlunit.xpath.compiler.Compiler;
+import org.htmlunit.xpath.functions.FuncPositionFilter;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.patterns.NodeTest;
 import org.htmlunit.xpath.xml.dtm.DTM;
@@ -248,7 +250,20 @@ public abstract class PredicatedNodeTest extends NodeTest implements SubContextL
             xctxt.pushCurrentNode(context);
 
             for (int i = 0; i < nPredicates; i++) {
-                final XObject pred = predicates_[i].execute(xctxt);
+                if (null != m_profile) {
+                    m_profile.predicateEvaluated();
+                }
+                final Expression predicate = predicates_[i];
+                final XObject pred = predicate.execute(xctxt);
+
+                // as above, once no further node can pass the last predicate, we are done after
+                // this one; positions count down on reverse axes
+                if (i == nPredicates - 1
+                        && predicate instanceof FuncPositionFilter filter
+                        && !isReverseAxes()
+                        && filter.isExhausted(getProximityPosition(m_predicateIndex))) {
+                    m_foundLast = true;
+                }
                 // System.out.println("\nBack from executing predicate expression - waiting
                 // count:
                 // "+m_lpi.getWaitingCount());
@@ -368,6 +383,42 @@ public abstract class PredicatedNodeTest extends NodeTest implements SubContextL
         return DTMIterator.FILTER_SKIP;
     }
 
+    /**
+     * Test a node with {@link #acceptNode(int)}, and count it if profiling is on.
+     *
+     * @param n The node to check to see if it passes the filter or not.
+     * @return the result of {@link #acceptNode(int)}.
+     */
+    public final short filterNode(final int n) {
+        final XPathProfile.Step profile = m_profile;
+        if (null == profile) {
+            return acceptNode(n);
+        }
+
+        final long start = System.nanoTime();
+        final short result = acceptNode(n);
+        profile.nodeTested(DTMIterator.FILTER_ACCEPT == result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Get the counters of this step.
+     *
+     * @return the counters, or null if profiling is off.
+     */
+    public XPathProfile.Step getProfile() {
+        return m_profile;
+    }
+
+    /**
+     * Set the counters of this step; they are shared with all clones made afterwards.
+     *
+     * @param profile the counters, or null to turn profiling off.
+     */
+    public void setProfile(final XPathProfile.Step profile) {
+        m_profile = profile;
+    }
+
     /**
      * Set the location path iterator owner for this walker. Besides initialization, this function is
      * called during cloning operations.
@@ -445,6 +496,11 @@ public abstract class PredicatedNodeTest extends NodeTest implements SubContextL
      */
     protected transient boolean m_foundLast = false;
 
+    /**
+     * The counters of this step, or null if profiling is off. Shared with the clones.
+     */
+    protected transient XPathProfile.Step m_profile;
+
     /**
      * The owning location path iterator.
      *
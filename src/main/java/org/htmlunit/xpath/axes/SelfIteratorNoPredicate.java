@@ -53,6 +53,9 @@ public class SelfIteratorNoPredicate extends LocPathIterator {
 
         // m_lastFetched = next;
         if (DTM.NULL != next) {
+            if (null != m_profile) {
+                m_profile.nodeTested(true, 0);
+            }
             m_pos++;
 
             return next;
@@ -35,6 +35,13 @@ public class UnionChildIterator extends ChildTestIterator {
      */
     private PredicatedNodeTest[] m_nodeTests = null;
 
+    /**
+     * @return the node tests of the union, one for each child step, or null if there are none.
+     */
+    public PredicatedNodeTest[] getNodeTests() {
+        return m_nodeTests;
+    }
+
     /**
      * Constructor for UnionChildIterator
      */
@@ -304,6 +304,13 @@ public class UnionPathIterator extends LocPathIterator
      */
     protected LocPathIterator[] exprs_;
 
+    /**
+     * @return the location path iterators, one for each location path contained in the union.
+     */
+    public LocPathIterator[] getPaths() {
+        return exprs_;
+    }
+
     /**
      * The location path iterators, one for each <a
      * href="http://www.w3.org/TR/xpath#NT-LocationPath">location path</a> contained in the union
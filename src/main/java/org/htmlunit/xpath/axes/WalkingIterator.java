@@ -207,6 +207,15 @@ public class WalkingIterator extends LocPathIterator {
      */
     protected AxesWalker m_firstWalker;
 
+    /**
+     * Get the head of the walker list.
+     *
+     * @return The head of the walker list, or null if this iterator does not implement walkers.
+     */
+    public final AxesWalker getFirstWalker() {
+        return m_firstWalker;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -17,21 +17,41 @@
  */
 package org.htmlunit.xpath.compiler;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.TransformerException;
 
 import org.htmlunit.xpath.Expression;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.axes.HasPositionalPredChecker;
 import org.htmlunit.xpath.axes.UnionPathIterator;
 import org.htmlunit.xpath.axes.WalkerFactory;
+import org.htmlunit.xpath.functions.FuncBoolean;
+import org.htmlunit.xpath.functions.FuncContains;
+import org.htmlunit.xpath.functions.FuncLang;
+import org.htmlunit.xpath.functions.FuncLast;
+import org.htmlunit.xpath.functions.FuncNormalizeSpace;
+import org.htmlunit.xpath.functions.FuncNormalizeSpaceCompare;
+import org.htmlunit.xpath.functions.FuncNot;
+import org.htmlunit.xpath.functions.FuncPosition;
+import org.htmlunit.xpath.functions.FuncPositionFilter;
+import org.htmlunit.xpath.functions.FuncStartsWith;
 import org.htmlunit.xpath.functions.Function;
 import org.htmlunit.xpath.functions.WrongNumberArgsException;
+import org.htmlunit.xpath.objects.XBoolean;
 import org.htmlunit.xpath.objects.XNumber;
+import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.objects.XString;
 import org.htmlunit.xpath.operations.And;
+import org.htmlunit.xpath.operations.Bool;
 import org.htmlunit.xpath.operations.Div;
 import org.htmlunit.xpath.operations.Equals;
 import org.htmlunit.xpath.operations.Gt;
 import org.htmlunit.xpath.operations.Gte;
+import org.htmlunit.xpath.operations.Invariant;
 import org.htmlunit.xpath.operations.Lt;
 import org.htmlunit.xpath.operations.Lte;
 import org.htmlunit.xpath.operations.Minus;
@@ -81,6 +101,23 @@ public class Compiler extends OpMap {
    * @throws TransformerException if there is a syntax or other error.
    */
   public Expression compile(final int opPos) throws TransformerException {
+    if (m_predicateDepth > 0 && !m_inInvariant && INVARIANT_PATH == analyzeInvariance(opPos)) {
+      // evaluate it once instead of once per node the predicate is tested for
+      m_inInvariant = true;
+      try {
+        final Invariant invariant = new Invariant();
+        invariant.setRight(compileOp(opPos));
+        return invariant;
+      }
+      finally {
+        m_inInvariant = false;
+      }
+    }
+
+    return compileOp(opPos);
+  }
+
+  private Expression compileOp(final int opPos) throws TransformerException {
 
     final int op = getOp(opPos);
 
@@ -194,11 +231,194 @@ public class Compiler extends OpMap {
     final int leftPos = getFirstChildPos(opPos);
     final int rightPos = getNextOpPos(leftPos);
 
-    operation.setLeftRight(compile(leftPos), compile(rightPos));
+    Expression left = compile(leftPos);
+    Expression right = compile(rightPos);
+
+    final String operator = getOperator(getOp(opPos));
+    final boolean logical = operation instanceof And || operation instanceof Or;
+    if (logical) {
+      // the operands are converted to boolean anyway
+      left = stripBoolean(left);
+      right = stripBoolean(right);
+
+      // evaluate the cheaper term first, it may decide the result alone
+      if (estimateCost(rightPos) < estimateCost(leftPos)) {
+        final Expression cheaper = right;
+        right = left;
+        left = cheaper;
+        addRewrite(operator + " terms swapped by cost");
+      }
+    }
+
+    operation.setLeftRight(left, right);
+
+    if (isConstant(left) && isConstant(right)) {
+      return fold(operation, describe(left) + " " + operator + " " + describe(right));
+    }
+
+    if (operation instanceof Equals || operation instanceof NotEquals) {
+      final boolean equals = operation instanceof Equals;
+      final Expression fused = right instanceof FuncNormalizeSpace
+          ? fuseNormalizeSpace(right, left, equals, operator)
+          : fuseNormalizeSpace(left, right, equals, operator);
+      if (null != fused) {
+        return fused;
+      }
+    }
+
+    final Expression positionFilter = fusePosition(operation, left, right, operator);
+    if (null != positionFilter) {
+      return positionFilter;
+    }
+
+    if (logical) {
+      final boolean isAnd = operation instanceof And;
+      // x and false() is false, x or true() is true, whatever x is
+      if (isBoolean(left, !isAnd) || isBoolean(right, !isAnd)) {
+        final String value = isAnd ? "false()" : "true()";
+        addRewrite("x " + operator + " " + value + " -> " + value);
+        return new XBoolean(!isAnd);
+      }
+    }
 
     return operation;
   }
 
+  /**
+   * Replace a comparison of normalize-space() with a string literal by a FuncNormalizeSpaceCompare,
+   * which does not build the normalized string.
+   *
+   * @param expr the operand that may be a normalize-space() call
+   * @param other the operand that may be a string literal
+   * @param equals true for =, false for !=
+   * @param operator the operator, for the list of rewrites
+   * @return the fused comparison, or null if the operands do not fit
+   */
+  private Expression fuseNormalizeSpace(
+      final Expression expr, final Expression other, final boolean equals, final String operator) {
+    if (!(expr instanceof FuncNormalizeSpace) || !(other instanceof XString)) {
+      return null;
+    }
+
+    final String literal = ((XString) other).str();
+    final int kind;
+    if (literal.isEmpty()) {
+      kind = equals ? FuncNormalizeSpaceCompare.EMPTY : FuncNormalizeSpaceCompare.NOT_EMPTY;
+    }
+    else {
+      kind = equals ? FuncNormalizeSpaceCompare.EQUALS : FuncNormalizeSpaceCompare.NOT_EQUALS;
+    }
+    addRewrite("normalize-space(x) " + operator + " " + describe(other) + " -> fused comparison");
+    return new FuncNormalizeSpaceCompare((FuncNormalizeSpace) expr, kind, literal);
+  }
+
+  /**
+   * Replace a comparison of position() with a number, with last(), or of position() mod n with a
+   * number by a FuncPositionFilter.
+   *
+   * @param operation the comparison
+   * @param left the left operand
+   * @param right the right operand
+   * @param operator the operator, for the list of rewrites
+   * @return the position filter, or null if the operation is none of these
+   */
+  private Expression fusePosition(
+      final Operation operation, final Expression left, final Expression right, final String operator) {
+    final boolean swapped = isPosition(right) || right instanceof Mod;
+    final Expression position = swapped ? right : left;
+    final Expression other = swapped ? left : right;
+
+    final FuncPositionFilter filter;
+    final String description;
+    if (isPosition(position) && other instanceof XNumber number) {
+      final int kind;
+      if (operation instanceof Lt) {
+        kind = swapped ? FuncPositionFilter.GREATER : FuncPositionFilter.LESS;
+      }
+      else if (operation instanceof Lte) {
+        kind = swapped ? FuncPositionFilter.GREATER_OR_EQUAL : FuncPositionFilter.LESS_OR_EQUAL;
+      }
+      else if (operation instanceof Gt) {
+        kind = swapped ? FuncPositionFilter.LESS : FuncPositionFilter.GREATER;
+      }
+      else if (operation instanceof Gte) {
+        kind = swapped ? FuncPositionFilter.LESS_OR_EQUAL : FuncPositionFilter.GREATER_OR_EQUAL;
+      }
+      else if (operation instanceof Equals) {
+        kind = FuncPositionFilter.EQUALS;
+      }
+      else if (operation instanceof NotEquals) {
+        kind = FuncPositionFilter.NOT_EQUALS;
+      }
+      else {
+        return null;
+      }
+      filter = new FuncPositionFilter(kind, number.num(), 0);
+      description = swapped
+          ? describe(other) + " " + operator + " position()"
+          : "position() " + operator + " " + describe(other);
+    }
+    else if (operation instanceof Equals
+        && isPosition(position)
+        && null != other
+        && other.getClass() == FuncLast.class) {
+      filter = new FuncPositionFilter(FuncPositionFilter.LAST, 0, 0);
+      description = "position() = last()";
+    }
+    else if (operation instanceof Equals
+        && position instanceof Mod mod
+        && isPosition(mod.getLeftOperand())
+        && mod.getRightOperand() instanceof XNumber divisor
+        && other instanceof XNumber remainder) {
+      filter = new FuncPositionFilter(FuncPositionFilter.STRIDE, remainder.num(), divisor.num());
+      description = "position() mod " + describe(divisor) + " = " + describe(remainder);
+    }
+    else {
+      return null;
+    }
+
+    filter.postCompileStep(this);
+    addRewrite(description + " -> position filter");
+    return filter;
+  }
+
+  private static boolean isPosition(final Expression expr) {
+    return null != expr && expr.getClass() == FuncPosition.class;
+  }
+
+  private static String getOperator(final int op) {
+    switch (op) {
+      case OpCodes.OP_OR:
+        return "or";
+      case OpCodes.OP_AND:
+        return "and";
+      case OpCodes.OP_NOTEQUALS:
+        return "!=";
+      case OpCodes.OP_EQUALS:
+        return "=";
+      case OpCodes.OP_LTE:
+        return "<=";
+      case OpCodes.OP_LT:
+        return "<";
+      case OpCodes.OP_GTE:
+        return ">=";
+      case OpCodes.OP_GT:
+        return ">";
+      case OpCodes.OP_PLUS:
+        return "+";
+      case OpCodes.OP_MINUS:
+        return "-";
+      case OpCodes.OP_MULT:
+        return "*";
+      case OpCodes.OP_DIV:
+        return "div";
+      case OpCodes.OP_MOD:
+        return "mod";
+      default:
+        return Integer.toString(op);
+    }
+  }
+
   /**
    * Bottleneck compilation of a unary operation.
    *
@@ -212,11 +432,31 @@ public class Compiler extends OpMap {
 
     final int rightPos = getFirstChildPos(opPos);
 
-    unary.setRight(compile(rightPos));
+    final Expression right = compile(rightPos);
+    unary.setRight(right);
+
+    if (isConstant(right)) {
+      return fold(unary, describeUnary(getOp(opPos), describe(right)));
+    }
 
     return unary;
   }
 
+  private static String describeUnary(final int op, final String operand) {
+    switch (op) {
+      case OpCodes.OP_NEG:
+        return "-" + operand;
+      case OpCodes.OP_STRING:
+        return "string(" + operand + ")";
+      case OpCodes.OP_BOOL:
+        return "boolean(" + operand + ")";
+      case OpCodes.OP_NUMBER:
+        return "number(" + operand + ")";
+      default:
+        return operand;
+    }
+  }
+
   /**
    * Compile an 'or' operation.
    *
@@ -414,7 +654,7 @@ public class Compiler extends OpMap {
 
     opPos = getFirstChildPos(opPos);
 
-    return (XString) getTokenQueue().get(getOp(opPos));
+    return (XString) getToken(getOp(opPos));
   }
 
   /**
@@ -427,7 +667,7 @@ public class Compiler extends OpMap {
 
     opPos = getFirstChildPos(opPos);
 
-    return (XNumber) getTokenQueue().get(getOp(opPos));
+    return (XNumber) getToken(getOp(opPos));
   }
 
   /**
@@ -509,6 +749,29 @@ public class Compiler extends OpMap {
     }
   }
 
+  /**
+   * Compile one step of a location path as a relative location path of its own, with its
+   * predicates. The step is copied to the end of the op map.
+   *
+   * @param stepPos The position of the step in the m_opMap array.
+   * @return reference to {@link org.htmlunit.xpath.axes.LocPathIterator} instance.
+   * @throws TransformerException if an error occurs creating the Expression.
+   */
+  public Expression locationStep(final int stepPos) throws TransformerException {
+    final int stepLength = getNextStepPos(stepPos) - stepPos;
+    final int pathPos = getOp(MAPINDEX_LENGTH);
+
+    setOp(pathPos, OpCodes.OP_LOCATIONPATH);
+    setOp(pathPos + MAPINDEX_LENGTH, stepLength + 3);
+    for (int i = 0; i < stepLength; i++) {
+      setOp(pathPos + 2 + i, getOp(stepPos + i));
+    }
+    setOp(pathPos + 2 + stepLength, OpCodes.ENDOP);
+    setOp(MAPINDEX_LENGTH, pathPos + stepLength + 3);
+
+    return locationPath(pathPos);
+  }
+
   /**
    * Compile a location step predicate expression.
    *
@@ -517,7 +780,175 @@ public class Compiler extends OpMap {
    * @throws TransformerException if an error occurs creating the Expression.
    */
   public Expression predicate(final int opPos) throws TransformerException {
-    return compile(opPos + 2);
+    final boolean inInvariant = m_inInvariant;
+    m_predicateDepth++;
+    m_inInvariant = false;
+    try {
+      return compile(opPos + 2);
+    }
+    finally {
+      m_predicateDepth--;
+      m_inInvariant = inInvariant;
+    }
+  }
+
+  /** The number of predicates being compiled. */
+  private int m_predicateDepth = 0;
+
+  /** True while the children of an {@link Invariant} are compiled. */
+  private boolean m_inInvariant = false;
+
+  /** The expression depends on the context node, position or size. */
+  private static final int DEPENDENT = 0;
+
+  /** The expression does not depend on the context. */
+  private static final int INVARIANT = 1;
+
+  /** The expression does not depend on the context and selects nodes from the root. */
+  private static final int INVARIANT_PATH = 2;
+
+  /** The invariance by op map position plus one, 0 if not analyzed yet. */
+  private byte[] m_invariance;
+
+  /**
+   * Find out if the expression at the given position can be evaluated without the context node,
+   * position and size. Only expressions that contain an absolute location path are worth to be
+   * evaluated once, so these are told apart from literals and the like. Every subtree is analyzed
+   * only once, the predicates compile their subexpressions one by one.
+   *
+   * @param opPos The current position in the m_opMap array.
+   * @return {@link #DEPENDENT}, {@link #INVARIANT} or {@link #INVARIANT_PATH}
+   */
+  private int analyzeInvariance(final int opPos) {
+    if (null == m_invariance) {
+      m_invariance = new byte[getOp(OpMap.MAPINDEX_LENGTH)];
+    }
+    if (opPos >= m_invariance.length) {
+      return computeInvariance(opPos);
+    }
+    if (0 == m_invariance[opPos]) {
+      m_invariance[opPos] = (byte) (computeInvariance(opPos) + 1);
+    }
+    return m_invariance[opPos] - 1;
+  }
+
+  private int computeInvariance(int opPos) {
+    switch (getOp(opPos)) {
+      case OpCodes.OP_XPATH:
+      case OpCodes.OP_GROUP:
+      case OpCodes.OP_ARGUMENT:
+      case OpCodes.OP_STRING:
+      case OpCodes.OP_BOOL:
+      case OpCodes.OP_NUMBER:
+      case OpCodes.OP_NEG:
+        return analyzeInvariance(getFirstChildPos(opPos));
+      case OpCodes.OP_OR:
+      case OpCodes.OP_AND:
+      case OpCodes.OP_NOTEQUALS:
+      case OpCodes.OP_EQUALS:
+      case OpCodes.OP_LTE:
+      case OpCodes.OP_LT:
+      case OpCodes.OP_GTE:
+      case OpCodes.OP_GT:
+      case OpCodes.OP_PLUS:
+      case OpCodes.OP_MINUS:
+      case OpCodes.OP_MULT:
+      case OpCodes.OP_DIV:
+      case OpCodes.OP_MOD:
+        final int leftPos = getFirstChildPos(opPos);
+        return combineInvariance(analyzeInvariance(leftPos), analyzeInvariance(getNextOpPos(leftPos)));
+      case OpCodes.OP_LITERAL:
+      case OpCodes.OP_NUMBERLIT:
+        return INVARIANT;
+      case OpCodes.OP_UNION:
+        int result = INVARIANT;
+        for (opPos = getFirstChildPos(opPos); isUnionMember(getOp(opPos)); opPos = getNextOpPos(opPos)) {
+          result = combineInvariance(result, analyzeInvariance(opPos));
+        }
+        return result;
+      case OpCodes.OP_LOCATIONPATH:
+        final int stepPos = getFirstChildPos(opPos);
+        final int stepType = getOp(stepPos);
+        if (OpCodes.FROM_ROOT == stepType) {
+          return INVARIANT_PATH;
+        }
+        if (OpCodes.OP_GROUP == stepType || OpCodes.OP_FUNCTION == stepType) {
+          // the steps after a filter expression only depend on the nodes it selects
+          return DEPENDENT == analyzeInvariance(stepPos) ? DEPENDENT : INVARIANT_PATH;
+        }
+        return DEPENDENT;
+      case OpCodes.OP_FUNCTION:
+        return analyzeFunctionInvariance(opPos);
+      default:
+        return DEPENDENT;
+    }
+  }
+
+  private static boolean isUnionMember(final int op) {
+    return OpCodes.OP_LOCATIONPATH == op
+        || OpCodes.OP_FUNCTION == op
+        || OpCodes.OP_GROUP == op
+        || OpCodes.OP_VARIABLE == op;
+  }
+
+  private static int combineInvariance(final int left, final int right) {
+    if (DEPENDENT == left || DEPENDENT == right) {
+      return DEPENDENT;
+    }
+    return Math.max(left, right);
+  }
+
+  private int analyzeFunctionInvariance(final int opPos) {
+    final int endFunc = opPos + getOp(opPos + 1) - 1;
+    final int funcPos = getFirstChildPos(opPos);
+    final int argPos = funcPos + 1;
+    final boolean hasArgs = argPos < endFunc;
+
+    switch (getOp(funcPos)) {
+      case FunctionTable.FUNC_LAST:
+      case FunctionTable.FUNC_POSITION:
+      case FunctionTable.FUNC_LANG:
+        return DEPENDENT;
+      case FunctionTable.FUNC_LOCAL_PART:
+      case FunctionTable.FUNC_NAMESPACE:
+      case FunctionTable.FUNC_QNAME:
+      case FunctionTable.FUNC_NUMBER:
+      case FunctionTable.FUNC_STRING:
+      case FunctionTable.FUNC_NORMALIZE_SPACE:
+      case FunctionTable.FUNC_STRING_LENGTH:
+        // without argument these work on the context node
+        if (!hasArgs) {
+          return DEPENDENT;
+        }
+        break;
+      case FunctionTable.FUNC_COUNT:
+      case FunctionTable.FUNC_ID:
+      case FunctionTable.FUNC_NOT:
+      case FunctionTable.FUNC_TRUE:
+      case FunctionTable.FUNC_FALSE:
+      case FunctionTable.FUNC_BOOLEAN:
+      case FunctionTable.FUNC_FLOOR:
+      case FunctionTable.FUNC_CEILING:
+      case FunctionTable.FUNC_ROUND:
+      case FunctionTable.FUNC_SUM:
+      case FunctionTable.FUNC_STARTS_WITH:
+      case FunctionTable.FUNC_CONTAINS:
+      case FunctionTable.FUNC_SUBSTRING_BEFORE:
+      case FunctionTable.FUNC_SUBSTRING_AFTER:
+      case FunctionTable.FUNC_TRANSLATE:
+      case FunctionTable.FUNC_CONCAT:
+      case FunctionTable.FUNC_SUBSTRING:
+        break;
+      default:
+        // functions installed later, we know nothing about them
+        return DEPENDENT;
+    }
+
+    int result = INVARIANT;
+    for (int p = argPos; p < endFunc; p = getNextOpPos(p)) {
+      result = combineInvariance(result, analyzeInvariance(p));
+    }
+    return result;
   }
 
   /**
@@ -813,10 +1244,196 @@ public class Compiler extends OpMap {
   private void compilePredicates(int opPos, final Expression[] predicates)
       throws TransformerException {
 
+    final int[] costs = new int[predicates.length];
     for (int i = 0; OpCodes.OP_PREDICATE == getOp(opPos); i++) {
       predicates[i] = predicate(opPos);
+      costs[i] = estimateCost(opPos + 2);
       opPos = getNextOpPos(opPos);
     }
+
+    // the predicates between two positional ones filter the same node-set, their order does not
+    // matter for the result; test the cheap ones first
+    boolean reordered = false;
+    int start = 0;
+    for (int i = 0; i <= predicates.length; i++) {
+      if (i == predicates.length || HasPositionalPredChecker.isPositional(predicates[i])) {
+        reordered |= sortByCost(predicates, costs, start, i);
+        start = i + 1;
+      }
+    }
+    if (reordered) {
+      addRewrite("predicates reordered by cost");
+    }
+  }
+
+  /**
+   * Stable sort of a range of predicates by their costs.
+   *
+   * @param predicates the predicates
+   * @param costs the costs of the predicates
+   * @param from the first predicate of the range
+   * @param to the end of the range, exclusive
+   * @return true if the order changed
+   */
+  private static boolean sortByCost(final Expression[] predicates, final int[] costs, final int from, final int to) {
+    boolean moved = false;
+    for (int i = from + 1; i < to; i++) {
+      final Expression pred = predicates[i];
+      final int cost = costs[i];
+      int j = i;
+      while (j > from && costs[j - 1] > cost) {
+        predicates[j] = predicates[j - 1];
+        costs[j] = costs[j - 1];
+        moved = true;
+        j--;
+      }
+      predicates[j] = pred;
+      costs[j] = cost;
+    }
+    return moved;
+  }
+
+  /** The estimated costs by op map position plus one, 0 if not estimated yet. */
+  private int[] m_costs;
+
+  /**
+   * Estimate the cost of evaluating the expression at the given position for one context node, see
+   * {@link CostModel}. The cost of every subtree is estimated only once.
+   *
+   * @param opPos The current position in the m_opMap array.
+   * @return the estimated cost, the unit is arbitrary
+   * @throws TransformerException if an error occurs reading the op map.
+   */
+  private int estimateCost(final int opPos) throws TransformerException {
+    if (null == m_costs) {
+      m_costs = new int[getOp(OpMap.MAPINDEX_LENGTH)];
+    }
+    if (opPos >= m_costs.length) {
+      return computeCost(opPos);
+    }
+    if (0 == m_costs[opPos]) {
+      m_costs[opPos] = computeCost(opPos) + 1;
+    }
+    return m_costs[opPos] - 1;
+  }
+
+  private int computeCost(final int opPos) throws TransformerException {
+    switch (getOp(opPos)) {
+      case OpCodes.OP_XPATH:
+      case OpCodes.OP_GROUP:
+      case OpCodes.OP_ARGUMENT:
+      case OpCodes.OP_NEG:
+      case OpCodes.OP_BOOL:
+        return estimateCost(getFirstChildPos(opPos));
+      case OpCodes.OP_STRING:
+      case OpCodes.OP_NUMBER:
+        return estimateCost(getFirstChildPos(opPos)) + getStringValueCost(getFirstChildPos(opPos));
+      case OpCodes.OP_OR:
+      case OpCodes.OP_AND:
+        final int leftPos = getFirstChildPos(opPos);
+        return estimateCost(leftPos) + estimateCost(getNextOpPos(leftPos));
+      case OpCodes.OP_NOTEQUALS:
+      case OpCodes.OP_EQUALS:
+      case OpCodes.OP_LTE:
+      case OpCodes.OP_LT:
+      case OpCodes.OP_GTE:
+      case OpCodes.OP_GT:
+      case OpCodes.OP_PLUS:
+      case OpCodes.OP_MINUS:
+      case OpCodes.OP_MULT:
+      case OpCodes.OP_DIV:
+      case OpCodes.OP_MOD:
+        final int firstPos = getFirstChildPos(opPos);
+        final int secondPos = getNextOpPos(firstPos);
+        return estimateCost(firstPos)
+            + getStringValueCost(firstPos)
+            + estimateCost(secondPos)
+            + getStringValueCost(secondPos);
+      case OpCodes.OP_LITERAL:
+      case OpCodes.OP_NUMBERLIT:
+        return 0;
+      case OpCodes.OP_UNION:
+        int cost = 0;
+        for (int p = getFirstChildPos(opPos); isUnionMember(getOp(p)); p = getNextOpPos(p)) {
+          cost += estimateCost(p);
+        }
+        return cost;
+      case OpCodes.OP_LOCATIONPATH:
+        if (INVARIANT_PATH == analyzeInvariance(opPos)) {
+          // evaluated once, see Invariant
+          return CostModel.COST_ATTRIBUTE;
+        }
+        return estimatePathCost(opPos);
+      case OpCodes.OP_FUNCTION:
+        return estimateFunctionCost(opPos);
+      default:
+        return CostModel.COST_STEP;
+    }
+  }
+
+  private int estimatePathCost(final int opPos) throws TransformerException {
+    int cost = 0;
+    int stepPos = getFirstChildPos(opPos);
+    int stepType;
+    while (OpCodes.ENDOP != (stepType = getOp(stepPos))) {
+      if (OpCodes.OP_FUNCTION == stepType || OpCodes.OP_GROUP == stepType || OpCodes.OP_VARIABLE == stepType) {
+        cost += estimateCost(stepPos);
+      }
+      else {
+        cost += CostModel.getStepCost(WalkerFactory.getAxisFromStep(this, stepPos));
+      }
+
+      for (int p = getFirstPredicateOpPos(stepPos); OpCodes.OP_PREDICATE == getOp(p); p = getNextOpPos(p)) {
+        cost += estimateCost(p + 2);
+      }
+
+      stepPos = getNextStepPos(stepPos);
+      if (stepPos < 0) {
+        break;
+      }
+    }
+    return cost;
+  }
+
+  private int estimateFunctionCost(final int opPos) throws TransformerException {
+    final int endFunc = opPos + getOp(opPos + 1) - 1;
+    final int funcPos = getFirstChildPos(opPos);
+    final boolean hasArgs = funcPos + 1 < endFunc;
+
+    final int funcID = getOp(funcPos);
+    final boolean stringValues = CostModel.usesStringValues(funcID);
+    int cost = CostModel.getFunctionCost(funcID, hasArgs);
+
+    for (int p = funcPos + 1; p < endFunc; p = getNextOpPos(p)) {
+      cost += estimateCost(p);
+      if (stringValues) {
+        cost += getStringValueCost(p);
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * @param opPos The current position in the m_opMap array.
+   * @return the cost of the string values of the nodes selected by the expression, 0 if the
+   *     expression is no location path or selects attributes
+   * @throws TransformerException if an error occurs reading the op map.
+   */
+  private int getStringValueCost(int opPos) throws TransformerException {
+    while (OpCodes.OP_ARGUMENT == getOp(opPos) || OpCodes.OP_GROUP == getOp(opPos)) {
+      opPos = getFirstChildPos(opPos);
+    }
+    if (OpCodes.OP_LOCATIONPATH != getOp(opPos)) {
+      return 0;
+    }
+
+    int lastStepPos = -1;
+    int stepPos = getFirstChildPos(opPos);
+    while (stepPos >= 0 && OpCodes.ENDOP != getOp(stepPos)) {
+      lastStepPos = stepPos;
+      stepPos = getNextStepPos(stepPos);
+    }
+    return lastStepPos < 0 ? 0 : CostModel.getStringValueCost(WalkerFactory.getAxisFromStep(this, lastStepPos));
   }
 
   /**
@@ -849,6 +1466,7 @@ public class Compiler extends OpMap {
 
       func.postCompileStep(this);
 
+      final List<Expression> args = new ArrayList<>();
       try {
         int i = 0;
 
@@ -856,7 +1474,9 @@ public class Compiler extends OpMap {
 
           // System.out.println("argPos: "+ p);
           // System.out.println("argCode: "+ m_opMap[p]);
-          func.setArg(compile(p), i);
+          final Expression arg = compile(p);
+          args.add(arg);
+          func.setArg(arg, i);
         }
 
         func.checkNumberArgs(i);
@@ -867,12 +1487,262 @@ public class Compiler extends OpMap {
         error(XPATHErrorResources.ER_ONLY_ALLOWS, new Object[] {name, wnae.getMessage()});
       }
 
-      return func;
+      return simplifyFunction(func, funcID, args);
     }
     error(XPATHErrorResources.ER_FUNCTION_TOKEN_NOT_FOUND, null);
     return null;
   }
 
+  /**
+   * Fold a call of a function without side effects and with constant arguments, and simplify
+   * redundant boolean conversions.
+   *
+   * @param func the compiled function, the arguments are already set
+   * @param funcID the id of the function in the function table
+   * @param args the compiled arguments
+   * @return the function or the simplified expression
+   * @throws TransformerException if an error occurs creating the Expression.
+   */
+  private Expression simplifyFunction(final Function func, final int funcID, final List<Expression> args)
+      throws TransformerException {
+    if (isFoldable(funcID, args.size()) && args.stream().allMatch(Compiler::isConstant)) {
+      final StringBuilder call = new StringBuilder(m_functionTable.getXPathFunctionName(funcID)).append('(');
+      for (int i = 0; i < args.size(); i++) {
+        if (i > 0) {
+          call.append(", ");
+        }
+        call.append(describe(args.get(i)));
+      }
+      return fold(func, call.append(')').toString());
+    }
+
+    if (!args.isEmpty() && args.get(0) instanceof FuncNormalizeSpace normalizeSpace) {
+      final String name = m_functionTable.getXPathFunctionName(funcID);
+      if ((FunctionTable.FUNC_CONTAINS == funcID || FunctionTable.FUNC_STARTS_WITH == funcID)
+          && args.get(1) instanceof XString literal) {
+        addRewrite(name + "(normalize-space(x), " + describe(literal) + ") -> fused comparison");
+        return new FuncNormalizeSpaceCompare(
+            normalizeSpace,
+            FunctionTable.FUNC_CONTAINS == funcID
+                ? FuncNormalizeSpaceCompare.CONTAINS
+                : FuncNormalizeSpaceCompare.STARTS_WITH,
+            literal.str());
+      }
+      if (FunctionTable.FUNC_NOT == funcID || FunctionTable.FUNC_BOOLEAN == funcID) {
+        addRewrite(name + "(normalize-space(x)) -> fused comparison");
+        return new FuncNormalizeSpaceCompare(
+            normalizeSpace,
+            FunctionTable.FUNC_NOT == funcID
+                ? FuncNormalizeSpaceCompare.EMPTY
+                : FuncNormalizeSpaceCompare.NOT_EMPTY,
+            "");
+      }
+    }
+
+    if (FunctionTable.FUNC_NOT == funcID) {
+      final Expression arg = args.get(0);
+      if (arg instanceof FuncNot) {
+        final Expression x = ((FuncNot) arg).getArg0();
+        if (isBooleanTyped(x)) {
+          addRewrite("not(not(x)) -> x");
+          return x;
+        }
+
+        addRewrite("not(not(x)) -> boolean(x)");
+        final Function bool = m_functionTable.getFunction(FunctionTable.FUNC_BOOLEAN);
+        setArg(bool, x);
+        return bool;
+      }
+      if (arg instanceof FuncBoolean) {
+        addRewrite("not(boolean(x)) -> not(x)");
+        setArg(func, ((FuncBoolean) arg).getArg0());
+      }
+    }
+    else if (FunctionTable.FUNC_BOOLEAN == funcID) {
+      final Expression arg = args.get(0);
+      if (isBooleanTyped(arg)) {
+        addRewrite("boolean(x) -> x");
+        return arg;
+      }
+    }
+
+    return func;
+  }
+
+  private void setArg(final Function func, final Expression arg) throws TransformerException {
+    try {
+      func.setArg(arg, 0);
+    }
+    catch (final WrongNumberArgsException wnae) {
+      error(XPATHErrorResources.ER_ONLY_ALLOWS, new Object[] {"boolean", wnae.getMessage()});
+    }
+  }
+
+  /**
+   * @param funcID the id of the function in the function table
+   * @param argCount the number of arguments
+   * @return true if the function gives the same result for the same arguments, no matter the context
+   */
+  private static boolean isFoldable(final int funcID, final int argCount) {
+    switch (funcID) {
+      case FunctionTable.FUNC_TRUE:
+      case FunctionTable.FUNC_FALSE:
+        return true;
+      case FunctionTable.FUNC_NOT:
+      case FunctionTable.FUNC_BOOLEAN:
+      case FunctionTable.FUNC_NUMBER:
+      case FunctionTable.FUNC_FLOOR:
+      case FunctionTable.FUNC_CEILING:
+      case FunctionTable.FUNC_ROUND:
+      case FunctionTable.FUNC_STRING:
+      case FunctionTable.FUNC_STARTS_WITH:
+      case FunctionTable.FUNC_CONTAINS:
+      case FunctionTable.FUNC_SUBSTRING_BEFORE:
+      case FunctionTable.FUNC_SUBSTRING_AFTER:
+      case FunctionTable.FUNC_NORMALIZE_SPACE:
+      case FunctionTable.FUNC_TRANSLATE:
+      case FunctionTable.FUNC_CONCAT:
+      case FunctionTable.FUNC_SUBSTRING:
+      case FunctionTable.FUNC_STRING_LENGTH:
+        // without argument some of these work on the context node
+        return argCount > 0;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @param expr the expression
+   * @return true if the expression is a number, string or boolean literal
+   */
+  private static boolean isConstant(final Expression expr) {
+    if (expr instanceof XObject) {
+      final int type = ((XObject) expr).getType();
+      return XObject.CLASS_BOOLEAN == type || XObject.CLASS_NUMBER == type || XObject.CLASS_STRING == type;
+    }
+    return false;
+  }
+
+  /**
+   * @param expr the expression
+   * @param value the value
+   * @return true if the expression is the given boolean literal
+   */
+  private static boolean isBoolean(final Expression expr, final boolean value) {
+    return expr instanceof XBoolean && ((XBoolean) expr).bool() == value;
+  }
+
+  /**
+   * @param expr the expression
+   * @return true if the expression always evaluates to a boolean
+   */
+  private static boolean isBooleanTyped(final Expression expr) {
+    return expr instanceof XBoolean
+        || expr instanceof Or
+        || expr instanceof And
+        || expr instanceof Equals
+        || expr instanceof NotEquals
+        || expr instanceof Lt
+        || expr instanceof Lte
+        || expr instanceof Gt
+        || expr instanceof Gte
+        || expr instanceof Bool
+        || expr instanceof FuncNot
+        || expr instanceof FuncBoolean
+        || expr instanceof FuncStartsWith
+        || expr instanceof FuncContains
+        || expr instanceof FuncLang;
+  }
+
+  /**
+   * Drop a boolean() call around an operand that is converted to boolean anyway.
+   *
+   * @param expr the operand
+   * @return the argument of boolean() or the operand
+   */
+  private Expression stripBoolean(final Expression expr) {
+    if (expr instanceof FuncBoolean) {
+      addRewrite("boolean(x) -> x");
+      return ((FuncBoolean) expr).getArg0();
+    }
+    return expr;
+  }
+
+  /**
+   * Evaluate an expression with constant operands at compile time.
+   *
+   * @param expr the expression
+   * @param description the expression as text, for the list of rewrites
+   * @return the literal holding the result, or the expression if it can not be evaluated now; the
+   *     error is raised again at runtime then
+   */
+  private Expression fold(final Expression expr, final String description) {
+    if (null == m_foldContext) {
+      m_foldContext = new XPathContext(false);
+    }
+
+    final XObject literal;
+    try {
+      final XObject value = expr.execute(m_foldContext);
+
+      // never share the constants of the result classes, the literal gets a parent
+      switch (value.getType()) {
+        case XObject.CLASS_BOOLEAN:
+          literal = new XBoolean(value.bool());
+          break;
+        case XObject.CLASS_NUMBER:
+          literal = new XNumber(value.num());
+          break;
+        case XObject.CLASS_STRING:
+          literal = new XString(value.str());
+          break;
+        default:
+          return expr;
+      }
+    }
+    catch (final TransformerException | RuntimeException e) {
+      return expr;
+    }
+
+    addRewrite(description + " -> " + describe(literal));
+    return literal;
+  }
+
+  private static String describe(final Expression expr) {
+    if (expr instanceof XBoolean) {
+      return ((XBoolean) expr).bool() ? "true()" : "false()";
+    }
+    if (expr instanceof XNumber) {
+      return ((XNumber) expr).str();
+    }
+    if (expr instanceof XString) {
+      final String str = ((XString) expr).str();
+      return str.indexOf('\'') < 0 ? "'" + str + "'" : "\"" + str + "\"";
+    }
+    return "x";
+  }
+
+  private void addRewrite(final String rewrite) {
+    m_rewrites.add(rewrite);
+  }
+
+  /**
+   * Get the rewrites the compiler applied, in the order they fired. Constant subexpressions are
+   * folded, like <code>1 + 2 -&gt; 3</code>, and redundant boolean conversions dropped, like <code>
+   * not(not(x)) -&gt; boolean(x)</code>.
+   *
+   * @return the rewrites as text
+   */
+  public List<String> getRewrites() {
+    return Collections.unmodifiableList(m_rewrites);
+  }
+
+  /** The rewrites applied so far. */
+  private final List<String> m_rewrites = new ArrayList<>();
+
+  /** The context constant subexpressions are evaluated in, created on first use. */
+  private XPathContext m_foldContext;
+
   /** {@inheritDoc} */
   @Override
   public void error(final String msg, final Object[] args) throws TransformerException {
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.compiler;
+
+import org.htmlunit.xpath.functions.FuncNormalizeSpaceCompare;
+import org.htmlunit.xpath.functions.FuncPositionFilter;
+import org.htmlunit.xpath.functions.Function;
+import org.htmlunit.xpath.xml.dtm.Axis;
+
+/**
+ * The cost model the {@link Compiler} orders the terms of and/or and the predicates of a step by,
+ * and {@link org.htmlunit.xpath.XPathPlan} reports. The cost is a rough estimate of the work for
+ * one context node: attribute steps are cheaper than name tests, these are cheaper than string
+ * values, and these are cheaper than steps to other nodes. The unit is arbitrary.
+ *
+ * <p>This class is used by the engine only and may change without notice.
+ */
+public final class CostModel {
+
+  /** Cost of a step to the attributes or namespaces. */
+  public static final int COST_ATTRIBUTE = 1;
+
+  /** Cost of a step to the node itself or its parent, or of a name of the context node. */
+  public static final int COST_NAME = 2;
+
+  /** Cost of the string value of a node, the text of a whole subtree may have to be concatenated. */
+  public static final int COST_STRING_VALUE = 4;
+
+  /** Cost of a step to the nodes next to the context node. */
+  public static final int COST_STEP = 8;
+
+  /** Cost of a step that may visit a big part of the document. */
+  public static final int COST_DEEP_STEP = 16;
+
+  private CostModel() {
+  }
+
+  /**
+   * @param axis the axis of the step, one of {@link Axis}
+   * @return the cost of the step, without its node test and predicates
+   */
+  public static int getStepCost(final int axis) {
+    switch (axis) {
+      case Axis.ATTRIBUTE:
+      case Axis.NAMESPACE:
+        return COST_ATTRIBUTE;
+      case Axis.SELF:
+      case Axis.PARENT:
+      case Axis.ROOT:
+        return COST_NAME;
+      case Axis.CHILD:
+      case Axis.FOLLOWINGSIBLING:
+      case Axis.PRECEDINGSIBLING:
+      case Axis.ANCESTOR:
+      case Axis.ANCESTORORSELF:
+        return COST_STEP;
+      default:
+        return COST_DEEP_STEP;
+    }
+  }
+
+  /**
+   * @param axis the axis of the last step of a location path, one of {@link Axis}
+   * @return the cost of the string values of the nodes the path selects, 0 for attributes
+   */
+  public static int getStringValueCost(final int axis) {
+    return Axis.ATTRIBUTE == axis || Axis.NAMESPACE == axis ? 0 : COST_STRING_VALUE;
+  }
+
+  /**
+   * @param funcID the function ID, one of the FUNC_XXX values of {@link FunctionTable} or an ID
+   *     installed later
+   * @param hasArgs true if the function is called with arguments
+   * @return the cost of the function itself, without its arguments
+   */
+  public static int getFunctionCost(final int funcID, final boolean hasArgs) {
+    switch (funcID) {
+      case FunctionTable.FUNC_LOCAL_PART:
+      case FunctionTable.FUNC_NAMESPACE:
+      case FunctionTable.FUNC_QNAME:
+        // without argument these work on the context node
+        return hasArgs ? 0 : COST_NAME;
+      case FunctionTable.FUNC_NUMBER:
+      case FunctionTable.FUNC_STRING:
+      case FunctionTable.FUNC_NORMALIZE_SPACE:
+      case FunctionTable.FUNC_STRING_LENGTH:
+        return hasArgs ? 0 : COST_STRING_VALUE;
+      case FunctionTable.FUNC_LANG:
+      case FunctionTable.FUNC_ID:
+        return COST_STEP;
+      case FunctionTable.FUNC_LAST:
+      case FunctionTable.FUNC_POSITION:
+      case FunctionTable.FUNC_COUNT:
+      case FunctionTable.FUNC_NOT:
+      case FunctionTable.FUNC_BOOLEAN:
+      case FunctionTable.FUNC_TRUE:
+      case FunctionTable.FUNC_FALSE:
+      case FunctionTable.FUNC_FLOOR:
+      case FunctionTable.FUNC_CEILING:
+      case FunctionTable.FUNC_ROUND:
+      case FunctionTable.FUNC_SUM:
+      case FunctionTable.FUNC_STARTS_WITH:
+      case FunctionTable.FUNC_CONTAINS:
+      case FunctionTable.FUNC_SUBSTRING_BEFORE:
+      case FunctionTable.FUNC_SUBSTRING_AFTER:
+      case FunctionTable.FUNC_TRANSLATE:
+      case FunctionTable.FUNC_CONCAT:
+      case FunctionTable.FUNC_SUBSTRING:
+        return 0;
+      default:
+        // functions installed later, we know nothing about them
+        return COST_STEP;
+    }
+  }
+
+  /**
+   * @param funcID the function ID, one of the FUNC_XXX values of {@link FunctionTable} or an ID
+   *     installed later
+   * @return true if the function needs the string values of the nodes of node-set arguments
+   */
+  public static boolean usesStringValues(final int funcID) {
+    switch (funcID) {
+      case FunctionTable.FUNC_LAST:
+      case FunctionTable.FUNC_POSITION:
+      case FunctionTable.FUNC_COUNT:
+      case FunctionTable.FUNC_NOT:
+      case FunctionTable.FUNC_BOOLEAN:
+      case FunctionTable.FUNC_LOCAL_PART:
+      case FunctionTable.FUNC_NAMESPACE:
+      case FunctionTable.FUNC_QNAME:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * @param function a compiled function
+   * @return the ID the function is estimated as, -1 if it is no built-in function
+   */
+  public static int getFunctionID(final Function function) {
+    // the compiler fuses some calls, these cost what the function they replace costs
+    if (function instanceof FuncNormalizeSpaceCompare) {
+      return FunctionTable.FUNC_NORMALIZE_SPACE;
+    }
+    if (function instanceof FuncPositionFilter) {
+      return FunctionTable.FUNC_POSITION;
+    }
+    return FunctionTable.getBuiltInFunctionID(function.getClass());
+  }
+}
@@ -18,6 +18,7 @@
 package org.htmlunit.xpath.compiler;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import javax.xml.transform.TransformerException;
 
@@ -203,6 +204,36 @@ public class FunctionTable {
     return m_functions_customer[funcID - NUM_BUILT_IN_FUNCS].getName();
   }
 
+  /**
+   * Return the ID of a built-in function.
+   *
+   * @param clazz The class of the function.
+   * @return The function ID, or -1 if the class is no built-in function.
+   */
+  static int getBuiltInFunctionID(final Class<?> clazz) {
+    for (int i = 0; i < NUM_BUILT_IN_FUNCS; i++) {
+      if (m_functions[i] == clazz) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Return the name of a built-in function as used in XPath expressions.
+   *
+   * @param funcID The function ID.
+   * @return The name of the function, or the class name for functions installed later.
+   */
+  String getXPathFunctionName(final int funcID) {
+    for (final Map.Entry<String, Integer> entry : m_functionID.entrySet()) {
+      if (entry.getValue() == funcID) {
+        return entry.getKey();
+      }
+    }
+    return getFunctionName(funcID);
+  }
+
   /**
    * Obtain a new Function object from a function ID.
    *
@@ -40,13 +40,52 @@ class Lexer {
    */
   static final int TARGETEXTRA = 10000;
 
+  /** How many tokens back the lexer looks for a name to share. */
+  private static final int SHARED_NAMES_WINDOW = 64;
+
+  /** The tokens of a single ASCII char. */
+  private static final String[] CHARS = new String[128];
+
   /**
-   * Ignore this, it is going away. This holds a map to the m_tokenQueue that tells where the
-   * top-level elements are. It is used for pattern matching so the m_tokenQueue can be walked
+   * Open addressing table of the names the lexer hands out without cutting them from the pattern:
+   * axes, node types, functions, operators and the element and attribute names found in most
+   * selectors.
+   */
+  private static final String[] KEYWORDS = new String[256];
+
+  static {
+    for (int i = 0; i < CHARS.length; i++) {
+      CHARS[i] = String.valueOf((char) i);
+    }
+
+    final String[] keywords = {
+      "ancestor", "ancestor-or-self", "attribute", "child", "descendant", "descendant-or-self",
+      "following", "following-sibling", "namespace", "parent", "preceding", "preceding-sibling",
+      "self", "..", "comment", "text", "processing-instruction", "node", "or", "and", "div",
+      "mod", "last", "position", "count", "id", "local-name", "namespace-uri", "name", "not",
+      "true", "false", "boolean", "lang", "number", "floor", "ceiling", "round", "sum", "string",
+      "starts-with", "contains", "substring-before", "substring-after",
+      "normalize-space", "translate", "concat", "substring", "string-length", "html", "head",
+      "body", "span", "table", "tbody", "tr", "td", "th", "ul", "ol", "li", "form", "input",
+      "select", "option", "button", "label", "img", "textarea", "class", "type", "value", "href",
+      "src", "title", "style"
+    };
+    for (final String keyword : keywords) {
+      int i = keyword.hashCode() & (KEYWORDS.length - 1);
+      while (null != KEYWORDS[i]) {
+        i = (i + 1) & (KEYWORDS.length - 1);
+      }
+      KEYWORDS[i] = keyword;
+    }
+  }
+
+  /**
+   * Ignore this, it is going away. This holds a map to the token queue that tells where the
+   * top-level elements are. It is used for pattern matching so the token queue can be walked
    * backwards. Each element that is a 'target', (right-most top level element name) has TARGETEXTRA
-   * added to it.
+   * added to it. Only needed to record the target strings, null otherwise.
    */
-  private int[] m_patternMap = new int[100];
+  private int[] m_patternMap;
 
   /** Ignore this, it is going away. The number of elements that m_patternMap maps; */
   private int m_patternMapSize;
@@ -76,15 +115,18 @@ class Lexer {
       throws javax.xml.transform.TransformerException {
 
     m_compiler.m_currentPattern = pat;
+    m_patternMap = null == targetStrings ? null : new int[100];
     m_patternMapSize = 0;
 
-    // This needs to grow too. Use a conservative estimate that the OpMapVector
-    // needs about five time the length of the input path expression - to a
-    // maximum of MAXTOKENQUEUESIZE*5. If the OpMapVector needs to grow, grow
-    // it freely (second argument to constructor).
-    final int initTokQueueSize = (Math.min(pat.length(), OpMap.MAXTOKENQUEUESIZE)) * 5;
-    m_compiler.m_opMap =
-        new OpMapVector(initTokQueueSize, OpMap.BLOCKTOKENQUEUESIZE * 5, OpMap.MAPINDEX_LENGTH);
+    // This needs to grow too. Most expressions need one to two ints of
+    // OpMapVector per char, short ones a few more, up to MAXTOKENQUEUESIZE*2.
+    // If the OpMapVector needs to grow, grow it by its initial size.
+    final int initOpMapSize = Math.min(pat.length(), OpMap.MAXTOKENQUEUESIZE) * 2 + 16;
+    m_compiler.m_opMap = new OpMapVector(initOpMapSize, initOpMapSize, OpMap.MAPINDEX_LENGTH);
+    // a token has at least one char, most have more
+    final int initTokens = pat.length() / 2 + 4;
+    m_compiler.m_tokens = new int[initTokens * OpMap.TOKEN_SIZE];
+    m_compiler.m_tokenValues = new Object[initTokens];
 
     final int nChars = pat.length();
     int startSubstring = -1;
@@ -112,7 +154,7 @@ class Lexer {
                 posOfNSSep = mapNSTokens(pat, startSubstring, posOfNSSep, i);
               }
               else {
-                addToTokenQueue(pat.substring(startSubstring, i));
+                addName(pat, startSubstring, i);
               }
             }
 
@@ -123,7 +165,7 @@ class Lexer {
             }
 
             if (c == '\"' && i < nChars) {
-              addToTokenQueue(pat.substring(startSubstring, i + 1));
+              addLiteral(pat, startSubstring, i + 1);
 
               startSubstring = -1;
             }
@@ -141,7 +183,7 @@ class Lexer {
               posOfNSSep = mapNSTokens(pat, startSubstring, posOfNSSep, i);
             }
             else {
-              addToTokenQueue(pat.substring(startSubstring, i));
+              addName(pat, startSubstring, i);
             }
           }
 
@@ -152,7 +194,7 @@ class Lexer {
           }
 
           if (c == '\'' && i < nChars) {
-            addToTokenQueue(pat.substring(startSubstring, i + 1));
+            addLiteral(pat, startSubstring, i + 1);
 
             startSubstring = -1;
           }
@@ -173,7 +215,7 @@ class Lexer {
               posOfNSSep = mapNSTokens(pat, startSubstring, posOfNSSep, i);
             }
             else {
-              addToTokenQueue(pat.substring(startSubstring, i));
+              addName(pat, startSubstring, i);
             }
 
             startSubstring = -1;
@@ -218,7 +260,7 @@ class Lexer {
               posOfNSSep = mapNSTokens(pat, startSubstring, posOfNSSep, i);
             }
             else {
-              addToTokenQueue(pat.substring(startSubstring, i));
+              addName(pat, startSubstring, i);
             }
 
             startSubstring = -1;
@@ -248,14 +290,14 @@ class Lexer {
             nesting++;
           }
 
-          addToTokenQueue(pat.substring(i, i + 1));
+          addName(pat, i, i + 1);
           break;
         case ':':
           if (i > 0) {
             if (posOfNSSep == (i - 1)) {
               if (startSubstring != -1) {
                 if (startSubstring < (i - 1)) {
-                    addToTokenQueue(pat.substring(startSubstring, i - 1));
+                    addName(pat, startSubstring, i - 1);
                 }
               }
 
@@ -264,7 +306,7 @@ class Lexer {
               startSubstring = -1;
               posOfNSSep = -1;
 
-              addToTokenQueue(pat.substring(i - 1, i + 1));
+              m_compiler.addToken(OpMap.TOKEN_AXIS_SEPARATOR, i - 1, i + 1, "::");
 
               break;
             }
@@ -292,7 +334,7 @@ class Lexer {
         posOfNSSep = mapNSTokens(pat, startSubstring, posOfNSSep, nChars);
       }
       else {
-        addToTokenQueue(pat.substring(startSubstring, nChars));
+        addName(pat, startSubstring, nChars);
       }
     }
 
@@ -310,7 +352,7 @@ class Lexer {
 
   /**
    * Record the current position on the token queue as long as this is a top-level element. Must be
-   * called before the next token is added to the m_tokenQueue.
+   * called before the next token is added to the token queue.
    *
    * @param nesting The nesting count for the pattern element.
    * @param isStart true if this is the start of a pattern.
@@ -320,19 +362,21 @@ class Lexer {
   private boolean mapPatternElemPos(final int nesting, boolean isStart, final boolean isAttrName) {
 
     if (0 == nesting) {
-      if (m_patternMapSize >= m_patternMap.length) {
-        final int[] patternMap = m_patternMap;
-        final int len = m_patternMap.length;
-        m_patternMap = new int[m_patternMapSize + 100];
-        System.arraycopy(patternMap, 0, m_patternMap, 0, len);
-      }
-      if (!isStart) {
-        m_patternMap[m_patternMapSize - 1] -= TARGETEXTRA;
-      }
-      m_patternMap[m_patternMapSize] =
-          (m_compiler.getTokenQueueSize() - (isAttrName ? 1 : 0)) + TARGETEXTRA;
+      if (null != m_patternMap) {
+        if (m_patternMapSize >= m_patternMap.length) {
+          final int[] patternMap = m_patternMap;
+          final int len = m_patternMap.length;
+          m_patternMap = new int[m_patternMapSize + 100];
+          System.arraycopy(patternMap, 0, m_patternMap, 0, len);
+        }
+        if (!isStart) {
+          m_patternMap[m_patternMapSize - 1] -= TARGETEXTRA;
+        }
+        m_patternMap[m_patternMapSize] =
+            (m_compiler.getTokenQueueSize() - (isAttrName ? 1 : 0)) + TARGETEXTRA;
 
-      m_patternMapSize++;
+        m_patternMapSize++;
+      }
 
       isStart = false;
     }
@@ -365,7 +409,7 @@ class Lexer {
     m_processor.m_queueMark = (mark > 0) ? ((mark <= qsz) ? mark - 1 : mark) : 0;
 
     if (m_processor.m_queueMark < qsz) {
-      m_processor.m_token = (String) m_compiler.getTokenQueue().get(m_processor.m_queueMark++);
+      m_processor.m_token = (String) m_compiler.getToken(m_processor.m_queueMark++);
       m_processor.m_tokenChar = m_processor.m_token.charAt(0);
     }
     else {
@@ -444,17 +488,79 @@ class Lexer {
         tokPos += 2;
       }
 
-      targetStrings.add((String) m_compiler.getTokenQueue().get(tokPos));
+      targetStrings.add((String) m_compiler.getToken(tokPos));
     }
   }
 
   /**
-   * Add a token to the token queue.
+   * Add a quoted literal to the token queue.
    *
-   * @param s The token.
+   * @param pat The XPath string.
+   * @param start The offset of the opening quote.
+   * @param end The offset after the closing quote.
    */
-  private void addToTokenQueue(final String s) {
-    m_compiler.getTokenQueue().add(s);
+  private void addLiteral(final String pat, final int start, final int end) {
+    m_compiler.addToken(OpMap.TOKEN_LITERAL, start, end, pat.substring(start, end));
+  }
+
+  /**
+   * Add a name, number or operator to the token queue. Single chars and the keywords come from a
+   * constant table, other names are shared with earlier tokens of the same expression, so a
+   * repeated name is cut from the pattern only once.
+   *
+   * @param pat The XPath string.
+   * @param start The offset of the first char of the token.
+   * @param end The offset after the token.
+   */
+  private void addName(final String pat, final int start, final int end) {
+    final int length = end - start;
+    if (1 == length) {
+      final char c = pat.charAt(start);
+      m_compiler.addToken(c, start, end, c < CHARS.length ? CHARS[c] : String.valueOf(c));
+      return;
+    }
+
+    String name = keyword(pat, start, length);
+    if (null == name) {
+      final int[] tokens = m_compiler.m_tokens;
+      final int size = m_compiler.getTokenQueueSize();
+      for (int i = size - 1; i >= Math.max(0, size - SHARED_NAMES_WINDOW) && null == name; i--) {
+        final int pos = i * OpMap.TOKEN_SIZE;
+        if (OpMap.TOKEN_NAME == tokens[pos]
+            && tokens[pos + 2] - tokens[pos + 1] == length
+            && pat.regionMatches(tokens[pos + 1], pat, start, length)) {
+          name = (String) m_compiler.getToken(i);
+        }
+      }
+      if (null == name) {
+        name = pat.substring(start, end);
+      }
+    }
+    m_compiler.addToken(OpMap.TOKEN_NAME, start, end, name);
+  }
+
+  /**
+   * Find a keyword without cutting it from the pattern.
+   *
+   * @param pat The XPath string.
+   * @param start The offset of the first char of the name.
+   * @param length The length of the name.
+   * @return the keyword, or null if the name is not one
+   */
+  private static String keyword(final String pat, final int start, final int length) {
+    int hash = 0;
+    for (int i = start; i < start + length; i++) {
+      hash = 31 * hash + pat.charAt(i);
+    }
+    for (int i = hash & (KEYWORDS.length - 1); ; i = (i + 1) & (KEYWORDS.length - 1)) {
+      final String keyword = KEYWORDS[i];
+      if (null == keyword) {
+        return null;
+      }
+      if (keyword.length() == length && keyword.regionMatches(0, pat, start, length)) {
+        return keyword;
+      }
+    }
   }
 
   /**
@@ -496,13 +602,11 @@ class Lexer {
     }
 
     if ((null != uName) && (uName.length() > 0)) {
-      addToTokenQueue(uName);
-      addToTokenQueue(":");
-
-      final String s = pat.substring(posOfNSSep + 1, posOfScan);
+      m_compiler.addToken(OpMap.TOKEN_NAMESPACE, startSubstring, posOfNSSep, uName);
+      addName(pat, posOfNSSep, posOfNSSep + 1);
 
-      if (s.length() > 0) {
-          addToTokenQueue(s);
+      if (posOfScan > posOfNSSep + 1) {
+        addName(pat, posOfNSSep + 1, posOfScan);
       }
     }
     else {
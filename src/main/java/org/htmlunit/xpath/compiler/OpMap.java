@@ -17,7 +17,7 @@
  */
 package org.htmlunit.xpath.compiler;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import javax.xml.transform.TransformerException;
 
@@ -55,18 +55,97 @@ public class OpMap {
   static final int BLOCKTOKENQUEUESIZE = 500;
 
   /**
-   * TokenStack is the queue of used tokens. The current token is the token at the end of the
-   * m_tokenQueue. The idea is that the queue can be marked and a sequence of tokens can be reused.
+   * Type code of a name or number token. A token of a single char has that char as its type code
+   * instead, whatever it is.
    */
-  final ArrayList<Object> m_tokenQueue = new ArrayList<>();
+  public static final int TOKEN_NAME = -1;
+
+  /** Type code of a quoted literal token. */
+  public static final int TOKEN_LITERAL = -2;
+
+  /** Type code of a namespace URI resolved from a prefix, it has the offsets of the prefix. */
+  public static final int TOKEN_NAMESPACE = -3;
+
+  /** Type code of the axis separator "::". */
+  public static final int TOKEN_AXIS_SEPARATOR = -4;
+
+  /** The number of ints per token in m_tokens. */
+  static final int TOKEN_SIZE = 3;
+
+  /**
+   * The tokens of the expression, TOKEN_SIZE ints for each: the type code and the start and end
+   * offset of the token in m_currentPattern.
+   */
+  int[] m_tokens = new int[0];
+
+  /**
+   * The value of each token: the token string, with names interned by the lexer, or the XString or
+   * XNumber the parser made of a literal or number.
+   */
+  Object[] m_tokenValues = new Object[0];
+
+  /** The number of tokens. */
+  private int m_tokenQueueSize;
+
+  /**
+   * Add a token, growing the token arrays if needed.
+   *
+   * @param type the type code
+   * @param start the start offset in the pattern
+   * @param end the end offset in the pattern
+   * @param value the token string
+   */
+  void addToken(final int type, final int start, final int end, final String value) {
+    if (m_tokenQueueSize == m_tokenValues.length) {
+      final int capacity = m_tokenQueueSize * 2 + 8;
+      m_tokens = Arrays.copyOf(m_tokens, capacity * TOKEN_SIZE);
+      m_tokenValues = Arrays.copyOf(m_tokenValues, capacity);
+    }
+    final int pos = m_tokenQueueSize * TOKEN_SIZE;
+    m_tokens[pos] = type;
+    m_tokens[pos + 1] = start;
+    m_tokens[pos + 2] = end;
+    m_tokenValues[m_tokenQueueSize++] = value;
+  }
 
   /**
-   * Get the XPath as a list of tokens.
+   * Get a token value.
    *
-   * @return ObjectVector of tokens.
+   * @param index the position in the token queue
+   * @return the token string, or the XString or XNumber of a literal or number
    */
-  public ArrayList<Object> getTokenQueue() {
-    return m_tokenQueue;
+  public Object getToken(final int index) {
+    return m_tokenValues[index];
+  }
+
+  /**
+   * Get the type code of a token.
+   *
+   * @param index the position in the token queue
+   * @return one of the TOKEN_ constants or the char of a single char token
+   */
+  public int getTokenType(final int index) {
+    return m_tokens[index * TOKEN_SIZE];
+  }
+
+  /**
+   * Get the start offset of a token in the pattern.
+   *
+   * @param index the position in the token queue
+   * @return the offset of the first char of the token
+   */
+  public int getTokenStart(final int index) {
+    return m_tokens[index * TOKEN_SIZE + 1];
+  }
+
+  /**
+   * Get the end offset of a token in the pattern.
+   *
+   * @param index the position in the token queue
+   * @return the offset after the last char of the token
+   */
+  public int getTokenEnd(final int index) {
+    return m_tokens[index * TOKEN_SIZE + 2];
   }
 
   /**
@@ -75,12 +154,12 @@ public class OpMap {
    * @return The size of the token queue.
    */
   public int getTokenQueueSize() {
-    return m_tokenQueue.size();
+    return m_tokenQueueSize;
   }
 
   /**
    * An operations map is used instead of a proper parse tree. It contains operations codes and
-   * indexes into the m_tokenQueue. I use an array instead of a full parse tree in order to cut down
+   * indexes into the token queue. I use an array instead of a full parse tree in order to cut down
    * on the number of objects created.
    */
   OpMapVector m_opMap = null;
@@ -102,10 +181,6 @@ public class OpMap {
     m_opMap.setElementAt(0, n);
     m_opMap.setElementAt(0, n + 1);
     m_opMap.setElementAt(0, n + 2);
-
-    m_tokenQueue.add(null);
-    m_tokenQueue.add(null);
-    m_tokenQueue.add(null);
   }
 
   /**
@@ -274,7 +349,7 @@ public class OpMap {
       final int index = m_opMap.elementAt(opPosOfStep + 4);
 
       if (index >= 0) {
-          return (String) m_tokenQueue.get(index);
+          return (String) m_tokenValues[index];
       }
       else if (OpCodes.ELEMWILDCARD == index) {
           return NodeTest.WILD;
@@ -306,7 +381,7 @@ public class OpMap {
     };
 
       if (index >= 0) {
-        return m_tokenQueue.get(index).toString();
+        return m_tokenValues[index].toString();
     }
     else if (OpCodes.ELEMWILDCARD == index) {
         return NodeTest.WILD;
@@ -253,9 +253,7 @@ public class XPathParser {
     final boolean b;
 
     if ((pos <= m_ops.getTokenQueueSize()) && (pos > 0) && (m_ops.getTokenQueueSize() != 0)) {
-      final String tok = (String) m_ops.m_tokenQueue.get(pos - 1);
-
-      b = tok.length() == 1 && (tok.charAt(0) == c);
+      b = m_ops.getTokenType(pos - 1) == c;
     }
     else {
       b = false;
@@ -276,7 +274,7 @@ public class XPathParser {
     final boolean isToken;
 
     if ((m_queueMark + n) <= m_ops.getTokenQueueSize()) {
-      final String lookahead = (String) m_ops.m_tokenQueue.get(m_queueMark + (n - 1));
+      final String lookahead = (String) m_ops.getToken(m_queueMark + (n - 1));
 
       isToken = Objects.equals(lookahead, s);
     }
@@ -291,7 +289,7 @@ public class XPathParser {
   private void nextToken() {
 
     if (m_queueMark < m_ops.getTokenQueueSize()) {
-      m_token = (String) m_ops.m_tokenQueue.get(m_queueMark++);
+      m_token = (String) m_ops.getToken(m_queueMark++);
       m_tokenChar = m_token.charAt(0);
     }
     else {
@@ -360,7 +358,7 @@ public class XPathParser {
       final StringBuilder msg = new StringBuilder("\n Remaining tokens: (");
 
       while (q < m_ops.getTokenQueueSize()) {
-        final String t = (String) m_ops.m_tokenQueue.get(q++);
+        final Object t = m_ops.getToken(q++);
 
         msg.append(" '").append(t).append('\'');
       }
@@ -1428,11 +1426,9 @@ public class XPathParser {
       // already made.
       final int tokenQueuePos = m_queueMark - 1;
 
-      m_ops.m_tokenQueue.set(tokenQueuePos, null);
-
-      final Object obj = new XString(m_token.substring(1, last));
-
-      m_ops.m_tokenQueue.set(tokenQueuePos, obj);
+      m_ops.m_tokenValues[tokenQueuePos] =
+          new XString(m_ops.m_currentPattern.substring(
+              m_ops.getTokenStart(tokenQueuePos) + 1, m_ops.getTokenEnd(tokenQueuePos) - 1));
 
       // lit = m_token.substring(1, last);
       m_ops.setOp(m_ops.getOp(OpMap.MAPINDEX_LENGTH), tokenQueuePos);
@@ -1471,7 +1467,7 @@ public class XPathParser {
         error(XPATHErrorResources.ER_COULDNOT_BE_FORMATTED_TO_NUMBER, new Object[] {m_token});
       }
 
-      m_ops.m_tokenQueue.set(m_queueMark - 1, new XNumber(num));
+      m_ops.m_tokenValues[m_queueMark - 1] = new XNumber(num);
       m_ops.setOp(m_ops.getOp(OpMap.MAPINDEX_LENGTH), m_queueMark - 1);
       m_ops.setOp(OpMap.MAPINDEX_LENGTH, m_ops.getOp(OpMap.MAPINDEX_LENGTH) + 1);
 
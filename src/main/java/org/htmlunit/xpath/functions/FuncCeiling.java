@@ -27,6 +27,6 @@ public class FuncCeiling extends FunctionOneArg {
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
-    return new XNumber(Math.ceil(m_arg0.execute(xctxt).num()));
+    return XNumber.valueOf(Math.ceil(m_arg0.execute(xctxt).num()));
   }
 }
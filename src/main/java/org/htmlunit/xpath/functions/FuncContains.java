@@ -18,26 +18,26 @@
 package org.htmlunit.xpath.functions;
 
 import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.objects.StringSearch;
 import org.htmlunit.xpath.objects.XBoolean;
 import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.objects.XString;
 
 /** Execute the Contains() function. */
-public class FuncContains extends Function2Args {
+public class FuncContains extends FunctionSearchArgs {
 
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
 
-    final String s1 = m_arg0.execute(xctxt).str();
-    final String s2 = m_arg1.execute(xctxt).str();
-
-    // Add this check for JDK consistency for empty strings.
-    if (s1.length() == 0 && s2.length() == 0) {
-        return XBoolean.S_TRUE;
+    // the string-value of a node may be lazy, it is searched without building it
+    final XString s1 = m_arg0.execute(xctxt).xstr();
+    final StringSearch search = getSearch();
+    if (null != search) {
+      return s1.contains(search) ? XBoolean.S_TRUE : XBoolean.S_FALSE;
     }
 
-    final int index = s1.indexOf(s2);
-
-    return (index > -1) ? XBoolean.S_TRUE : XBoolean.S_FALSE;
+    final XString s2 = m_arg1.execute(xctxt).xstr();
+    return s1.contains(s2) ? XBoolean.S_TRUE : XBoolean.S_FALSE;
   }
 }
@@ -31,7 +31,7 @@ public class FuncCount extends FunctionOneArg {
         final DTMIterator nl = m_arg0.asIterator(xctxt, xctxt.getCurrentNode());
         try {
             final int i = nl.getLength();
-            return new XNumber(i);
+            return XNumber.valueOf(i);
         }
         finally {
             nl.detach();
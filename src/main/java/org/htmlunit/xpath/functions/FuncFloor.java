@@ -27,6 +27,6 @@ public class FuncFloor extends FunctionOneArg {
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
-    return new XNumber(java.lang.Math.floor(m_arg0.execute(xctxt).num()));
+    return XNumber.valueOf(java.lang.Math.floor(m_arg0.execute(xctxt).num()));
   }
 }
@@ -58,6 +58,6 @@ public class FuncLast extends Function {
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
-    return new XNumber(getCountOfContextNodeList(xctxt));
+    return XNumber.valueOf(getCountOfContextNodeList(xctxt));
   }
 }
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.functions;
+
+import java.util.function.Predicate;
+
+import org.htmlunit.xpath.Expression;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.objects.XBoolean;
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.xml.utils.XMLCharacterRecognizer;
+
+/**
+ * normalize-space() compared with a literal, like <code>normalize-space(.) = 'Submit'</code>.
+ * The compiler uses this in place of the function and the comparison. The chars of the argument
+ * are scanned where they are, as if they were normalized, and the scan stops as soon as the result
+ * is known; the normalized string is never built.
+ */
+public class FuncNormalizeSpaceCompare extends FunctionDef1Arg {
+
+  /** normalize-space(x) = 'literal' */
+  public static final int EQUALS = 0;
+
+  /** normalize-space(x) != 'literal' */
+  public static final int NOT_EQUALS = 1;
+
+  /** contains(normalize-space(x), 'literal') */
+  public static final int CONTAINS = 2;
+
+  /** starts-with(normalize-space(x), 'literal') */
+  public static final int STARTS_WITH = 3;
+
+  /** normalize-space(x) = '' or not(normalize-space(x)) */
+  public static final int EMPTY = 4;
+
+  /** normalize-space(x) != '' or boolean(normalize-space(x)) */
+  public static final int NOT_EMPTY = 5;
+
+  private final int m_kind;
+  private final String m_literal;
+
+  /** For CONTAINS: the length of the longest proper prefix of literal[0..i] that is also a suffix. */
+  private final int[] m_failure;
+
+  /**
+   * Construct a FuncNormalizeSpaceCompare.
+   *
+   * @param normalizeSpace the normalize-space() call, its argument is taken over
+   * @param kind the comparison, one of the constants
+   * @param literal the literal to compare with, ignored for EMPTY and NOT_EMPTY
+   */
+  public FuncNormalizeSpaceCompare(
+      final FuncNormalizeSpace normalizeSpace, final int kind, final String literal) {
+    final Expression arg = normalizeSpace.getArg0();
+    if (null != arg) {
+      m_arg0 = arg;
+      arg.exprSetParent(this);
+    }
+    m_kind = kind;
+    m_literal = literal;
+    m_failure = CONTAINS == kind ? failureTable(literal) : null;
+  }
+
+  /**
+   * @return the comparison, one of the constants
+   */
+  public int getKind() {
+    return m_kind;
+  }
+
+  /**
+   * @return the literal compared with
+   */
+  public String getLiteral() {
+    return m_literal;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
+    return bool(xctxt) ? XBoolean.S_TRUE : XBoolean.S_FALSE;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean bool(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
+    final XString str = getArg0AsString(xctxt);
+    switch (m_kind) {
+      case EMPTY:
+        return str.forEachSegment(FuncNormalizeSpaceCompare::isWhiteSpace);
+      case NOT_EMPTY:
+        return !str.forEachSegment(FuncNormalizeSpaceCompare::isWhiteSpace);
+      case NOT_EQUALS:
+        return !matches(str);
+      default:
+        return matches(str);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean deepEquals(final Expression expr) {
+    if (!super.deepEquals(expr)) {
+      return false;
+    }
+    final FuncNormalizeSpaceCompare other = (FuncNormalizeSpaceCompare) expr;
+    return m_kind == other.m_kind && m_literal.equals(other.m_literal);
+  }
+
+  private static boolean isWhiteSpace(final String str) {
+    for (int i = 0; i < str.length(); i++) {
+      if (!XMLCharacterRecognizer.isWhiteSpace(str.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compare the normalized chars of str with the literal, for EQUALS, NOT_EQUALS, CONTAINS and
+   * STARTS_WITH.
+   *
+   * @param str the string before normalization
+   * @return true if the normalized string equals, contains or starts with the literal
+   */
+  private boolean matches(final XString str) {
+    if (m_literal.isEmpty() && EQUALS != m_kind && NOT_EQUALS != m_kind) {
+      return true;
+    }
+
+    final Match match = new Match();
+    if (str.forEachSegment(match)) {
+      return match.m_matched == m_literal.length();
+    }
+    return match.m_result;
+  }
+
+  /**
+   * The scan of the chars of the argument, segment by segment, as if they were normalized. Stops as
+   * soon as the result is known.
+   */
+  private final class Match implements Predicate<String> {
+
+    /** True while only white space has been seen. */
+    private boolean m_leading = true;
+
+    /** True if white space follows the last char; it only counts once another char comes. */
+    private boolean m_space;
+
+    /** The number of chars of the literal matched so far. */
+    private int m_matched;
+
+    /** The result, once the scan has stopped. */
+    private boolean m_result;
+
+    @Override
+    public boolean test(final String segment) {
+      for (int i = 0; i < segment.length(); i++) {
+        final char c = segment.charAt(i);
+        if (XMLCharacterRecognizer.isWhiteSpace(c)) {
+          m_space = !m_leading;
+          continue;
+        }
+        m_leading = false;
+
+        if (m_space) {
+          m_space = false;
+          if (!next(' ')) {
+            return false;
+          }
+        }
+        if (!next(c)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @param c the next normalized char
+     * @return false if the result is known
+     */
+    private boolean next(final char c) {
+      final String literal = m_literal;
+      if (CONTAINS == m_kind) {
+        while (m_matched > 0 && literal.charAt(m_matched) != c) {
+          m_matched = m_failure[m_matched - 1];
+        }
+        if (literal.charAt(m_matched) == c) {
+          m_matched++;
+        }
+        if (m_matched == literal.length()) {
+          m_result = true;
+          return false;
+        }
+        return true;
+      }
+
+      if (m_matched == literal.length()) {
+        // the normalized string is longer than the literal
+        m_result = STARTS_WITH == m_kind;
+        return false;
+      }
+      if (literal.charAt(m_matched) != c) {
+        m_result = false;
+        return false;
+      }
+      m_matched++;
+      return true;
+    }
+  }
+
+  private static int[] failureTable(final String pattern) {
+    final int[] failure = new int[pattern.length()];
+    int k = 0;
+    for (int i = 1; i < pattern.length(); i++) {
+      while (k > 0 && pattern.charAt(k) != pattern.charAt(i)) {
+        k = failure[k - 1];
+      }
+      if (pattern.charAt(k) == pattern.charAt(i)) {
+        k++;
+      }
+      failure[i] = k;
+    }
+    return failure;
+  }
+}
@@ -27,6 +27,6 @@ public class FuncNumber extends FunctionDef1Arg {
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
-    return new XNumber(getArg0AsNumber(xctxt));
+    return XNumber.valueOf(getArg0AsNumber(xctxt));
   }
 }
@@ -60,6 +60,6 @@ public class FuncPosition extends Function {
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
     final double pos = getPositionInContextNodeList(xctxt);
 
-    return new XNumber(pos);
+    return XNumber.valueOf(pos);
   }
 }
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.functions;
+
+import org.htmlunit.xpath.Expression;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.axes.SubContextList;
+import org.htmlunit.xpath.compiler.Compiler;
+import org.htmlunit.xpath.objects.XBoolean;
+import org.htmlunit.xpath.objects.XObject;
+
+/**
+ * A test of position() alone, like <code>[position() &lt; 5]</code>, <code>[position() mod 2 = 0]
+ * </code> or <code>[position() = last()]</code>. The compiler uses this in place of the comparison,
+ * so the test neither creates numbers nor runs the general comparison. As the last predicate of a
+ * step on a forward axis, a range with an upper bound also tells the step when no further node can
+ * match, see {@link #isExhausted(int)}.
+ */
+public class FuncPositionFilter extends Function {
+
+  /** position() &lt; value */
+  public static final int LESS = 0;
+
+  /** position() &lt;= value */
+  public static final int LESS_OR_EQUAL = 1;
+
+  /** position() &gt; value */
+  public static final int GREATER = 2;
+
+  /** position() &gt;= value */
+  public static final int GREATER_OR_EQUAL = 3;
+
+  /** position() = value */
+  public static final int EQUALS = 4;
+
+  /** position() != value */
+  public static final int NOT_EQUALS = 5;
+
+  /** position() mod divisor = value */
+  public static final int STRIDE = 6;
+
+  /** position() = last() */
+  public static final int LAST = 7;
+
+  private final int m_kind;
+  private final double m_value;
+  private final double m_divisor;
+
+  private boolean m_isTopLevel;
+
+  /**
+   * Construct a FuncPositionFilter.
+   *
+   * @param kind the kind of test, one of the constants of this class
+   * @param value the number position() is compared with, or the remainder for STRIDE
+   * @param divisor the divisor for STRIDE, unused otherwise
+   */
+  public FuncPositionFilter(final int kind, final double value, final double divisor) {
+    m_kind = kind;
+    m_value = value;
+    m_divisor = divisor;
+  }
+
+  /**
+   * @return the kind of test
+   */
+  public int getKind() {
+    return m_kind;
+  }
+
+  /**
+   * @return the number position() is compared with
+   */
+  public double getValue() {
+    return m_value;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void postCompileStep(final Compiler compiler) {
+    m_isTopLevel = compiler.getLocationPathDepth() == -1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
+    return bool(xctxt) ? XBoolean.S_TRUE : XBoolean.S_FALSE;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean bool(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
+    // the same values position() and last() return
+    final SubContextList iter = m_isTopLevel ? null : xctxt.getSubContextList();
+    final int pos = null == iter ? -1 : iter.getProximityPosition(xctxt);
+
+    if (LAST == m_kind) {
+      return pos == (null == iter ? 0 : iter.getLastPos(xctxt));
+    }
+    return test(pos);
+  }
+
+  private boolean test(final double pos) {
+    switch (m_kind) {
+      case LESS:
+        return pos < m_value;
+      case LESS_OR_EQUAL:
+        return pos <= m_value;
+      case GREATER:
+        return pos > m_value;
+      case GREATER_OR_EQUAL:
+        return pos >= m_value;
+      case EQUALS:
+        return pos == m_value;
+      case NOT_EQUALS:
+        return pos != m_value;
+      default:
+        return pos % m_divisor == m_value;
+    }
+  }
+
+  /**
+   * Tells if the test fails for all positions after the given one.
+   *
+   * @param pos the position of the node just tested
+   * @return true if no node with a greater position can pass
+   */
+  public boolean isExhausted(final int pos) {
+    switch (m_kind) {
+      case LESS:
+      case LESS_OR_EQUAL:
+        return !test(pos + 1);
+      case EQUALS:
+        return !(pos < m_value);
+      default:
+        return false;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean deepEquals(final Expression expr) {
+    if (!super.deepEquals(expr)) {
+      return false;
+    }
+
+    final FuncPositionFilter other = (FuncPositionFilter) expr;
+    return m_kind == other.m_kind
+        && Double.compare(m_value, other.m_value) == 0
+        && Double.compare(m_divisor, other.m_divisor) == 0;
+  }
+}
@@ -30,11 +30,11 @@ public class FuncRound extends FunctionOneArg {
     final XObject obj = m_arg0.execute(xctxt);
     final double val = obj.num();
     if (val >= -0.5 && val < 0) {
-        return new XNumber(-0.0);
+        return XNumber.valueOf(-0.0);
     }
     if (val == 0.0) {
-        return new XNumber(val);
+        return XNumber.valueOf(val);
     }
-    return new XNumber(java.lang.Math.floor(val + 0.5));
+    return XNumber.valueOf(java.lang.Math.floor(val + 0.5));
   }
 }
@@ -27,6 +27,6 @@ public class FuncStringLength extends FunctionDef1Arg {
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
-    return new XNumber(getArg0AsString(xctxt).length());
+    return XNumber.valueOf(getArg0AsString(xctxt).length());
   }
 }
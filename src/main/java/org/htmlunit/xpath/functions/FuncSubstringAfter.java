@@ -18,17 +18,23 @@
 package org.htmlunit.xpath.functions;
 
 import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.objects.StringSearch;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.objects.XString;
 
 /** Execute the SubstringAfter() function. */
-public class FuncSubstringAfter extends Function2Args {
+public class FuncSubstringAfter extends FunctionSearchArgs {
 
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
 
     final XString s1 = m_arg0.execute(xctxt).xstr();
+    final StringSearch search = getSearch();
+    if (null != search) {
+      return s1.substringAfter(search);
+    }
+
     final XString s2 = m_arg1.execute(xctxt).xstr();
     final int index = s1.indexOf(s2);
 
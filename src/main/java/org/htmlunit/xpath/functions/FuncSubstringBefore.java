@@ -18,20 +18,27 @@
 package org.htmlunit.xpath.functions;
 
 import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.objects.StringSearch;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.objects.XString;
 
 /** Execute the SubstringBefore() function. */
-public class FuncSubstringBefore extends Function2Args {
+public class FuncSubstringBefore extends FunctionSearchArgs {
 
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
 
-    final String s1 = m_arg0.execute(xctxt).str();
+    final XString s1 = m_arg0.execute(xctxt).xstr();
+    final StringSearch search = getSearch();
+    if (null != search) {
+      return s1.substringBefore(search);
+    }
+
+    final String str1 = s1.str();
     final String s2 = m_arg1.execute(xctxt).str();
-    final int index = s1.indexOf(s2);
+    final int index = str1.indexOf(s2);
 
-    return (-1 == index) ? XString.EMPTYSTRING : new XString(s1.substring(0, index));
+    return (-1 == index) ? XString.EMPTYSTRING : new XString(str1.substring(0, index));
   }
 }
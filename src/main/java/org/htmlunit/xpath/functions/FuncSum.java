@@ -20,7 +20,6 @@ package org.htmlunit.xpath.functions;
 import org.htmlunit.xpath.XPathContext;
 import org.htmlunit.xpath.objects.XNumber;
 import org.htmlunit.xpath.objects.XObject;
-import org.htmlunit.xpath.objects.XString;
 import org.htmlunit.xpath.xml.dtm.DTM;
 import org.htmlunit.xpath.xml.dtm.DTMIterator;
 
@@ -44,13 +43,9 @@ public class FuncSum extends FunctionOneArg {
 
             while (DTM.NULL != (pos = nodes.nextNode())) {
                 final DTM dtm = nodes.getDTM(pos);
-                final XString s = dtm.getStringValue(pos);
-
-                if (null != s) {
-                    sum += s.toDouble();
-                }
+                sum += dtm.getNumberValue(pos);
             }
-            return new XNumber(sum);
+            return XNumber.valueOf(sum);
         }
         finally {
             nodes.detach();
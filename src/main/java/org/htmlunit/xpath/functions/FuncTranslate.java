@@ -17,6 +17,7 @@
  */
 package org.htmlunit.xpath.functions;
 
+import org.htmlunit.xpath.Expression;
 import org.htmlunit.xpath.XPathContext;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.objects.XString;
@@ -24,13 +25,43 @@ import org.htmlunit.xpath.objects.XString;
 /** Execute the Translate() function. */
 public class FuncTranslate extends Function3Args {
 
+  /** The mapping if the second and third argument are literals, null otherwise. */
+  private TranslateTable m_table;
+
+  /** {@inheritDoc} */
+  @Override
+  public void setArg(final Expression arg, final int argNum) throws WrongNumberArgsException {
+    super.setArg(arg, argNum);
+    if (2 == argNum) {
+      m_table = m_arg1 instanceof XString from && arg instanceof XString to
+          ? new TranslateTable(from.str(), to.str())
+          : null;
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
 
-    final String theFirstString = m_arg0.execute(xctxt).str();
-    final String theSecondString = m_arg1.execute(xctxt).str();
-    final String theThirdString = arg2_.execute(xctxt).str();
+    final XString theFirstString = m_arg0.execute(xctxt).xstr();
+    final TranslateTable table = m_table;
+    if (null == table) {
+      // computed at runtime, the mapping is looked up in the arguments themselves
+      return new XString(
+          translate(theFirstString.str(), m_arg1.execute(xctxt).str(), arg2_.execute(xctxt).str()));
+    }
+
+    final String translated = table.translate(theFirstString.str());
+
+    // nothing to translate
+    if (null == translated) {
+      return theFirstString;
+    }
+    return new XString(translated);
+  }
+
+  private static String translate(
+      final String theFirstString, final String theSecondString, final String theThirdString) {
     final int theFirstStringLength = theFirstString.length();
     final int theThirdStringLength = theThirdString.length();
 
@@ -54,16 +85,12 @@ public class FuncTranslate extends Function3Args {
         // third string, so do the translation...
         sbuffer.append(theThirdString.charAt(theIndex));
       }
-      else {
 
-        // There's no corresponding character in the
-        // third string, since it's shorter than the
-        // second string. In this case, the character
-        // is removed from the output string, so don't
-        // do anything.
-      }
+      // There's no corresponding character in the third string, since
+      // it's shorter than the second string. In this case, the character
+      // is removed from the output string.
     }
 
-    return new XString(sbuffer.toString());
+    return sbuffer.toString();
   }
 }
@@ -31,6 +31,15 @@ public class Function2Args extends FunctionOneArg {
    */
   Expression m_arg1;
 
+  /**
+   * Return the second argument passed to the function (at index 1).
+   *
+   * @return An expression that represents the second argument passed to the function.
+   */
+  public Expression getArg1() {
+    return m_arg1;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void setArg(final Expression arg, final int argNum) throws WrongNumberArgsException {
@@ -31,6 +31,15 @@ public class Function3Args extends Function2Args {
    */
   Expression arg2_;
 
+  /**
+   * Return the third argument passed to the function (at index 2).
+   *
+   * @return An expression that represents the third argument passed to the function.
+   */
+  public Expression getArg2() {
+    return arg2_;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void setArg(final Expression arg, final int argNum) throws WrongNumberArgsException {
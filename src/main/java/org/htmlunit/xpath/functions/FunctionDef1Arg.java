@@ -84,10 +84,7 @@ public class FunctionDef1Arg extends FunctionOneArg {
       if (DTM.NULL == currentNode) {
         return 0;
       }
-      final DTM dtm = xctxt.getDTM(currentNode);
-      final XString str = dtm.getStringValue(currentNode);
-
-      return str.toDouble();
+      return xctxt.getDTM(currentNode).getNumberValue(currentNode);
     }
     return m_arg0.execute(xctxt).num();
   }
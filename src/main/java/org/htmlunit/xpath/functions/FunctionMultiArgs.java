@@ -32,6 +32,15 @@ public class FunctionMultiArgs extends Function3Args {
    */
   Expression[] args_;
 
+  /**
+   * Return the arguments passed to the function at index 3 or greater.
+   *
+   * @return the argument expressions at index 3 or greater, or null if there are none.
+   */
+  public Expression[] getArgs() {
+    return args_;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void setArg(final Expression arg, final int argNum) throws WrongNumberArgsException {
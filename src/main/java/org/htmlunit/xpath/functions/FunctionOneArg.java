@@ -31,6 +31,15 @@ public class FunctionOneArg extends Function {
    */
   Expression m_arg0;
 
+  /**
+   * Return the first argument passed to the function (at index 0).
+   *
+   * @return An expression that represents the first argument passed to the function.
+   */
+  public Expression getArg0() {
+    return m_arg0;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void setArg(final Expression arg, final int argNum) throws WrongNumberArgsException {
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.functions;
+
+import org.htmlunit.xpath.Expression;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.objects.StringSearch;
+import org.htmlunit.xpath.objects.XString;
+
+/**
+ * Base class for functions that search the first argument for the second one. If the second
+ * argument is a literal, the search for it is prepared once, when the function is compiled.
+ */
+public abstract class FunctionSearchArgs extends Function2Args {
+
+  /** The search for a literal second argument, null if the argument is computed at runtime. */
+  private StringSearch m_search;
+
+  /** {@inheritDoc} */
+  @Override
+  public void setArg(final Expression arg, final int argNum) throws WrongNumberArgsException {
+    super.setArg(arg, argNum);
+    if (1 == argNum) {
+      m_search = arg instanceof XString literal ? new StringSearch(literal.str()) : null;
+    }
+  }
+
+  /**
+   * Get the search for a literal second argument. A computed argument is searched with
+   * String.indexOf, preparing a search for a single use does not pay off.
+   *
+   * @return the precompiled search, or null if the second argument is computed at runtime
+   */
+  protected StringSearch getSearch() {
+    return m_search;
+  }
+}
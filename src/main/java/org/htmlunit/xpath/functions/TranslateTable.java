@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.functions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The char mapping of a translate() call. Chars up to the largest mapped char below {@link
+ * #MAX_DENSE} are looked up in an array, larger ones in a map.
+ */
+final class TranslateTable {
+
+  /** Marks chars that are not mapped. */
+  private static final int KEEP = -1;
+
+  /** Marks chars that are removed. */
+  private static final int REMOVE = -2;
+
+  /** Chars from here on are kept in the map, to keep the array small. */
+  private static final int MAX_DENSE = 0x800;
+
+  /** The mapping of the chars below MAX_DENSE, indexed by char. */
+  private final int[] m_dense;
+
+  /** The mapping of the other chars, null if there are none. */
+  private final Map<Character, Integer> m_sparse;
+
+  /**
+   * Construct a TranslateTable.
+   *
+   * @param from the chars to replace
+   * @param to the replacements; chars of from without one are removed
+   */
+  TranslateTable(final String from, final String to) {
+    int max = -1;
+    for (int i = 0; i < from.length(); i++) {
+      final char c = from.charAt(i);
+      if (c < MAX_DENSE) {
+        max = Math.max(max, c);
+      }
+    }
+
+    m_dense = new int[max + 1];
+    Arrays.fill(m_dense, KEEP);
+    Map<Character, Integer> sparse = null;
+    for (int i = 0; i < from.length(); i++) {
+      final char c = from.charAt(i);
+      final int mapped = i < to.length() ? to.charAt(i) : REMOVE;
+      // only the first occurrence in from counts
+      if (c < MAX_DENSE) {
+        if (KEEP == m_dense[c]) {
+          m_dense[c] = mapped;
+        }
+      }
+      else {
+        if (null == sparse) {
+          sparse = new HashMap<>();
+        }
+        sparse.putIfAbsent(c, mapped);
+      }
+    }
+    m_sparse = sparse;
+  }
+
+  private int map(final char c) {
+    if (c < m_dense.length) {
+      return m_dense[c];
+    }
+    if (null != m_sparse && c >= MAX_DENSE) {
+      final Integer mapped = m_sparse.get(c);
+      if (null != mapped) {
+        return mapped;
+      }
+    }
+    return KEEP;
+  }
+
+  /**
+   * Translate a string.
+   *
+   * @param str the string
+   * @return the translated string, or null if no char of str is mapped
+   */
+  String translate(final String str) {
+    final int length = str.length();
+    int i = 0;
+    while (i < length && KEEP == map(str.charAt(i))) {
+      i++;
+    }
+    if (i == length) {
+      return null;
+    }
+
+    final StringBuilder buf = new StringBuilder(length);
+    buf.append(str, 0, i);
+    for ( ; i < length; i++) {
+      final char c = str.charAt(i);
+      final int mapped = map(c);
+      if (KEEP == mapped) {
+        buf.append(c);
+      }
+      else if (REMOVE != mapped) {
+        buf.append((char) mapped);
+      }
+    }
+    return buf.toString();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import org.htmlunit.xpath.xml.dtm.ref.DTMDefaultBase;
+
+/**
+ * Flight recorder event for building a DTM. An incremental DTM is recorded when it is created, and
+ * again if it is built completely later.
+ */
+@Name("org.htmlunit.xpath.DTMBuild")
+@Label("DTM Build")
+@Category({"HtmlUnit", "XPath"})
+@Description("Construction of the DTM for a DOM")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class DTMBuildEvent extends Event {
+
+  /** The DTM class. */
+  @Label("DTM Class")
+  public String dtmClass;
+
+  /** The number of nodes built so far. */
+  @Label("Node Count")
+  public int nodeCount;
+
+  /** True if the DTM contains all nodes of the document. */
+  @Label("Fully Built")
+  public boolean fullyBuilt;
+
+  /** The estimated heap size of the DTM, see {@link DTMDefaultBase#getHeapBytes()}. */
+  @Label("Estimated Size")
+  @DataAmount
+  public long bytes;
+
+  /**
+   * Fill in the event fields for the given DTM.
+   *
+   * @param dtm the DTM
+   * @param complete true if all nodes are built
+   */
+  public void describe(final DTMDefaultBase dtm, final boolean complete) {
+    dtmClass = dtm.getClass().getName();
+    nodeCount = dtm.getNumberOfNodes();
+    fullyBuilt = complete;
+    bytes = dtm.getHeapBytes();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for the evaluation of an XPath expression. Node-sets are iterated lazily,
+ * most of the work of a location path is done when the result is read.
+ */
+@Name("org.htmlunit.xpath.Evaluate")
+@Label("XPath Evaluate")
+@Category({"HtmlUnit", "XPath"})
+@Description("Evaluation of a compiled XPath expression")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class EvaluateEvent extends Event {
+
+  /** The expression. */
+  @Label("Expression")
+  public String expression;
+
+  /** The type of the result, like #NODESET or #STRING. */
+  @Label("Result Type")
+  public String resultType;
+
+  /** The number of nodes of a node-set result, 1 for other results, -1 if not known yet. */
+  @Label("Result Size")
+  public int resultSize;
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.jfr;
+
+/**
+ * Tells if the events of this package can be used. The module jdk.jfr is an optional dependency,
+ * runtime images may come without it and on the module path it is only resolved if an application
+ * asks for it, for example with <code>--add-modules jdk.jfr</code>. This class does not use the
+ * jdk.jfr API itself; the events must not be created if {@link #isAvailable()} returns false.
+ */
+public final class FlightRecorderSupport {
+
+  private static final boolean AVAILABLE = checkAvailable();
+
+  private FlightRecorderSupport() {
+  }
+
+  /**
+   * @return true if the module jdk.jfr is present and the events can be created
+   */
+  public static boolean isAvailable() {
+    return AVAILABLE;
+  }
+
+  private static boolean checkAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader());
+      return true;
+    }
+    catch (final ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for an iterator that had to be cloned because its pool was empty. There may
+ * be many of them, the event is disabled by default.
+ */
+@Name("org.htmlunit.xpath.IteratorPoolMiss")
+@Label("XPath Iterator Pool Miss")
+@Category({"HtmlUnit", "XPath"})
+@Description("An iterator cloned because no pooled instance was free")
+@StackTrace(false)
+@Enabled(false)
+@Threshold("0 ms")
+public final class IteratorPoolMissEvent extends Event {
+
+  /** The class of the iterator. */
+  @Label("Iterator Class")
+  public String iteratorClass;
+}
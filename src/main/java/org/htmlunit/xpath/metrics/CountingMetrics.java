@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link XPathMetrics} that sums up the measurements in counters. Rates like evaluations per
+ * second are the difference of two readings divided by the time between them.
+ */
+public class CountingMetrics implements XPathMetrics {
+
+  private final LongAdder m_compilations = new LongAdder();
+  private final LongAdder m_compileNanos = new LongAdder();
+  private final LongAdder m_evaluations = new LongAdder();
+  private final LongAdder m_evaluationNanos = new LongAdder();
+  private final LongAdder m_dtmsCreated = new LongAdder();
+  private final LongAdder m_dtmsReleased = new LongAdder();
+  private final LongAdder m_dtmNodes = new LongAdder();
+  private final LongAdder m_poolHits = new LongAdder();
+  private final LongAdder m_poolMisses = new LongAdder();
+  private final LongAdder m_cacheFills = new LongAdder();
+  private final LongAdder m_cachedNodes = new LongAdder();
+
+  /** {@inheritDoc} */
+  @Override
+  public void compiled(final long nanos) {
+    m_compilations.increment();
+    m_compileNanos.add(nanos);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void evaluated(final long nanos) {
+    m_evaluations.increment();
+    m_evaluationNanos.add(nanos);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void dtmCreated() {
+    m_dtmsCreated.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void dtmNodesAdded(final int count) {
+    m_dtmNodes.add(count);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void dtmReleased(final int nodeCount) {
+    m_dtmsReleased.increment();
+    m_dtmNodes.add(-nodeCount);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void iteratorPoolHit() {
+    m_poolHits.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void iteratorPoolMiss() {
+    m_poolMisses.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void nodeSequenceCacheFilled(final int size) {
+    m_cacheFills.increment();
+    m_cachedNodes.add(size);
+  }
+
+  /**
+   * @return the number of compiled expressions
+   */
+  public long getCompilations() {
+    return m_compilations.sum();
+  }
+
+  /**
+   * @return the time spent compiling
+   */
+  public long getCompileNanos() {
+    return m_compileNanos.sum();
+  }
+
+  /**
+   * @return the number of evaluations
+   */
+  public long getEvaluations() {
+    return m_evaluations.sum();
+  }
+
+  /**
+   * @return the time spent evaluating
+   */
+  public long getEvaluationNanos() {
+    return m_evaluationNanos.sum();
+  }
+
+  /**
+   * @return the number of DTMs created
+   */
+  public long getDTMsCreated() {
+    return m_dtmsCreated.sum();
+  }
+
+  /**
+   * @return the number of DTMs created minus the number of DTMs released by their manager; DTMs
+   *     that are dropped without a release are still counted, even after they have been garbage
+   *     collected
+   */
+  public long getDTMsNotReleased() {
+    return m_dtmsCreated.sum() - m_dtmsReleased.sum();
+  }
+
+  /**
+   * @return the number of nodes added to DTMs minus the nodes of the DTMs released by their
+   *     manager, counting only the nodes added while these metrics were installed; like {@link
+   *     #getDTMsNotReleased()} this does not drop DTMs that are garbage collected without a release
+   */
+  public long getDTMNodesNotReleased() {
+    return m_dtmNodes.sum();
+  }
+
+  /**
+   * @return the number of iterators taken from a pool
+   */
+  public long getIteratorPoolHits() {
+    return m_poolHits.sum();
+  }
+
+  /**
+   * @return the number of iterators cloned because the pool was empty
+   */
+  public long getIteratorPoolMisses() {
+    return m_poolMisses.sum();
+  }
+
+  /**
+   * @return the share of pool requests served without cloning, 0 if there were none
+   */
+  public double getIteratorPoolHitRate() {
+    final long hits = m_poolHits.sum();
+    final long total = hits + m_poolMisses.sum();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * @return the number of node sequence caches filled completely
+   */
+  public long getNodeSequenceCacheFills() {
+    return m_cacheFills.sum();
+  }
+
+  /**
+   * @return the number of nodes in the filled node sequence caches
+   */
+  public long getNodeSequenceCachedNodes() {
+    return m_cachedNodes.sum();
+  }
+
+  /** Reset all counters. */
+  public void reset() {
+    m_compilations.reset();
+    m_compileNanos.reset();
+    m_evaluations.reset();
+    m_evaluationNanos.reset();
+    m_dtmsCreated.reset();
+    m_dtmsReleased.reset();
+    m_dtmNodes.reset();
+    m_poolHits.reset();
+    m_poolMisses.reset();
+    m_cacheFills.reset();
+    m_cachedNodes.reset();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.metrics;
+
+/**
+ * Holds the {@link XPathMetrics} the engine reports to. The call sites check {@link #isEnabled()}
+ * first, without metrics installed this is the only cost.
+ */
+public final class Metrics {
+
+  /** The installed metrics, {@link XPathMetrics#NOOP} if none. */
+  private static volatile XPathMetrics s_metrics = XPathMetrics.NOOP;
+
+  /** True if metrics other than the no-op implementation are installed. */
+  private static volatile boolean s_enabled;
+
+  private Metrics() {
+  }
+
+  /**
+   * Install the metrics the engine reports to.
+   *
+   * @param metrics the metrics, null to switch reporting off
+   */
+  public static void setMetrics(final XPathMetrics metrics) {
+    final XPathMetrics installed = null == metrics ? XPathMetrics.NOOP : metrics;
+    s_metrics = installed;
+    s_enabled = installed != XPathMetrics.NOOP;
+  }
+
+  /**
+   * @return the installed metrics, never null
+   */
+  public static XPathMetrics getMetrics() {
+    return s_metrics;
+  }
+
+  /**
+   * @return true if metrics are installed
+   */
+  public static boolean isEnabled() {
+    return s_enabled;
+  }
+}
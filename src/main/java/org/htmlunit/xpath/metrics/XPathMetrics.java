@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.metrics;
+
+/**
+ * Receives the measurements of the XPath engine. All methods do nothing by default, implementors
+ * override the ones they are interested in. Implementations are called from all threads evaluating
+ * expressions and have to be thread safe and cheap.
+ *
+ * @see Metrics#setMetrics(XPathMetrics)
+ */
+public interface XPathMetrics {
+
+  /** The implementation used when no metrics are installed. */
+  XPathMetrics NOOP = new XPathMetrics() {
+  };
+
+  /**
+   * An expression has been compiled.
+   *
+   * @param nanos the time spent parsing and compiling
+   */
+  default void compiled(final long nanos) {
+  }
+
+  /**
+   * An expression has been evaluated.
+   *
+   * @param nanos the time spent in the evaluation; node-sets are iterated lazily, the time to walk
+   *     them is not included
+   */
+  default void evaluated(final long nanos) {
+  }
+
+  /** A DTM has been created. */
+  default void dtmCreated() {
+  }
+
+  /**
+   * Nodes have been added to a DTM.
+   *
+   * @param count the number of nodes added
+   */
+  default void dtmNodesAdded(final int count) {
+  }
+
+  /**
+   * A DTM has been released by its manager.
+   *
+   * @param nodeCount the number of nodes the DTM held
+   */
+  default void dtmReleased(final int nodeCount) {
+  }
+
+  /** An iterator was taken from an iterator pool without cloning. */
+  default void iteratorPoolHit() {
+  }
+
+  /** An iterator pool was empty and the iterator had to be cloned. */
+  default void iteratorPoolMiss() {
+  }
+
+  /**
+   * The cache of a node sequence has been filled completely.
+   *
+   * @param size the number of nodes in the cache
+   */
+  default void nodeSequenceCacheFilled(final int size) {
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import org.htmlunit.xpath.xml.utils.XMLCharacterRecognizer;
+
+/**
+ * Converts strings to numbers as the XPath number() function does. The input has to match the
+ * Number production, optionally preceded by a minus sign and surrounded by whitespace; anything
+ * else is NaN.
+ *
+ * <p>Numbers with at most 15 significant digits and 22 fraction digits, which covers the values
+ * usually found in documents, are computed exactly without creating any objects: the digits fit
+ * a long and the power of ten is exact, so the single division is correctly rounded. Longer
+ * numbers are left to {@link Double#parseDouble(String)}.
+ */
+public final class NumberParser {
+
+  /** The number of significant digits that always fit into a double exactly. */
+  private static final int MAX_EXACT_DIGITS = 15;
+
+  /** The powers of ten that are exact doubles. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private NumberParser() {
+  }
+
+  /**
+   * Parse a string following the rules of the XPath number() function.
+   *
+   * @param s the characters to parse
+   * @return the number, or NaN if s is not a number
+   */
+  public static double parse(final CharSequence s) {
+    int start = 0;
+    int end = s.length();
+    while (start < end && XMLCharacterRecognizer.isWhiteSpace(s.charAt(start))) {
+      start++;
+    }
+    while (end > start && XMLCharacterRecognizer.isWhiteSpace(s.charAt(end - 1))) {
+      end--;
+    }
+    if (start == end) {
+      return Double.NaN;
+    }
+
+    final boolean negative = s.charAt(start) == '-';
+    if (negative) {
+      start++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean anyDigit = false;
+    boolean dot = false;
+    for (int i = start; i < end; i++) {
+      final char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        anyDigit = true;
+        if (digits > 0 || c != '0') {
+          digits++;
+          if (digits <= MAX_EXACT_DIGITS) {
+            mantissa = mantissa * 10 + (c - '0');
+          }
+        }
+        if (dot) {
+          fractionDigits++;
+        }
+      }
+      else if (c == '.' && !dot) {
+        dot = true;
+      }
+      else {
+        return Double.NaN;
+      }
+    }
+    if (!anyDigit) {
+      return Double.NaN;
+    }
+
+    final double result;
+    if (digits <= MAX_EXACT_DIGITS && fractionDigits < POWERS_OF_TEN.length) {
+      result = mantissa / POWERS_OF_TEN[fractionDigits];
+    }
+    else {
+      // the syntax is already checked, parseDouble accepts every remaining input
+      result = Double.parseDouble(s.subSequence(start, end).toString());
+    }
+    return negative ? -result : result;
+  }
+}
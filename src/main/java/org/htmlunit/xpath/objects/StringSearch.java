@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import java.util.Arrays;
+
+/**
+ * A precompiled search for one pattern, for example the literal second argument of contains(),
+ * substring-before() or substring-after(). Patterns long enough to profit from it are searched
+ * with the Boyer-Moore-Horspool algorithm, which skips up to the pattern length per mismatch;
+ * short patterns and patterns searched only once are left to {@link String#indexOf(String, int)}.
+ *
+ * <p>Instances are immutable and can be shared by threads evaluating the same expression.
+ */
+public final class StringSearch {
+
+  /** Patterns shorter than this are searched with String.indexOf. */
+  private static final int MIN_SKIP_LENGTH = 8;
+
+  /** The size of the shift table; chars are mapped to it by their low bits. */
+  private static final int TABLE_SIZE = 256;
+
+  private final String m_pattern;
+
+  /** The shift for each char bucket, or null if String.indexOf is used. */
+  private final int[] m_shift;
+
+  /**
+   * Construct a StringSearch that builds the shift table for long patterns.
+   *
+   * @param pattern the string to search for
+   */
+  public StringSearch(final String pattern) {
+    this(pattern, true);
+  }
+
+  /**
+   * Construct a StringSearch.
+   *
+   * @param pattern the string to search for
+   * @param precompile false for a pattern computed at runtime and searched only once, the shift
+   *     table does not pay off then and is not built
+   */
+  public StringSearch(final String pattern, final boolean precompile) {
+    m_pattern = pattern;
+
+    final int length = pattern.length();
+    if (!precompile || length < MIN_SKIP_LENGTH) {
+      m_shift = null;
+    }
+    else {
+      m_shift = new int[TABLE_SIZE];
+      Arrays.fill(m_shift, length);
+      // chars sharing a bucket get the smallest of their shifts, that is still safe
+      for (int i = 0; i < length - 1; i++) {
+        m_shift[pattern.charAt(i) & (TABLE_SIZE - 1)] = length - 1 - i;
+      }
+    }
+  }
+
+  /**
+   * @return the string to search for
+   */
+  public String getPattern() {
+    return m_pattern;
+  }
+
+  /**
+   * Find the first occurrence of the pattern.
+   *
+   * @param text the text to search in
+   * @param fromIndex the index to start at
+   * @return the index of the first occurrence at or after fromIndex, or -1
+   */
+  public int indexOf(final String text, final int fromIndex) {
+    if (null == m_shift) {
+      return text.indexOf(m_pattern, fromIndex);
+    }
+
+    final String pattern = m_pattern;
+    final int last = pattern.length() - 1;
+    final char lastChar = pattern.charAt(last);
+    final int end = text.length() - last;
+    int pos = Math.max(0, fromIndex);
+    while (pos < end) {
+      final char c = text.charAt(pos + last);
+      if (c == lastChar && text.regionMatches(pos, pattern, 0, last)) {
+        return pos;
+      }
+      pos += m_shift[c & (TABLE_SIZE - 1)];
+    }
+    return -1;
+  }
+}
@@ -17,6 +17,8 @@
  */
 package org.htmlunit.xpath.objects;
 
+import org.htmlunit.xpath.XPathVisitor;
+
 /**
  * This class represents an XPath boolean object, and is capable of converting the boolean to other
  * types, such as a string.
@@ -108,4 +110,10 @@ public class XBoolean extends XObject {
       throw new org.htmlunit.xpath.xml.utils.WrappedRuntimeException(te);
     }
   }
+
+  /** {@inheritDoc} */
+  @Override
+  public void callVisitors(final XPathVisitor visitor) {
+    visitor.visitBooleanLiteral();
+  }
 }
@@ -18,7 +18,9 @@
 package org.htmlunit.xpath.objects;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.htmlunit.xpath.NodeSetDTM;
 import org.htmlunit.xpath.axes.NodeSequence;
@@ -34,6 +36,15 @@ import org.w3c.dom.traversal.NodeIterator;
  */
 public class XNodeSet extends NodeSequence {
 
+  /** The distinct string-values of the nodes, built on demand by {@link #getStringValues()}. */
+  private Set<String> m_stringValues;
+
+  /**
+   * The smallest and the largest number converted from the string-values of the nodes, NaNs
+   * excluded; built on demand by {@link #getNumberRange()}.
+   */
+  private double[] m_numberRange;
+
   /**
    * Construct a XNodeSet object.
    *
@@ -88,8 +99,7 @@ public class XNodeSet extends NodeSequence {
    * @return numeric value of the string conversion from a single node.
    */
   public double getNumberFromNode(final int n) {
-    final XString xstr = m_dtmMgr.getDTM(n).getStringValue(n);
-    return xstr.toDouble();
+    return m_dtmMgr.getDTM(n).getNumberValue(n);
   }
 
   /** {@inheritDoc} */
@@ -202,6 +212,10 @@ public class XNodeSet extends NodeSequence {
   public NodeSetDTM mutableNodeset() {
     final NodeSetDTM mnl;
 
+    // the nodes may change
+    m_stringValues = null;
+    m_numberRange = null;
+
     if (m_obj instanceof NodeSetDTM tM) {
       mnl = tM;
     }
@@ -214,6 +228,55 @@ public class XNodeSet extends NodeSequence {
     return mnl;
   }
 
+  /**
+   * Get the distinct string-values of the nodes. The set is built once and kept with this node-set,
+   * so comparing against the same node-set again does not convert the nodes again.
+   *
+   * @return the string-values
+   */
+  Set<String> getStringValues() {
+    if (null == m_stringValues) {
+      final Set<String> values = new HashSet<>();
+      final DTMIterator list = iterRaw();
+      int node;
+      while (DTM.NULL != (node = list.nextNode())) {
+        values.add(getStringFromNode(node).toString());
+      }
+      list.reset();
+      m_stringValues = values;
+    }
+    return m_stringValues;
+  }
+
+  /**
+   * Get the smallest and the largest number converted from the string-values of the nodes. Both
+   * are NaN if no node converts to a number.
+   *
+   * @return an array holding the minimum and the maximum
+   */
+  double[] getNumberRange() {
+    if (null == m_numberRange) {
+      double min = Double.NaN;
+      double max = Double.NaN;
+      final DTMIterator list = iterRaw();
+      int node;
+      while (DTM.NULL != (node = list.nextNode())) {
+        final double num = getNumberFromNode(node);
+        if (!Double.isNaN(num)) {
+          if (Double.isNaN(min) || num < min) {
+            min = num;
+          }
+          if (Double.isNaN(max) || num > max) {
+            max = num;
+          }
+        }
+      }
+      list.reset();
+      m_numberRange = new double[] {min, max};
+    }
+    return m_numberRange;
+  }
+
   /** Less than comparator */
   static final LessThanComparator S_LT = new LessThanComparator();
 
@@ -260,45 +323,7 @@ public class XNodeSet extends NodeSequence {
       // is true if and only if some node in $x has the string-value
       // foo; the latter is true if and only if all nodes in $x have
       // the string-value foo.
-      final DTMIterator list1 = iterRaw();
-      final DTMIterator list2 = ((XNodeSet) obj2).iterRaw();
-      int node1;
-      List<XString> node2Strings = null;
-
-      while (DTM.NULL != (node1 = list1.nextNode())) {
-        final XString s1 = getStringFromNode(node1);
-
-        if (null == node2Strings) {
-          int node2;
-
-          while (DTM.NULL != (node2 = list2.nextNode())) {
-            final XString s2 = getStringFromNode(node2);
-
-            if (comparator.compareStrings(s1, s2)) {
-              result = true;
-
-              break;
-            }
-
-            if (null == node2Strings) {
-                node2Strings = new ArrayList<>();
-            }
-
-            node2Strings.add(s2);
-          }
-        }
-        else {
-          for (final XString node2String : node2Strings) {
-            if (comparator.compareStrings(s1, node2String)) {
-              result = true;
-
-              break;
-            }
-          }
-        }
-      }
-      list1.reset();
-      list2.reset();
+      result = comparator.compareNodeSets(this, (XNodeSet) obj2);
     }
     else if (XObject.CLASS_BOOLEAN == type) {
 
@@ -446,6 +471,85 @@ abstract class Comparator {
    * @return Whether the numbers are equal or not
    */
   abstract boolean compareNumbers(double n1, double n2);
+
+  /**
+   * Compare two node-sets. From http://www.w3.org/TR/xpath: If both objects to be compared are
+   * node-sets, then the comparison will be true if and only if there is a node in the first
+   * node-set and a node in the second node-set such that the result of performing the comparison on
+   * the string-values of the two nodes is true.
+   *
+   * <p>This default compares every pair of nodes; the comparators for the operators override it
+   * with something linear.
+   *
+   * @param set1 First node-set to compare
+   * @param set2 Second node-set to compare
+   * @return Whether there is a pair of nodes for which the comparison is true
+   */
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    boolean result = false;
+    final DTMIterator list1 = set1.iterRaw();
+    final DTMIterator list2 = set2.iterRaw();
+    int node1;
+    List<XString> node2Strings = null;
+
+    while (!result && DTM.NULL != (node1 = list1.nextNode())) {
+      final XString s1 = set1.getStringFromNode(node1);
+
+      if (null == node2Strings) {
+        node2Strings = new ArrayList<>();
+        int node2;
+
+        while (DTM.NULL != (node2 = list2.nextNode())) {
+          final XString s2 = set2.getStringFromNode(node2);
+          node2Strings.add(s2);
+
+          if (compareStrings(s1, s2)) {
+            result = true;
+
+            break;
+          }
+        }
+      }
+      else {
+        for (final XString node2String : node2Strings) {
+          if (compareStrings(s1, node2String)) {
+            result = true;
+
+            break;
+          }
+        }
+      }
+    }
+    list1.reset();
+    list2.reset();
+    return result;
+  }
+
+  /**
+   * Tell if a node of a node-set compares true to the given number.
+   *
+   * @param set1 the node-set
+   * @param n2 the number, one of the bounds of the second node-set
+   * @return Whether there is a node for which the comparison is true
+   */
+  boolean compareNodeSetToBound(final XNodeSet set1, final double n2) {
+    if (Double.isNaN(n2)) {
+      return false;
+    }
+
+    boolean result = false;
+    final DTMIterator list1 = set1.iterRaw();
+    int node;
+    while (DTM.NULL != (node = list1.nextNode())) {
+      if (compareNumbers(set1.getNumberFromNode(node), n2)) {
+        result = true;
+
+        break;
+      }
+    }
+    list1.reset();
+    return result;
+  }
 }
 
 /** Compare strings or numbers for less than. */
@@ -463,6 +567,13 @@ class LessThanComparator extends Comparator {
   boolean compareNumbers(final double n1, final double n2) {
     return n1 < n2;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    // some node is less than the largest one
+    return compareNodeSetToBound(set1, set2.getNumberRange()[1]);
+  }
 }
 
 /** Compare strings or numbers for less than or equal. */
@@ -480,6 +591,12 @@ class LessThanOrEqualComparator extends Comparator {
   boolean compareNumbers(final double n1, final double n2) {
     return n1 <= n2;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    return compareNodeSetToBound(set1, set2.getNumberRange()[1]);
+  }
 }
 
 /** Compare strings or numbers for greater than. */
@@ -497,6 +614,13 @@ class GreaterThanComparator extends Comparator {
   boolean compareNumbers(final double n1, final double n2) {
     return n1 > n2;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    // some node is greater than the smallest one
+    return compareNodeSetToBound(set1, set2.getNumberRange()[0]);
+  }
 }
 
 /** Compare strings or numbers for greater than or equal. */
@@ -514,6 +638,12 @@ class GreaterThanOrEqualComparator extends Comparator {
   boolean compareNumbers(final double n1, final double n2) {
     return n1 >= n2;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    return compareNodeSetToBound(set1, set2.getNumberRange()[0]);
+  }
 }
 
 /** Compare strings or numbers for equality. */
@@ -530,6 +660,29 @@ class EqualComparator extends Comparator {
   boolean compareNumbers(final double n1, final double n2) {
     return n1 == n2;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    // hash join, probe the string-values of the second set
+    final Set<String> values = set2.getStringValues();
+    if (values.isEmpty()) {
+      return false;
+    }
+
+    boolean result = false;
+    final DTMIterator list1 = set1.iterRaw();
+    int node;
+    while (DTM.NULL != (node = list1.nextNode())) {
+      if (values.contains(set1.getStringFromNode(node).toString())) {
+        result = true;
+
+        break;
+      }
+    }
+    list1.reset();
+    return result;
+  }
 }
 
 /** Compare strings or numbers for non-equality. */
@@ -546,4 +699,27 @@ class NotEqualComparator extends Comparator {
   boolean compareNumbers(final double n1, final double n2) {
     return n1 != n2;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean compareNodeSets(final XNodeSet set1, final XNodeSet set2) {
+    // false only if all nodes of both sets have one and the same string-value
+    final Set<String> values = set2.getStringValues();
+    if (values.isEmpty()) {
+      return false;
+    }
+
+    boolean result = false;
+    final DTMIterator list1 = set1.iterRaw();
+    int node;
+    while (DTM.NULL != (node = list1.nextNode())) {
+      if (values.size() > 1 || !values.contains(set1.getStringFromNode(node).toString())) {
+        result = true;
+
+        break;
+      }
+    }
+    list1.reset();
+    return result;
+  }
 }
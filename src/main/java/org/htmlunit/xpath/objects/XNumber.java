@@ -35,6 +35,25 @@ public class XNumber extends XObject {
      */
     final double m_val;
 
+    /** The smallest integer kept in {@link #SMALL_INTEGERS}. */
+    private static final int MIN_CACHED = -1;
+
+    /** The largest integer kept in {@link #SMALL_INTEGERS}. */
+    private static final int MAX_CACHED = 1024;
+
+    /** The shared instances for the integers from MIN_CACHED to MAX_CACHED. */
+    private static final XNumber[] SMALL_INTEGERS = new XNumber[MAX_CACHED - MIN_CACHED + 1];
+
+    static {
+        for (int i = 0; i < SMALL_INTEGERS.length; i++) {
+            SMALL_INTEGERS[i] = new XNumber(i + MIN_CACHED);
+        }
+    }
+
+    private static final XNumber NAN = new XNumber(Double.NaN);
+    private static final XNumber POSITIVE_INFINITY = new XNumber(Double.POSITIVE_INFINITY);
+    private static final XNumber NEGATIVE_INFINITY = new XNumber(Double.NEGATIVE_INFINITY);
+
     /**
      * Construct an XNumber object.
      *
@@ -46,6 +65,50 @@ public class XNumber extends XObject {
         m_val = d;
     }
 
+    /**
+     * Return an XNumber for a result value. Small integers, as returned by position(), last(),
+     * count() or string-length(), NaN and the infinities are shared instances; other values get a
+     * new object.
+     *
+     * <p>The shared instances must not be used as literals of an expression tree, because a
+     * literal gets a parent.
+     *
+     * @param d the value
+     * @return an XNumber with the value d
+     */
+    public static XNumber valueOf(final double d) {
+        final int i = (int) d;
+        if (i == d) {
+            if (i >= MIN_CACHED && i <= MAX_CACHED && (i != 0 || Double.doubleToRawLongBits(d) == 0L)) {
+                return SMALL_INTEGERS[i - MIN_CACHED];
+            }
+        }
+        else if (Double.isNaN(d)) {
+            return NAN;
+        }
+        else if (d == Double.POSITIVE_INFINITY) {
+            return POSITIVE_INFINITY;
+        }
+        else if (d == Double.NEGATIVE_INFINITY) {
+            return NEGATIVE_INFINITY;
+        }
+        return new XNumber(d);
+    }
+
+    /**
+     * Return an XNumber for an integer result value.
+     *
+     * @param i the value
+     * @return an XNumber with the value i
+     * @see #valueOf(double)
+     */
+    public static XNumber valueOf(final int i) {
+        if (i >= MIN_CACHED && i <= MAX_CACHED) {
+            return SMALL_INTEGERS[i - MIN_CACHED];
+        }
+        return new XNumber(i);
+    }
+
     /**
      * {@inheritDoc}
      */
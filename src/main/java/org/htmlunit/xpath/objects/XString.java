@@ -17,6 +17,8 @@
  */
 package org.htmlunit.xpath.objects;
 
+import java.util.function.Predicate;
+
 import org.htmlunit.xpath.XPathVisitor;
 import org.htmlunit.xpath.xml.utils.XMLCharacterRecognizer;
 
@@ -72,31 +74,7 @@ public class XString extends XObject {
    *     be converted.
    */
   public double toDouble() {
-    /*
-     * XMLCharacterRecognizer.isWhiteSpace(char c) methods treats the following
-     * characters as white space characters. ht - horizontal tab, nl - newline , cr
-     * - carriage return and sp - space trim() methods by default also takes care of
-     * these white space characters So trim() method is used to remove leading and
-     * trailing white spaces.
-     */
-    final XString s = trim();
-    double result = Double.NaN;
-    for (int i = 0; i < s.length(); i++) {
-      final char c = s.charAt(i);
-      if (c != '-' && c != '.' && (c < 0X30 || c > 0x39)) {
-        // The character is not a '-' or a '.' or a digit
-        // then return NaN because something is wrong.
-        return result;
-      }
-    }
-    try {
-      result = Double.parseDouble(s.toString());
-    }
-    catch (final NumberFormatException e) {
-      // ignore
-    }
-
-    return result;
+    return NumberParser.parse(str());
   }
 
   /** {@inheritDoc} */
@@ -332,6 +310,72 @@ public class XString extends XObject {
     return str().indexOf(str.toString());
   }
 
+  /**
+   * Tests if this string contains the specified string.
+   *
+   * @param str any string.
+   * @return <code>true</code> if the argument occurs as a substring within this object or is empty.
+   */
+  public boolean contains(final XString str) {
+    return str().contains(str.str());
+  }
+
+  /**
+   * Hands the chars of this string to a consumer in one or more segments, in order, without
+   * concatenating them.
+   *
+   * @param segments the consumer, returns <code>false</code> to stop.
+   * @return <code>false</code> if the consumer stopped.
+   */
+  public boolean forEachSegment(final Predicate<String> segments) {
+    return segments.test(str());
+  }
+
+  /**
+   * Returns the index within this string of the first occurrence of the pattern of a precompiled
+   * search.
+   *
+   * @param search the search.
+   * @return the index of the first occurrence, or <code>-1</code>.
+   */
+  public int indexOf(final StringSearch search) {
+    return search.indexOf(str(), 0);
+  }
+
+  /**
+   * Tests if this string contains the pattern of a precompiled search.
+   *
+   * @param search the search.
+   * @return <code>true</code> if the pattern occurs as a substring within this object or is empty.
+   */
+  public boolean contains(final StringSearch search) {
+    return indexOf(search) > -1;
+  }
+
+  /**
+   * Returns the part of this string before the first occurrence of the pattern of a precompiled
+   * search, as defined for the XPath function substring-before().
+   *
+   * @param search the search.
+   * @return the part before the pattern, or the empty string if the pattern does not occur.
+   */
+  public XString substringBefore(final StringSearch search) {
+    final int index = indexOf(search);
+    return -1 == index ? EMPTYSTRING : substring(0, index);
+  }
+
+  /**
+   * Returns the part of this string after the first occurrence of the pattern of a precompiled
+   * search, as defined for the XPath function substring-after().
+   *
+   * @param search the search.
+   * @return the part after the pattern, or the empty string if the pattern does not occur.
+   */
+  public XString substringAfter(final StringSearch search) {
+    final int index = indexOf(search);
+    return -1 == index ? EMPTYSTRING : substring(index + search.getPattern().length());
+  }
+
   /**
    * Returns a new string that is a substring of this string. The substring begins with the
    * character at the specified index and extends to the end of this string.
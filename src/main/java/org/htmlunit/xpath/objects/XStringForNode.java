@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import java.util.function.Predicate;
+
+import org.w3c.dom.Node;
+
+/**
+ * The string-value of an element, document or document fragment, computed lazily from the text
+ * nodes of the DOM subtree. Comparisons, prefix and substring tests and the length read the text
+ * nodes one after the other and stop as early as possible; only the other operations concatenate
+ * the text, once, into a String.
+ *
+ * <p>The text is read when it is used, not when this object is created. Like node-sets, it is
+ * meant to be consumed while the document is not modified.
+ */
+public class XStringForNode extends XString {
+
+  /** The element, document or document fragment. */
+  private final Node m_node;
+
+  /** The length, or -1 if not known yet. */
+  private int m_length = -1;
+
+  /**
+   * Construct a XStringForNode object.
+   *
+   * @param node the element, document or document fragment whose text is the value
+   */
+  public XStringForNode(final Node node) {
+    super(null);
+    m_node = node;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasString() {
+    return null != m_obj;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String str() {
+    if (null == m_obj) {
+      final StringBuilder buf = new StringBuilder();
+      for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+        buf.append(text.getNodeValue());
+      }
+      m_obj = buf.toString();
+    }
+    return (String) m_obj;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object object() {
+    return str();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean bool() {
+    if (null != m_obj) {
+      return super.bool();
+    }
+    for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+      if (!text.getNodeValue().isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int length() {
+    if (null != m_obj) {
+      return super.length();
+    }
+    if (m_length < 0) {
+      int length = 0;
+      for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+        length += text.getNodeValue().length();
+      }
+      m_length = length;
+    }
+    return m_length;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(final String obj2) {
+    if (null != m_obj) {
+      return super.equals(obj2);
+    }
+    if (m_length >= 0 && m_length != obj2.length()) {
+      return false;
+    }
+
+    int pos = 0;
+    for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+      final String value = text.getNodeValue();
+      if (!obj2.regionMatches(pos, value, 0, value.length())) {
+        return false;
+      }
+      pos += value.length();
+    }
+    return pos == obj2.length();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(final XString obj2) {
+    if (null != m_obj || null == obj2) {
+      return super.equals(obj2);
+    }
+    return equals(obj2.str());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean forEachSegment(final Predicate<String> segments) {
+    if (null != m_obj) {
+      return super.forEachSegment(segments);
+    }
+    for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+      if (!segments.test(text.getNodeValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean startsWith(final XString prefix, final int toffset) {
+    if (null != m_obj || 0 != toffset) {
+      return super.startsWith(prefix, toffset);
+    }
+
+    final String start = prefix.str();
+    int pos = 0;
+    for (Node text = nextText(m_node); null != text && pos < start.length(); text = nextText(text)) {
+      final String value = text.getNodeValue();
+      final int len = Math.min(value.length(), start.length() - pos);
+      if (!start.regionMatches(pos, value, 0, len)) {
+        return false;
+      }
+      pos += len;
+    }
+    return pos == start.length();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int indexOf(final XString str) {
+    if (null != m_obj) {
+      return super.indexOf(str);
+    }
+    return indexOf(str.str(), null);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean contains(final XString str) {
+    if (null != m_obj) {
+      return super.contains(str);
+    }
+    return indexOf(str.str(), null) > -1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int indexOf(final StringSearch search) {
+    if (null != m_obj) {
+      return super.indexOf(search);
+    }
+    return indexOf(search.getPattern(), search);
+  }
+
+  /**
+   * Search the text nodes one after the other.
+   *
+   * @param pattern the string to find
+   * @param search the precompiled search for the pattern, or null to use String.indexOf()
+   * @return the index of the first occurrence, or -1
+   */
+  private int indexOf(final String pattern, final StringSearch search) {
+    final int overlap = pattern.length() - 1;
+    if (overlap < 0) {
+      return 0;
+    }
+
+    // the last chars of the text seen so far; a match starting there may end in the next node
+    String carry = "";
+    int pos = 0;
+    for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+      final String value = text.getNodeValue();
+      if (!carry.isEmpty()) {
+        final String joined = carry + value.substring(0, Math.min(value.length(), overlap));
+        final int index = null == search ? joined.indexOf(pattern) : search.indexOf(joined, 0);
+        if (index > -1) {
+          return pos - carry.length() + index;
+        }
+      }
+      final int index = null == search ? value.indexOf(pattern) : search.indexOf(value, 0);
+      if (index > -1) {
+        return pos + index;
+      }
+
+      if (value.length() >= overlap) {
+        carry = value.substring(value.length() - overlap);
+      }
+      else {
+        final String joined = carry + value;
+        carry = joined.substring(Math.max(0, joined.length() - overlap));
+      }
+      pos += value.length();
+    }
+    return -1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public XString substringBefore(final StringSearch search) {
+    if (null != m_obj) {
+      return super.substringBefore(search);
+    }
+
+    final int index = indexOf(search);
+    if (index < 1) {
+      return EMPTYSTRING;
+    }
+
+    // only the text up to the match
+    final StringBuilder buf = new StringBuilder(index);
+    for (Node text = nextText(m_node); null != text && buf.length() < index; text = nextText(text)) {
+      final String value = text.getNodeValue();
+      buf.append(value, 0, Math.min(value.length(), index - buf.length()));
+    }
+    return new XString(buf.toString());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public XString substringAfter(final StringSearch search) {
+    if (null != m_obj) {
+      return super.substringAfter(search);
+    }
+
+    final int index = indexOf(search);
+    if (index < 0) {
+      return EMPTYSTRING;
+    }
+
+    // only the text after the match
+    final int start = index + search.getPattern().length();
+    final StringBuilder buf = new StringBuilder();
+    int pos = 0;
+    for (Node text = nextText(m_node); null != text; text = nextText(text)) {
+      final String value = text.getNodeValue();
+      final int end = pos + value.length();
+      if (end > start) {
+        buf.append(value, Math.max(0, start - pos), value.length());
+      }
+      pos = end;
+    }
+    return new XString(buf.toString());
+  }
+
+  /**
+   * Find the next text node of the subtree, in document order. Like the string-value, this does
+   * not look into entity references, comments or processing instructions.
+   *
+   * @param node the subtree root or the last text node
+   * @return the next text or CDATA section node, or null at the end of the subtree
+   */
+  private Node nextText(final Node node) {
+    Node next = node;
+    while (true) {
+      Node child = null;
+      if (isContainer(next)) {
+        child = next.getFirstChild();
+      }
+      if (null != child) {
+        next = child;
+      }
+      else {
+        while (next != m_node && null == next.getNextSibling()) {
+          next = next.getParentNode();
+        }
+        if (next == m_node) {
+          return null;
+        }
+        next = next.getNextSibling();
+      }
+
+      final short type = next.getNodeType();
+      if (Node.TEXT_NODE == type || Node.CDATA_SECTION_NODE == type) {
+        return next;
+      }
+    }
+  }
+
+  private static boolean isContainer(final Node node) {
+    final short type = node.getNodeType();
+    return Node.ELEMENT_NODE == type
+        || Node.DOCUMENT_NODE == type
+        || Node.DOCUMENT_FRAGMENT_NODE == type;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.operations;
+
+import org.htmlunit.xpath.Expression;
+import org.htmlunit.xpath.NodeSetDTM;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.objects.XNodeSet;
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.DTMIterator;
+
+/**
+ * Wraps a subexpression of a predicate that depends neither on the context node nor on the context
+ * position or size, like the right side of <code>//item[@price &gt; sum(//limit) div count(//limit)]
+ * </code>. The compiler inserts these; the subexpression is then evaluated once per document and
+ * XPath evaluation instead of once per node, the result is kept in the {@link XPathContext}.
+ */
+public class Invariant extends UnaryOperation {
+
+  /** {@inheritDoc} */
+  @Override
+  public XObject execute(final XPathContext xctxt) throws javax.xml.transform.TransformerException {
+    final int current = xctxt.getCurrentNode();
+    if (DTM.NULL == current) {
+      return m_right.execute(xctxt);
+    }
+
+    final int document = xctxt.getDTM(current).getDocumentRoot(current);
+    XObject result = xctxt.getInvariant(this, document);
+    if (null == result) {
+      result = m_right.execute(xctxt);
+
+      if (XObject.CLASS_NODESET == result.getType()) {
+        // keep the nodes, the iterator that found them goes back to its pool
+        final XNodeSet nodes = new XNodeSet(xctxt.getDTMManager());
+        final NodeSetDTM nodeSet = nodes.mutableNodeset();
+        final DTMIterator iter = result.iter();
+        int node;
+        while (DTM.NULL != (node = iter.nextNode())) {
+          nodeSet.addNode(node);
+        }
+        result.detach();
+        result = nodes;
+      }
+
+      xctxt.setInvariant(this, document, result);
+    }
+    else if (result instanceof XNodeSet nodes) {
+      nodes.reset();
+    }
+    return result;
+  }
+
+  /**
+   * The result does not change while the nodes of one document are tested, a positional predicate
+   * can stop the iteration once it matched.
+   *
+   * @return true
+   */
+  @Override
+  public boolean isStableNumber() {
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public XObject operate(final XObject right) {
+    return right;
+  }
+
+  /**
+   * @return the wrapped subexpression
+   */
+  public Expression getExpression() {
+    return m_right;
+  }
+}
@@ -28,7 +28,7 @@ public class Minus extends Operation {
   @Override
   public XObject operate(final XObject left, final XObject right)
       throws javax.xml.transform.TransformerException {
-    return new XNumber(left.num() - right.num());
+    return XNumber.valueOf(left.num() - right.num());
   }
 
   /** {@inheritDoc} */
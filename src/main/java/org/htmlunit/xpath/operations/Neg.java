@@ -27,7 +27,7 @@ public class Neg extends UnaryOperation {
   /** {@inheritDoc} */
   @Override
   public XObject operate(final XObject right) throws javax.xml.transform.TransformerException {
-    return new XNumber(-right.num());
+    return XNumber.valueOf(-right.num());
   }
 
   /** {@inheritDoc} */
@@ -31,7 +31,7 @@ public class Number extends UnaryOperation {
     if (XObject.CLASS_NUMBER == right.getType()) {
       return right;
     }
-    return new XNumber(right.num());
+    return XNumber.valueOf(right.num());
   }
 
   /** {@inheritDoc} */
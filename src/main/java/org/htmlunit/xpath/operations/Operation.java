@@ -39,6 +39,20 @@ public class Operation extends Expression {
    */
   protected Expression m_right;
 
+  /**
+   * @return the left operand of the binary operation.
+   */
+  public Expression getLeftOperand() {
+    return m_left;
+  }
+
+  /**
+   * @return the right operand of the binary operation.
+   */
+  public Expression getRightOperand() {
+    return m_right;
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean canTraverseOutsideSubtree() {
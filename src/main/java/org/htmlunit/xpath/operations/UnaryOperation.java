@@ -32,6 +32,13 @@ public abstract class UnaryOperation extends Expression {
    */
   protected Expression m_right;
 
+  /**
+   * @return the operand of the unary operation.
+   */
+  public Expression getOperand() {
+    return m_right;
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean canTraverseOutsideSubtree() {
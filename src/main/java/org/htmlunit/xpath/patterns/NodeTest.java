@@ -59,6 +59,16 @@ public class NodeTest extends Expression {
     return m_whatToShow;
   }
 
+  /**
+   * The node types accepted by this node test. Unlike {@link #getWhatToShow()}, which location path
+   * iterators override for the DTMIterator interface, this is always the bitset of the test itself.
+   *
+   * @return bitset mainly defined in {@link org.w3c.dom.traversal.NodeFilter}.
+   */
+  public final int getNodeTestWhatToShow() {
+    return m_whatToShow;
+  }
+
   /**
    * This attribute determines which node types are accepted. These constants are defined in the
    * {@link org.w3c.dom.traversal.NodeFilter} interface.
@@ -47,6 +47,15 @@ public class UnionPattern extends Expression {
     return false;
   }
 
+  /**
+   * Get the contained step patterns to be tested.
+   *
+   * @return the contained step patterns, or null if none have been set.
+   */
+  public StepPattern[] getPatterns() {
+    return patterns_;
+  }
+
   /**
    * Set the contained step patterns to be tested.
    *
@@ -158,6 +158,7 @@ public class XPATHErrorResources extends ListResourceBundle {
   public static final String ER_NOT_SUPPORTED = "ER_NOT_SUPPORTED";
   public static final String ER_NODE_NON_NULL = "ER_NODE_NON_NULL";
   public static final String ER_COULD_NOT_RESOLVE_NODE = "ER_COULD_NOT_RESOLVE_NODE";
+  public static final String ER_DTM_RELEASED = "ER_DTM_RELEASED";
   public static final String ER_SELF_CAUSATION_NOT_PERMITTED = "ER_SELF_CAUSATION_NOT_PERMITTED";
   public static final String ER_METHOD_NOT_SUPPORTED = "ER_METHOD_NOT_SUPPORTED";
   public static final String ER_AXIS_TRAVERSER_NOT_SUPPORTED = "ER_AXIS_TRAVERSER_NOT_SUPPORTED";
@@ -271,6 +272,7 @@ public class XPATHErrorResources extends ListResourceBundle {
       {ER_NOT_SUPPORTED, "Not supported: {0}"},
       {ER_NODE_NON_NULL, "Node must be non-null for getDTMHandleFromNode"},
       {ER_COULD_NOT_RESOLVE_NODE, "Could not resolve the node to a handle"},
+      {ER_DTM_RELEASED, "The DTM of node handle {0} has been released"},
       {ER_SELF_CAUSATION_NOT_PERMITTED, "Self-causation not permitted"},
       {ER_METHOD_NOT_SUPPORTED, "Method not yet supported "},
       {ER_AXIS_TRAVERSER_NOT_SUPPORTED, "Axis traverser not supported: {0}"},
@@ -270,6 +270,18 @@ public interface DTM {
    */
   XString getStringValue(int nodeHandle);
 
+  /**
+   * Get the string-value of a node converted to a number, as the number() function does. This
+   * saves creating the string-value where the DTM can parse the text of the node directly.
+   * The default converts the string-value.
+   *
+   * @param nodeHandle The node ID.
+   * @return the number value of the node, NaN if its string-value is not a number.
+   */
+  default double getNumberValue(final int nodeHandle) {
+    return getStringValue(nodeHandle).toDouble();
+  }
+
   /**
    * Given a node handle, return an ID that represents the node's expanded name.
    *
@@ -41,6 +41,88 @@ public abstract class DTMManager {
   protected DTMManager() {
   }
 
+  /** Set this to false if DTMs created from DOM nodes should be built eagerly. */
+  protected boolean m_incremental = true;
+
+  /** The expected number of nodes of eagerly built DTMs, or 0 if unknown. */
+  protected int m_nodeCountHint = 0;
+
+  /**
+   * @return true if DTMs created by {@link #getDTMHandleFromNode(org.w3c.dom.Node)} are built
+   *     incrementally.
+   */
+  public synchronized boolean getIncremental() {
+    return m_incremental;
+  }
+
+  /**
+   * Set whether DTMs created by {@link #getDTMHandleFromNode(org.w3c.dom.Node)} are built
+   * incrementally (the default), or completely before the first node handle is returned.
+   *
+   * @param incremental true if the DTMs should be built incrementally.
+   */
+  public synchronized void setIncremental(final boolean incremental) {
+    m_incremental = incremental;
+  }
+
+  /** Set this to true if eagerly built DTMs should keep their node arrays off the Java heap. */
+  protected boolean m_offHeap = false;
+
+  /**
+   * @return true if eagerly built DTMs keep their node arrays off the Java heap.
+   */
+  public synchronized boolean getOffHeap() {
+    return m_offHeap;
+  }
+
+  /**
+   * Set whether eagerly built DTMs (see {@link #setIncremental(boolean)}) keep their node arrays
+   * off the Java heap. Such DTMs should be given back with {@link #release(DTM)} when they are no
+   * longer needed.
+   *
+   * @param offHeap true if the node arrays should be stored off-heap.
+   */
+  public synchronized void setOffHeap(final boolean offHeap) {
+    m_offHeap = offHeap;
+  }
+
+  /**
+   * @return the expected number of nodes of eagerly built DTMs, or 0 if unknown.
+   */
+  public synchronized int getNodeCountHint() {
+    return m_nodeCountHint;
+  }
+
+  /**
+   * Set the expected number of nodes of eagerly built DTMs; used to pre-size the node arrays.
+   *
+   * @param nodeCountHint the expected number of nodes, or 0 if unknown.
+   */
+  public synchronized void setNodeCountHint(final int nodeCountHint) {
+    m_nodeCountHint = nodeCountHint;
+  }
+
+  /** The number of string-values each DTM created from a DOM caches, or 0 for none. */
+  protected int m_stringValueCacheSize = 0;
+
+  /**
+   * @return the number of string-values each DTM created from a DOM caches, or 0 for none.
+   */
+  public synchronized int getStringValueCacheSize() {
+    return m_stringValueCacheSize;
+  }
+
+  /**
+   * Set the number of string-values of elements each DTM created from a DOM caches. Useful if the
+   * expressions ask for the string-value of the same large elements again and again. The values are
+   * only kept for one evaluation, XPath.execute() drops them before it starts.
+   *
+   * @param stringValueCacheSize the number of cached values, or 0 for no caching.
+   */
+  public synchronized void setStringValueCacheSize(final int stringValueCacheSize) {
+    m_stringValueCacheSize = stringValueCacheSize;
+  }
+
   /**
    * Obtain a new instance of a <code>DTMManager</code>. This static method creates a new factory
    * instance This method uses the following ordered lookup procedure to determine the <code>
@@ -95,6 +177,23 @@ public abstract class DTMManager {
    */
   public abstract DTM getDTM(int nodeHandle);
 
+  /**
+   * Release a DTM and the storage it holds. Node handles of this DTM must not be used afterwards.
+   *
+   * @param dtm the DTM to release.
+   * @return true if the DTM was managed by this manager and has been released; false by default.
+   */
+  public boolean release(final DTM dtm) {
+    return false;
+  }
+
+  /**
+   * Drop the cached string-values of all DTMs, the documents may have changed; see {@link
+   * #setStringValueCacheSize(int)}. Does nothing by default.
+   */
+  public void clearStringValueCaches() {
+  }
+
   /**
    * Given a W3C DOM node, try and return a DTM handle. Note: calling this may be non-optimal.
    *
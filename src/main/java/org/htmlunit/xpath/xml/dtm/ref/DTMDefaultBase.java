@@ -34,6 +34,7 @@ import org.htmlunit.xpath.res.XPATHMessages;
 import org.htmlunit.xpath.xml.dtm.DTM;
 import org.htmlunit.xpath.xml.dtm.DTMAxisTraverser;
 import org.htmlunit.xpath.xml.dtm.DTMManager;
+import org.htmlunit.xpath.xml.utils.HeapSize;
 import org.htmlunit.xpath.xml.utils.SuballocatedIntVector;
 
 /**
@@ -52,20 +53,40 @@ public abstract class DTMDefaultBase implements DTM {
   /** The number of nodes, which is also used to determine the next node index. */
   protected int m_size = 0;
 
-  /** The expanded names, one array element for each node. */
-  protected final SuballocatedIntVector m_exptype;
+  /**
+   * true if ALL the nodes of the source have been added; false if an incremental build has not yet
+   * finished. Once this is set, the node arrays are never changed again and the _xxx accessors skip
+   * the lazy-build checks.
+   */
+  protected boolean m_nodesAreProcessed;
+
+  /**
+   * The expanded names, one array element for each node. This and the other node vectors are set
+   * to null when the nodes are moved off-heap; see {@link #moveNodeArraysOffHeap()}.
+   */
+  protected SuballocatedIntVector m_exptype;
 
   /** First child values, one array element for each node. */
-  protected final SuballocatedIntVector m_firstch;
+  protected SuballocatedIntVector m_firstch;
 
   /** Next sibling values, one array element for each node. */
-  protected final SuballocatedIntVector m_nextsib;
+  protected SuballocatedIntVector m_nextsib;
 
   /** Previous sibling values, one array element for each node. */
   protected SuballocatedIntVector m_prevsib;
 
   /** Previous sibling values, one array element for each node. */
-  protected final SuballocatedIntVector m_parent;
+  protected SuballocatedIntVector m_parent;
+
+  /** true if the previous sibling values are recorded. */
+  protected final boolean m_usePrevsib;
+
+  /**
+   * Read-only copy of the node arrays, indexed directly by node identity. This is only available
+   * once the DTM has been built completely and {@link #compactNodeArrays()} or {@link
+   * #moveNodeArraysOffHeap()} was called; null otherwise.
+   */
+  protected DTMNodeTable m_nodeTable;
 
   /** Vector of SuballocatedIntVectors of NS decl sets */
   protected List<SuballocatedIntVector> m_namespaceDeclSets = null;
@@ -178,6 +199,7 @@ public abstract class DTMDefaultBase implements DTM {
     if (usePrevsib) {
       m_prevsib = new SuballocatedIntVector(blocksize, numblocks);
     }
+    m_usePrevsib = usePrevsib;
 
     m_mgr = mgr;
     if (mgr instanceof DTMManagerDefault default1) {
@@ -377,6 +399,124 @@ public abstract class DTMDefaultBase implements DTM {
     return NULL;
   }
 
+  /**
+   * Switch the node accessors to flat arrays and drop the vectors. Has no effect unless all the
+   * nodes have been added. Each lookup is then a single array access, without the block addressing
+   * of the vectors and without the lazy-build checks.
+   */
+  protected void compactNodeArrays() {
+    if (!m_nodesAreProcessed || null != m_nodeTable) {
+      return;
+    }
+
+    m_nodeTable = new FlatNodeTable(m_exptype, m_firstch, m_nextsib, m_prevsib, m_parent);
+
+    m_exptype = null;
+    m_firstch = null;
+    m_nextsib = null;
+    m_prevsib = null;
+    m_parent = null;
+  }
+
+  /**
+   * Move the node arrays out of the Java heap and drop the vectors. Has no effect unless all the
+   * nodes have been added. Use {@link #release()} to give the storage back.
+   */
+  protected void moveNodeArraysOffHeap() {
+    if (!m_nodesAreProcessed || m_nodeTable instanceof OffHeapNodeTable) {
+      return;
+    }
+
+    if (null == m_nodeTable) {
+      m_nodeTable = new OffHeapNodeTable(m_size, m_exptype, m_firstch, m_nextsib, m_prevsib, m_parent);
+    }
+    else {
+      m_nodeTable = new OffHeapNodeTable(m_size, m_nodeTable);
+    }
+
+    m_exptype = null;
+    m_firstch = null;
+    m_nextsib = null;
+    m_prevsib = null;
+    m_parent = null;
+  }
+
+  /**
+   * Release the node storage of this DTM. The DTM must not be used afterwards; this is normally
+   * called by {@link DTMManagerDefault#release(DTM)}.
+   */
+  public void release() {
+    if (null != m_nodeTable) {
+      m_nodeTable.release();
+    }
+  }
+
+  /**
+   * Get the read-only node arrays of this DTM.
+   *
+   * @return the node arrays, or null unless the DTM has been built completely and switched to flat
+   *     or off-heap arrays
+   */
+  public DTMNodeTable getNodeTable() {
+    return m_nodeTable;
+  }
+
+  /**
+   * Estimate the heap size of the structures this DTM built: the node vectors or the node table,
+   * the element index and the namespace declaration sets. Shared structures like the expanded name
+   * table and the source document are not included.
+   *
+   * @return the estimated number of bytes retained by this DTM
+   */
+  public long getHeapBytes() {
+    long bytes = getHeapBytes(m_exptype);
+    bytes += getHeapBytes(m_firstch);
+    bytes += getHeapBytes(m_nextsib);
+    bytes += getHeapBytes(m_prevsib);
+    bytes += getHeapBytes(m_parent);
+    if (null != m_nodeTable) {
+      bytes += m_nodeTable.getHeapBytes();
+    }
+
+    final int[][][] indexes = m_elemIndexes;
+    if (null != indexes) {
+      bytes += HeapSize.ofReferences(indexes.length);
+      for (final int[][] localNameIndex : indexes) {
+        if (null != localNameIndex) {
+          bytes += HeapSize.ofReferences(localNameIndex.length);
+          for (final int[] index : localNameIndex) {
+            if (null != index) {
+              bytes += HeapSize.ofInts(index.length);
+            }
+          }
+        }
+      }
+    }
+
+    if (null != m_namespaceDeclSets) {
+      bytes += HeapSize.ofReferences(m_namespaceDeclSets.size());
+      for (final SuballocatedIntVector nsList : m_namespaceDeclSets) {
+        bytes += getHeapBytes(nsList);
+      }
+      bytes += getHeapBytes(m_namespaceDeclSetElements);
+    }
+    return bytes;
+  }
+
+  private static long getHeapBytes(final SuballocatedIntVector vector) {
+    return null == vector ? 0 : vector.getHeapBytes();
+  }
+
+  /**
+   * Get the number of nodes that have been added to this DTM so far. Unless the DTM has been built
+   * completely, this may be less than the number of nodes in the source.
+   *
+   * @return the number of nodes.
+   */
+  public int getNumberOfNodes() {
+    return m_size;
+  }
+
   /**
    * Get the expanded type ID for the given node identity.
    *
@@ -387,6 +527,13 @@ public abstract class DTMDefaultBase implements DTM {
     if (identity == DTM.NULL) {
       return NULL;
     }
+    final DTMNodeTable nodes = m_nodeTable;
+    if (null != nodes) {
+      return identity < m_size ? nodes.exptype(identity) : NULL;
+    }
+    if (m_nodesAreProcessed) {
+      return identity < m_size ? m_exptype.elementAt(identity) : NULL;
+    }
     // Reorganized test and loop into single flow
     // Tiny performance improvement, saves a few bytes of code, clearer.
     // %OPT% Other internal getters could be treated simliarly
@@ -427,6 +574,15 @@ public abstract class DTMDefaultBase implements DTM {
    */
   protected int _firstch(final int identity) {
 
+    // Fully built; no NOTPROCESSED entries are left.
+    final DTMNodeTable nodes = m_nodeTable;
+    if (null != nodes) {
+      return identity < m_size ? nodes.firstch(identity) : NULL;
+    }
+    if (m_nodesAreProcessed) {
+      return identity < m_size ? m_firstch.elementAt(identity) : NULL;
+    }
+
     // Boilerplate code for each of the _xxx functions, except for the array.
     int info = (identity >= m_size) ? NOTPROCESSED : m_firstch.elementAt(identity);
 
@@ -455,6 +611,15 @@ public abstract class DTMDefaultBase implements DTM {
    * @return The next sibling identity, or DTM.NULL.
    */
   protected int _nextsib(final int identity) {
+    // Fully built; no NOTPROCESSED entries are left.
+    final DTMNodeTable nodes = m_nodeTable;
+    if (null != nodes) {
+      return identity < m_size ? nodes.nextsib(identity) : NULL;
+    }
+    if (m_nodesAreProcessed) {
+      return identity < m_size ? m_nextsib.elementAt(identity) : NULL;
+    }
+
     // Boilerplate code for each of the _xxx functions, except for the array.
     int info = (identity >= m_size) ? NOTPROCESSED : m_nextsib.elementAt(identity);
 
@@ -483,6 +648,10 @@ public abstract class DTMDefaultBase implements DTM {
    * @return The previous sibling identity, or DTM.NULL.
    */
   protected int _prevsib(final int identity) {
+    final DTMNodeTable nodes = m_nodeTable;
+    if (null != nodes) {
+      return identity < m_size ? nodes.prevsib(identity) : NULL;
+    }
 
     if (identity < m_size) {
       return m_prevsib.elementAt(identity);
@@ -510,6 +679,10 @@ public abstract class DTMDefaultBase implements DTM {
    * @return The parent identity, or DTM.NULL.
    */
   protected int _parent(final int identity) {
+    final DTMNodeTable nodes = m_nodeTable;
+    if (null != nodes) {
+      return identity < m_size ? nodes.parent(identity) : NULL;
+    }
 
     if (identity < m_size) {
       return m_parent.elementAt(identity);
@@ -594,7 +767,7 @@ public abstract class DTMDefaultBase implements DTM {
           ps.println("First child: " + firstChild);
         }
 
-        if (m_prevsib != null) {
+        if (m_usePrevsib) {
           final int prevSibling = _prevsib(index);
 
           if (DTM.NULL == prevSibling) {
@@ -848,7 +1021,7 @@ public abstract class DTMDefaultBase implements DTM {
       return DTM.NULL;
     }
 
-    if (m_prevsib != null) {
+    if (m_usePrevsib) {
       return makeNodeHandle(_prevsib(makeNodeIdentity(nodeHandle)));
     }
     // If the previous sibling array is not built, we get at
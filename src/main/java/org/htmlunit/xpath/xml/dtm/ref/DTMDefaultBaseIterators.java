@@ -45,6 +45,26 @@ public abstract class DTMDefaultBaseIterators extends DTMDefaultBaseTraversers {
     super(mgr, source, dtmIdentity, doIndexing);
   }
 
+  /**
+   * Construct a DTMDefaultBaseTraversers object from a DOM node.
+   *
+   * @param mgr The DTMManager who owns this DTM.
+   * @param source The object that is used to specify the construction source.
+   * @param dtmIdentity The DTM identity ID for this DTM.
+   * @param doIndexing true if the caller considers it worth it to use indexing schemes.
+   * @param blocksize The block size of the DTM.
+   * @param usePrevsib true if we want to build the previous sibling node array.
+   */
+  public DTMDefaultBaseIterators(
+      final DTMManager mgr,
+      final Source source,
+      final int dtmIdentity,
+      final boolean doIndexing,
+      final int blocksize,
+      final boolean usePrevsib) {
+    super(mgr, source, dtmIdentity, doIndexing, blocksize, usePrevsib);
+  }
+
   /** {@inheritDoc} */
   @Override
   public DTMAxisIterator getAxisIterator(final int axis) {
@@ -48,6 +48,26 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
         super(mgr, source, dtmIdentity, doIndexing);
     }
 
+    /**
+     * Construct a DTMDefaultBaseTraversers object from a DOM node.
+     *
+     * @param mgr         The DTMManager who owns this DTM.
+     * @param source      The object that is used to specify the construction source.
+     * @param dtmIdentity The DTM identity ID for this DTM.
+     * @param doIndexing  flag
+     * @param blocksize   The block size of the DTM.
+     * @param usePrevsib  true if we want to build the previous sibling node array.
+     */
+    public DTMDefaultBaseTraversers(
+            final DTMManager mgr,
+            final Source source,
+            final int dtmIdentity,
+            final boolean doIndexing,
+            final int blocksize,
+            final boolean usePrevsib) {
+        super(mgr, source, dtmIdentity, doIndexing, blocksize, usePrevsib);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -161,8 +181,8 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
             // Process using identities
             current = makeNodeIdentity(current);
 
-            while (DTM.NULL != (current = m_parent.elementAt(current))) {
-                if (m_exptype.elementAt(current) == expandedTypeID) {
+            while (DTM.NULL != (current = _parent(current))) {
+                if (_exptype(current) == expandedTypeID) {
                     return makeNodeHandle(current);
                 }
             }
@@ -251,7 +271,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
                 final int nextID = findElementFromIndex(nsIndex, lnIndex, nextPotential);
 
                 if (NOTPROCESSED != nextID) {
-                    int parentID = m_parent.elementAt(nextID);
+                    int parentID = _parent(nextID);
 
                     // Is it a child?
                     if (parentID == axisRoot) {
@@ -270,7 +290,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
                     // which case we return NULL, or until it is equal to the subtree
                     // root, in which case we continue to look.
                     do {
-                        parentID = m_parent.elementAt(parentID);
+                        parentID = _parent(parentID);
                         if (parentID < axisRoot) {
                             return NULL;
                         }
@@ -284,7 +304,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
 
                 nextNode();
 
-                if (!(m_nextsib.elementAt(axisRoot) == NOTPROCESSED)) {
+                if (m_nodesAreProcessed || !(m_nextsib.elementAt(axisRoot) == NOTPROCESSED)) {
                     break;
                 }
             }
@@ -329,7 +349,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
             for (current = _nextsib(makeNodeIdentity(current));
                  DTM.NULL != current;
                  current = _nextsib(current)) {
-                if (m_exptype.elementAt(current) == expandedTypeID) {
+                if (_exptype(current) == expandedTypeID) {
                     return makeNodeHandle(current);
                 }
             }
@@ -434,7 +454,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
          */
         @Override
         protected boolean axisHasBeenProcessed(final int axisRoot) {
-            return !(m_nextsib.elementAt(axisRoot) == NOTPROCESSED);
+            return m_nodesAreProcessed || !(m_nextsib.elementAt(axisRoot) == NOTPROCESSED);
         }
 
         /**
@@ -475,7 +495,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
                 if (identity == axisRoot) {
                     return false;
                 }
-                identity = m_parent.elementAt(identity);
+                identity = _parent(identity);
             }
             while (identity >= axisRoot);
 
@@ -857,8 +877,8 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
             // Compute in ID space
             current = makeNodeIdentity(current);
 
-            while (NULL != (current = m_parent.elementAt(current))) {
-                if (m_exptype.elementAt(current) == expandedTypeID) {
+            while (NULL != (current = _parent(current))) {
+                if (_exptype(current) == expandedTypeID) {
                     return makeNodeHandle(current);
                 }
             }
@@ -902,9 +922,9 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
         protected boolean isAncestor(int contextIdent, final int currentIdent) {
             // %REVIEW% See comments in IsAfterAxis; using the "successor" of
             // contextIdent is probably more efficient.
-            for (contextIdent = m_parent.elementAt(contextIdent);
+            for (contextIdent = _parent(contextIdent);
                  DTM.NULL != contextIdent;
-                 contextIdent = m_parent.elementAt(contextIdent)) {
+                 contextIdent = _parent(contextIdent)) {
                 if (contextIdent == currentIdent) {
                     return true;
                 }
@@ -945,7 +965,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
             final int subtreeRootIdent = makeNodeIdentity(context);
 
             for (current = makeNodeIdentity(current) - 1; current >= 0; current--) {
-                final int exptype = m_exptype.elementAt(current);
+                final int exptype = _exptype(current);
 
                 if (exptype != expandedTypeID || isAncestor(subtreeRootIdent, current)) {
                     continue;
@@ -993,7 +1013,7 @@ public abstract class DTMDefaultBaseTraversers extends DTMDefaultBase {
             makeNodeIdentity(context);
 
             for (current = makeNodeIdentity(current) - 1; current >= 0; current--) {
-                final int exptype = m_exptype.elementAt(current);
+                final int exptype = _exptype(current);
 
                 if (exptype != expandedTypeID) {
                     continue;
@@ -17,9 +17,22 @@
  */
 package org.htmlunit.xpath.xml.dtm.ref;
 
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
 
+import org.htmlunit.xpath.jfr.DTMBuildEvent;
+import org.htmlunit.xpath.jfr.FlightRecorderSupport;
+import org.htmlunit.xpath.metrics.Metrics;
 import org.htmlunit.xpath.res.XPATHErrorResources;
 import org.htmlunit.xpath.res.XPATHMessages;
 import org.htmlunit.xpath.xml.dtm.DTM;
@@ -71,6 +84,24 @@ public class DTMManagerDefault extends DTMManager {
    */
   int[] m_dtm_offsets = new int[256];
 
+  /**
+   * True for the DTM identifiers of released DTMs. They are not handed out again while other
+   * identifiers are available, so a handle of a released DTM does not resolve to another document.
+   */
+  private boolean[] m_released = new boolean[256];
+
+  /** The value of m_useClock when the DTM identifier was last used to resolve a handle. */
+  private long[] m_lastUse = new long[256];
+
+  /** True once one of the DTMs caches string-values, see {@link #stringValueCacheCreated()}. */
+  private volatile boolean m_stringValueCaches;
+
+  /** Counts the DTM lookups, to find the DTMs not used for the longest time. */
+  private long m_useClock;
+
+  /** The soft limit for the heap bytes of all DTMs; see {@link #setMemoryLimit(long)}. */
+  private long m_memoryLimit = Long.MAX_VALUE;
+
   /**
    * Add a DTM to the DTM table.
    *
@@ -107,17 +138,37 @@ public class DTMManagerDefault extends DTMManager {
       final int[] newDtmOffsets = new int[newlen];
       System.arraycopy(m_dtm_offsets, 0, newDtmOffsets, 0, oldlen);
       m_dtm_offsets = newDtmOffsets;
+      final long[] newLastUse = new long[newlen];
+      System.arraycopy(m_lastUse, 0, newLastUse, 0, oldlen);
+      m_lastUse = newLastUse;
+      final boolean[] newReleased = new boolean[newlen];
+      System.arraycopy(m_released, 0, newReleased, 0, oldlen);
+      m_released = newReleased;
     }
 
     m_dtms[id] = dtm;
+    m_released[id] = false;
     m_dtm_offsets[id] = offset;
+    m_lastUse[id] = ++m_useClock;
     // The DTM should have been told who its manager was when we created it.
     // Do we need to allow for adopting DTMs _not_ created by this manager?
   }
 
-  /** @return the first free DTM ID available. %OPT% Linear search is inefficient! */
+  /**
+   * The IDs of released DTMs are only reused once all other IDs are taken.
+   *
+   * @return the first free DTM ID available. %OPT% Linear search is inefficient!
+   */
   public synchronized int getFirstFreeDTMID() {
     final int n = m_dtms.length;
+    for (int i = 1; i < n; i++) {
+      if (null == m_dtms[i] && !m_released[i]) {
+        return i;
+      }
+    }
+    if (n < IDENT_MAX_DTMS) {
+      return n;
+    }
     for (int i = 1; i < n; i++) {
       if (null == m_dtms[i]) {
         return i;
@@ -149,9 +200,42 @@ public class DTMManagerDefault extends DTMManager {
     final int documentID = dtmPos << IDENT_DTM_NODE_BITS;
 
     if ((null != source) && source instanceof DOMSource mSource) {
-      final DOM2DTM dtm = new DOM2DTM(this, mSource, documentID, doIndexing);
+      if (incremental) {
+        final DTMBuildEvent event = FlightRecorderSupport.isAvailable() ? new DTMBuildEvent() : null;
+        if (null != event) {
+          event.begin();
+        }
+
+        final DOM2DTM dtm = new DOM2DTM(this, mSource, documentID, doIndexing);
+        dtm.setStringValueCacheSize(m_stringValueCacheSize);
+
+        addDTM(dtm, dtmPos, 0);
+        if (Metrics.isEnabled()) {
+          Metrics.getMetrics().dtmCreated();
+        }
+
+        if (null != event) {
+          event.end();
+          if (event.shouldCommit()) {
+            event.describe(dtm, false);
+            event.commit();
+          }
+        }
+        enforceMemoryLimit(dtm);
+        return dtm;
+      }
 
+      final DOM2DTM dtm = new DOM2DTM(this, mSource, documentID, doIndexing, m_nodeCountHint);
+      dtm.setStringValueCacheSize(m_stringValueCacheSize);
+
+      // The DTM has to be registered before it is built, overflow
+      // addressing asks us for more DTM IDs.
       addDTM(dtm, dtmPos, 0);
+      if (Metrics.isEnabled()) {
+        Metrics.getMetrics().dtmCreated();
+      }
+      dtm.buildFully(m_offHeap);
+      enforceMemoryLimit(dtm);
       return dtm;
     }
 
@@ -162,6 +246,80 @@ public class DTMManagerDefault extends DTMManager {
             XPATHErrorResources.ER_NOT_SUPPORTED, new Object[] {source}));
   }
 
+  /**
+   * Map a snapshot written by {@link DTMSnapshot#write(DTM, Path)} into memory and register it as
+   * a read-only DTM.
+   *
+   * @param snapshot the snapshot file
+   * @return the DTM, its nodes are backed by the file
+   * @throws IOException in case of problems mapping the file
+   */
+  public synchronized DTM loadSnapshot(final Path snapshot) throws IOException {
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    final int dtmPos = getFirstFreeDTMID();
+    final MappedDTM dtm = new MappedDTM(this, buffer, dtmPos << IDENT_DTM_NODE_BITS);
+    addDTM(dtm, dtmPos, 0);
+    dtm.load(this);
+    if (Metrics.isEnabled()) {
+      Metrics.getMetrics().dtmCreated();
+      Metrics.getMetrics().dtmNodesAdded(dtm.getNumberOfNodes());
+    }
+    enforceMemoryLimit(dtm);
+    return dtm;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized boolean release(final DTM dtm) {
+    boolean found = false;
+    // overflow addressing may have bound the DTM to several IDs
+    for (int i = 0; i < m_dtms.length; i++) {
+      if (m_dtms[i] == dtm) {
+        m_dtms[i] = null;
+        m_dtm_offsets[i] = 0;
+        m_released[i] = true;
+        found = true;
+      }
+    }
+
+    if (found && dtm instanceof DTMDefaultBase base) {
+      base.release();
+      if (Metrics.isEnabled()) {
+        Metrics.getMetrics().dtmReleased(base.getNumberOfNodes());
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Called by a DTM that starts caching string-values; until then {@link
+   * #clearStringValueCaches()} has nothing to visit.
+   */
+  public void stringValueCacheCreated() {
+    m_stringValueCaches = true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void clearStringValueCaches() {
+    // called for every evaluation, without a cache this must not take the lock
+    if (!m_stringValueCaches) {
+      return;
+    }
+
+    synchronized (this) {
+      for (final DTM dtm : m_dtms) {
+        if (dtm instanceof DOM2DTM dom2dtm) {
+          dom2dtm.clearStringValueCache();
+        }
+      }
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public synchronized int getDTMHandleFromNode(final org.w3c.dom.Node node) {
@@ -195,10 +353,13 @@ public class DTMManagerDefault extends DTMManager {
     // POSSIBLE SOLUTIONS:
     // Generate a list of _unique_ DTM objects?
     // Have each DTM cache last DOM node search?
-    for (final DTM thisDTM : m_dtms) {
-      if ((null != thisDTM) && thisDTM instanceof DOM2DTM tM) {
+    for (int i = 0; i < m_dtms.length; i++) {
+      if (m_dtms[i] instanceof DOM2DTM tM) {
         final int handle = tM.getHandleOfNode(node);
         if (handle != DTM.NULL) {
+            if (Long.MAX_VALUE != m_memoryLimit) {
+              m_lastUse[i] = ++m_useClock;
+            }
             return handle;
         }
       }
@@ -233,7 +394,7 @@ public class DTMManagerDefault extends DTMManager {
     }
 
     final DOM2DTM dtm =
-        (DOM2DTM) getDTM(new javax.xml.transform.dom.DOMSource(root), false, true, true);
+        (DOM2DTM) getDTM(new javax.xml.transform.dom.DOMSource(root), false, m_incremental, true);
 
     int handle;
 
@@ -261,7 +422,18 @@ public class DTMManagerDefault extends DTMManager {
   public synchronized DTM getDTM(final int nodeHandle) {
     try {
       // Performance critical function.
-      return m_dtms[nodeHandle >>> IDENT_DTM_NODE_BITS];
+      final int id = nodeHandle >>> IDENT_DTM_NODE_BITS;
+      final DTM dtm = m_dtms[id];
+      if (null == dtm && m_released[id]) {
+        throw new RuntimeException(
+            XPATHMessages.createXPATHMessage(
+                XPATHErrorResources.ER_DTM_RELEASED, new Object[] {Integer.toHexString(nodeHandle)}));
+      }
+      // the last use only decides which DTMs to release if there is a limit
+      if (Long.MAX_VALUE != m_memoryLimit) {
+        m_lastUse[id] = ++m_useClock;
+      }
+      return dtm;
     }
     catch (final java.lang.ArrayIndexOutOfBoundsException e) {
       if (nodeHandle == DTM.NULL) {
@@ -271,6 +443,95 @@ public class DTMManagerDefault extends DTMManager {
     }
   }
 
+  /**
+   * Estimate the heap size of all DTMs of this manager.
+   *
+   * @return the estimated number of bytes retained by the DTMs
+   * @see DTMDefaultBase#getHeapBytes()
+   */
+  public synchronized long getHeapBytes() {
+    long bytes = 0;
+    for (int i = 0; i < m_dtms.length; i++) {
+      // overflow addressing binds additional IDs with an offset, count each DTM once
+      if (m_dtms[i] instanceof DTMDefaultBase base && 0 == m_dtm_offsets[i]) {
+        bytes += base.getHeapBytes();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @return the soft limit for the heap bytes of all DTMs, Long.MAX_VALUE if there is none
+   */
+  public synchronized long getMemoryLimit() {
+    return m_memoryLimit;
+  }
+
+  /**
+   * Set a soft limit for the heap bytes of all DTMs of this manager. Whenever a new DTM is created
+   * and the DTMs retain more than the limit, the DTMs that were not used for the longest time are
+   * released until the total is below the limit again. The new DTM is never released, and DTMs
+   * that grow incrementally may exceed the limit until the next DTM is created.
+   *
+   * <p>The handles of a released DTM become invalid, {@link #getDTM(int)} throws a
+   * RuntimeException for them; only set a limit if the node-sets of older evaluations are not
+   * used anymore, for example for a manager serving many documents one after the other. The uses
+   * of the DTMs are tracked only while a limit is set, DTMs not used since count as used when they
+   * were created.
+   *
+   * @param limit the limit in bytes, Long.MAX_VALUE for no limit
+   */
+  public synchronized void setMemoryLimit(final long limit) {
+    m_memoryLimit = limit;
+  }
+
+  /**
+   * Release the DTMs not used for the longest time, until the heap bytes of all DTMs are below the
+   * memory limit.
+   *
+   * @param keep the DTM to keep in any case
+   */
+  private void enforceMemoryLimit(final DTM keep) {
+    if (Long.MAX_VALUE == m_memoryLimit) {
+      return;
+    }
+
+    // one pass over the IDs for the total and the last use of every DTM; overflow addressing may
+    // have bound a DTM to several IDs, its heap is counted for the ID without offset
+    long total = 0;
+    final Map<DTM, long[]> candidates = new IdentityHashMap<>();
+    for (int i = 0; i < m_dtms.length; i++) {
+      final DTM dtm = m_dtms[i];
+      if (null == dtm) {
+        continue;
+      }
+      long bytes = 0;
+      if (0 == m_dtm_offsets[i] && dtm instanceof DTMDefaultBase base) {
+        bytes = base.getHeapBytes();
+        total += bytes;
+      }
+      if (dtm != keep) {
+        final long[] candidate = candidates.computeIfAbsent(dtm, d -> new long[2]);
+        candidate[0] = Math.max(candidate[0], m_lastUse[i]);
+        candidate[1] += bytes;
+      }
+    }
+    if (total <= m_memoryLimit) {
+      return;
+    }
+
+    // release the DTMs not used for the longest time first
+    final List<Map.Entry<DTM, long[]>> victims = new ArrayList<>(candidates.entrySet());
+    victims.sort((a, b) -> Long.compare(a.getValue()[0], b.getValue()[0]));
+    for (final Map.Entry<DTM, long[]> victim : victims) {
+      release(victim.getKey());
+      total -= victim.getValue()[1];
+      if (total <= m_memoryLimit) {
+        return;
+      }
+    }
+  }
+
   /**
    * @return the expanded name table.
    *     <p>NEEDSDOC @param dtm
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.dtm.ref;
+
+/**
+ * Read-only navigation arrays of a completely built DTM, indexed by node identity. Once a
+ * DTMDefaultBase has one of these, its _xxx accessors use it instead of the incrementally grown
+ * vectors.
+ */
+public interface DTMNodeTable {
+
+  /**
+   * @param identity The node identity.
+   * @return The expanded type ID.
+   */
+  int exptype(int identity);
+
+  /**
+   * @param identity The node identity.
+   * @return The first child identity, or DTM.NULL.
+   */
+  int firstch(int identity);
+
+  /**
+   * @param identity The node identity.
+   * @return The next sibling identity, or DTM.NULL.
+   */
+  int nextsib(int identity);
+
+  /**
+   * @param identity The node identity.
+   * @return The previous sibling identity, or DTM.NULL.
+   */
+  int prevsib(int identity);
+
+  /**
+   * @param identity The node identity.
+   * @return The parent identity, or DTM.NULL.
+   */
+  int parent(int identity);
+
+  /**
+   * @return the estimated number of bytes this table holds on the Java heap
+   */
+  default long getHeapBytes() {
+    // off-heap storage
+    return 0;
+  }
+
+  /**
+   * Release the storage held by this table. The table must not be used afterwards.
+   */
+  default void release() {
+    // nothing to do for heap storage
+  }
+}
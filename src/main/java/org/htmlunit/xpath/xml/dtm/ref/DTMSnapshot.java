@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.dtm.ref;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.htmlunit.xpath.xml.dtm.DTM;
+
+/**
+ * Writes a DTM into a binary snapshot file, which {@link DTMManagerDefault#loadSnapshot(Path)}
+ * maps back into memory as a read-only {@link MappedDTM}. A large document can so be parsed once
+ * and queried by later processes without building the DTM again.
+ *
+ * <p>The file holds big-endian ints, followed by the chars of the string pool:
+ *
+ * <pre>
+ * magic, version
+ * node count, expanded name count, string count, char count
+ * exptype, first child, next sibling, previous sibling, parent     one column each, per node
+ * name, name X, local name, prefix, namespace URI, node value      string index per node, -1 for null
+ * node type, namespace, local name                                 per expanded name from DTM.NTYPES on
+ * string offsets                                                   string count + 1
+ * chars
+ * </pre>
+ *
+ * <p>The whole file is mapped at once, so a snapshot can not be larger than 2GB.
+ */
+public final class DTMSnapshot {
+
+  /** The first int of every snapshot file. */
+  static final int MAGIC = 0x48555844;
+
+  /** The version of the format. */
+  static final int VERSION = 1;
+
+  /** The number of ints in the header. */
+  static final int HEADER_INTS = 6;
+
+  /** The number of navigation columns. */
+  static final int NODE_COLUMNS = 5;
+
+  /** The number of name and value columns. */
+  static final int STRING_COLUMNS = 6;
+
+  /** Column index of the node name. */
+  static final int NODE_NAME = 0;
+
+  /** Column index of the XPath node name. */
+  static final int NODE_NAME_X = 1;
+
+  /** Column index of the local name. */
+  static final int LOCAL_NAME = 2;
+
+  /** Column index of the prefix. */
+  static final int PREFIX = 3;
+
+  /** Column index of the namespace URI. */
+  static final int NAMESPACE_URI = 4;
+
+  /** Column index of the node value. */
+  static final int NODE_VALUE = 5;
+
+  private DTMSnapshot() {
+  }
+
+  /**
+   * Write a snapshot of the given DTM. The DTM is built completely first.
+   *
+   * @param dtm the DTM, has to be derived from {@link DTMDefaultBase}
+   * @param file the file to write
+   * @throws IOException in case of problems writing the file, or if the snapshot would be larger
+   *     than 2GB
+   */
+  public static void write(final DTM dtm, final Path file) throws IOException {
+    final DTMDefaultBase base = (DTMDefaultBase) dtm;
+    while (base.nextNode()) {
+      // build the remaining nodes
+    }
+
+    final int size = base.getNumberOfNodes();
+    final ExpandedNameTable names = base.m_expandedNameTable;
+    final int nameCount = names.getSize();
+
+    final List<String> strings = new ArrayList<>();
+    final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    final int[][] stringColumns = new int[STRING_COLUMNS][size];
+    for (int identity = 0; identity < size; identity++) {
+      final int node = base.makeNodeHandle(identity);
+      stringColumns[NODE_NAME][identity] = intern(base.getNodeName(node), strings, stringIndexes);
+      stringColumns[NODE_NAME_X][identity] = intern(base.getNodeNameX(node), strings, stringIndexes);
+      stringColumns[LOCAL_NAME][identity] = intern(base.getLocalName(node), strings, stringIndexes);
+      stringColumns[PREFIX][identity] = intern(base.getPrefix(node), strings, stringIndexes);
+      stringColumns[NAMESPACE_URI][identity] = intern(base.getNamespaceURI(node), strings, stringIndexes);
+      stringColumns[NODE_VALUE][identity] = intern(base.getNodeValue(node), strings, stringIndexes);
+    }
+
+    final int[] nameColumns = new int[(nameCount - DTM.NTYPES) * 3];
+    for (int id = DTM.NTYPES; id < nameCount; id++) {
+      final int pos = (id - DTM.NTYPES) * 3;
+      nameColumns[pos] = names.getType(id);
+      nameColumns[pos + 1] = intern(names.getNamespace(id), strings, stringIndexes);
+      nameColumns[pos + 2] = intern(names.getLocalName(id), strings, stringIndexes);
+    }
+
+    long charCount = 0;
+    for (final String s : strings) {
+      charCount += s.length();
+    }
+    final long fileSize =
+        (long) Integer.BYTES
+                * (HEADER_INTS
+                    + (long) (NODE_COLUMNS + STRING_COLUMNS) * size
+                    + nameColumns.length
+                    + strings.size()
+                    + 1)
+            + Character.BYTES * charCount;
+    if (fileSize > Integer.MAX_VALUE) {
+      throw new IOException("The snapshot would need " + fileSize + " bytes, the maximum is 2GB");
+    }
+
+    // the previous siblings are derived from the next siblings, not every DTM records them
+    final int[] prevsib = new int[size];
+    Arrays.fill(prevsib, DTM.NULL);
+    for (int identity = 0; identity < size; identity++) {
+      final int next = base._nextsib(identity);
+      if (DTM.NULL != next) {
+        prevsib[next] = identity;
+      }
+    }
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(size);
+      out.writeInt(nameCount);
+      out.writeInt(strings.size());
+      out.writeInt((int) charCount);
+
+      for (int identity = 0; identity < size; identity++) {
+        out.writeInt(base._exptype(identity));
+      }
+      for (int identity = 0; identity < size; identity++) {
+        out.writeInt(base._firstch(identity));
+      }
+      for (int identity = 0; identity < size; identity++) {
+        out.writeInt(base._nextsib(identity));
+      }
+      for (int identity = 0; identity < size; identity++) {
+        out.writeInt(prevsib[identity]);
+      }
+      for (int identity = 0; identity < size; identity++) {
+        out.writeInt(base._parent(identity));
+      }
+
+      for (final int[] column : stringColumns) {
+        for (final int value : column) {
+          out.writeInt(value);
+        }
+      }
+      for (final int value : nameColumns) {
+        out.writeInt(value);
+      }
+
+      int offset = 0;
+      out.writeInt(offset);
+      for (final String s : strings) {
+        offset += s.length();
+        out.writeInt(offset);
+      }
+      for (final String s : strings) {
+        out.writeChars(s);
+      }
+    }
+  }
+
+  private static int intern(
+      final String value, final List<String> strings, final Map<String, Integer> stringIndexes) {
+    if (null == value) {
+      return -1;
+    }
+
+    final Integer index = stringIndexes.get(value);
+    if (null != index) {
+      return index;
+    }
+
+    final int newIndex = strings.size();
+    strings.add(value);
+    stringIndexes.put(value, newIndex);
+    return newIndex;
+  }
+}
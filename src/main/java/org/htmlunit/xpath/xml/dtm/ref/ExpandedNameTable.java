@@ -203,6 +203,34 @@ public class ExpandedNameTable {
     }
   }
 
+  /**
+   * @return the number of expanded names in this table, including the default ones for the basic
+   *     node types.
+   */
+  public int getSize() {
+    return m_nextType;
+  }
+
+  /**
+   * Given an expanded-name ID, return the local name part.
+   *
+   * @param expandedNameID an ID that represents an expanded-name.
+   * @return String Local name part of the expanded-name, or "" if none.
+   */
+  public final String getLocalName(final int expandedNameID) {
+    return m_extendedTypes[expandedNameID].getLocalName();
+  }
+
+  /**
+   * Given an expanded-name ID, return the namespace URI part.
+   *
+   * @param expandedNameID an ID that represents an expanded-name.
+   * @return String URI value of this node's namespace, or "" if none.
+   */
+  public final String getNamespace(final int expandedNameID) {
+    return m_extendedTypes[expandedNameID].getNamespace();
+  }
+
   /**
    * Given an expanded-name ID, return the local name ID.
    *
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.dtm.ref;
+
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.utils.HeapSize;
+import org.htmlunit.xpath.xml.utils.SuballocatedIntVector;
+
+/**
+ * DTMNodeTable on plain int arrays, one per column. If the node vectors were sized large enough
+ * for the whole document, their first block is used directly and nothing is copied. The DTM drops
+ * the vectors once the table is built, so the arrays are not held twice.
+ */
+final class FlatNodeTable implements DTMNodeTable {
+
+  private final int[] m_exptype;
+  private final int[] m_firstch;
+  private final int[] m_nextsib;
+  private final int[] m_prevsib;
+  private final int[] m_parent;
+
+  /**
+   * Construct a FlatNodeTable from the node vectors of a completely built DTM.
+   *
+   * @param exptype the expanded type vector
+   * @param firstch the first child vector
+   * @param nextsib the next sibling vector
+   * @param prevsib the previous sibling vector, may be null
+   * @param parent the parent vector
+   */
+  FlatNodeTable(
+      final SuballocatedIntVector exptype,
+      final SuballocatedIntVector firstch,
+      final SuballocatedIntVector nextsib,
+      final SuballocatedIntVector prevsib,
+      final SuballocatedIntVector parent) {
+    m_exptype = exptype.toFlatArray();
+    m_firstch = firstch.toFlatArray();
+    m_nextsib = nextsib.toFlatArray();
+    m_prevsib = null == prevsib ? null : prevsib.toFlatArray();
+    m_parent = parent.toFlatArray();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getHeapBytes() {
+    long bytes = HeapSize.ofInts(m_exptype.length);
+    bytes += HeapSize.ofInts(m_firstch.length);
+    bytes += HeapSize.ofInts(m_nextsib.length);
+    bytes += null == m_prevsib ? 0 : HeapSize.ofInts(m_prevsib.length);
+    bytes += HeapSize.ofInts(m_parent.length);
+    return bytes;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int exptype(final int identity) {
+    return m_exptype[identity];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int firstch(final int identity) {
+    return m_firstch[identity];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int nextsib(final int identity) {
+    return m_nextsib[identity];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int prevsib(final int identity) {
+    return null == m_prevsib ? DTM.NULL : m_prevsib[identity];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int parent(final int identity) {
+    return m_parent[identity];
+  }
+}
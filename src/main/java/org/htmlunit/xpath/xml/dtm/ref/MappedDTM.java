@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.dtm.ref;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+import org.htmlunit.xpath.objects.NumberParser;
+import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.DTMManager;
+
+/**
+ * Read-only DTM on top of a snapshot written by {@link DTMSnapshot}. The navigation columns and
+ * the string pool stay in the mapped file; only the expanded name table, the element index and the
+ * namespace declarations are rebuilt on the heap when the snapshot is loaded.
+ *
+ * <p>The nodes returned by {@link #getNode(int)} are proxies, the original DOM is not available.
+ * ID attributes are not recorded, {@link #getElementById(String)} finds nothing.
+ */
+public class MappedDTM extends DTMDefaultBaseIterators {
+
+  /** The name and value columns, indexes into the string pool. */
+  private final IntBuffer[] m_stringColumns;
+
+  /** Start offsets of the strings in m_chars, one more than there are strings. */
+  private final IntBuffer m_stringOffsets;
+
+  /** The chars of all strings. */
+  private final CharBuffer m_chars;
+
+  /**
+   * Construct a MappedDTM.
+   *
+   * @param mgr The DTMManager who owns this DTM.
+   * @param snapshot the snapshot file, mapped into memory.
+   * @param dtmIdentity The DTM identity ID for this DTM.
+   */
+  MappedDTM(final DTMManager mgr, final ByteBuffer snapshot, final int dtmIdentity) {
+    // the node vectors of the base are never used, keep them small
+    super(mgr, null, dtmIdentity, true, 32, false);
+
+    final IntBuffer ints = snapshot.asIntBuffer();
+    if (ints.limit() < DTMSnapshot.HEADER_INTS
+        || DTMSnapshot.MAGIC != ints.get(0)
+        || DTMSnapshot.VERSION != ints.get(1)) {
+      throw new IllegalArgumentException("Not a DTM snapshot");
+    }
+
+    final int size = ints.get(2);
+    final int nameCount = ints.get(3);
+    final int stringCount = ints.get(4);
+
+    int pos = DTMSnapshot.HEADER_INTS;
+    final IntBuffer[] nodeColumns = new IntBuffer[DTMSnapshot.NODE_COLUMNS];
+    for (int i = 0; i < nodeColumns.length; i++) {
+      nodeColumns[i] = slice(ints, pos, size);
+      pos += size;
+    }
+    m_stringColumns = new IntBuffer[DTMSnapshot.STRING_COLUMNS];
+    for (int i = 0; i < m_stringColumns.length; i++) {
+      m_stringColumns[i] = slice(ints, pos, size);
+      pos += size;
+    }
+    final IntBuffer names = slice(ints, pos, (nameCount - DTM.NTYPES) * 3);
+    pos += names.limit();
+    m_stringOffsets = slice(ints, pos, stringCount + 1);
+    pos += m_stringOffsets.limit();
+    m_chars = snapshot.position(pos * Integer.BYTES).slice().asCharBuffer();
+
+    // the expanded names have to get the same ids they had when the snapshot was written
+    for (int id = DTM.NTYPES; id < nameCount; id++) {
+      final int p = (id - DTM.NTYPES) * 3;
+      m_expandedNameTable.getExpandedTypeID(
+          getString(names.get(p + 1)), getString(names.get(p + 2)), names.get(p));
+    }
+
+    m_exptype = null;
+    m_firstch = null;
+    m_nextsib = null;
+    m_parent = null;
+    m_nodeTable =
+        new OffHeapNodeTable(nodeColumns[0], nodeColumns[1], nodeColumns[2], nodeColumns[3], nodeColumns[4]);
+    m_size = size;
+    m_nodesAreProcessed = true;
+  }
+
+  private static IntBuffer slice(final IntBuffer ints, final int pos, final int length) {
+    return ints.position(pos).slice().limit(length);
+  }
+
+  /**
+   * Finish loading; binds the node identities above the addressing range of the first DTM
+   * identity to additional identities and rebuilds the element index and the namespace
+   * declarations. Has to be called after the DTM was added to the manager.
+   *
+   * @param mgr the manager the DTM was added to
+   */
+  void load(final DTMManagerDefault mgr) {
+    for (int offset = 1 << DTMManager.IDENT_DTM_NODE_BITS;
+        offset < m_size;
+        offset += 1 << DTMManager.IDENT_DTM_NODE_BITS) {
+      final int id = mgr.getFirstFreeDTMID();
+      mgr.addDTM(this, id, offset);
+      m_dtmIdent.addElement(id << DTMManager.IDENT_DTM_NODE_BITS);
+    }
+
+    for (int identity = 0; identity < m_size; identity++) {
+      final int exptype = _exptype(identity);
+      indexNode(exptype, identity);
+      if (DTM.NAMESPACE_NODE == m_expandedNameTable.getType(exptype)) {
+        declareNamespaceInContext(_parent(identity), identity);
+      }
+    }
+  }
+
+  private String getString(final int index) {
+    if (index < 0) {
+      return null;
+    }
+    final int start = m_stringOffsets.get(index);
+    return m_chars.subSequence(start, m_stringOffsets.get(index + 1)).toString();
+  }
+
+  private String getString(final int column, final int nodeHandle) {
+    final int identity = makeNodeIdentity(nodeHandle);
+    if (NULL == identity) {
+      return null;
+    }
+    return getString(m_stringColumns[column].get(identity));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected int getNextNodeIdentity(int identity) {
+    identity += 1;
+    return identity < m_size ? identity : NULL;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected boolean nextNode() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getAttributeNode(final int nodeHandle, String namespaceURI, final String name) {
+    if (null == namespaceURI) {
+      namespaceURI = "";
+    }
+
+    if (DTM.ELEMENT_NODE == getNodeType(nodeHandle)) {
+      // the attributes immediately follow the element
+      int identity = makeNodeIdentity(nodeHandle);
+      while (DTM.NULL != (identity = getNextNodeIdentity(identity))) {
+        final int type = _type(identity);
+        if (type != DTM.ATTRIBUTE_NODE && type != DTM.NAMESPACE_NODE) {
+          break;
+        }
+
+        String nodeuri = getString(m_stringColumns[DTMSnapshot.NAMESPACE_URI].get(identity));
+        if (null == nodeuri) {
+          nodeuri = "";
+        }
+        if (nodeuri.equals(namespaceURI)
+            && name.equals(getString(m_stringColumns[DTMSnapshot.LOCAL_NAME].get(identity)))) {
+          return makeNodeHandle(identity);
+        }
+      }
+    }
+
+    return DTM.NULL;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public XString getStringValue(final int nodeHandle) {
+    final int type = getNodeType(nodeHandle);
+
+    if (DTM.ELEMENT_NODE == type
+        || DTM.DOCUMENT_NODE == type
+        || DTM.DOCUMENT_FRAGMENT_NODE == type) {
+      // the text of all descendants, they follow the node in document order
+      final int identity = makeNodeIdentity(nodeHandle);
+      final StringBuilder buf = new StringBuilder();
+      final int end = getSubtreeEnd(identity);
+      for (int i = identity + 1; i < end; i++) {
+        final int t = _type(i);
+        if (DTM.TEXT_NODE == t || DTM.CDATA_SECTION_NODE == t) {
+          buf.append(getString(m_stringColumns[DTMSnapshot.NODE_VALUE].get(i)));
+        }
+      }
+      return new XString(buf.toString());
+    }
+
+    final String value = getNodeValue(nodeHandle);
+    return new XString(null == value ? "" : value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double getNumberValue(final int nodeHandle) {
+    final int type = getNodeType(nodeHandle);
+    if (DTM.ELEMENT_NODE == type
+        || DTM.DOCUMENT_NODE == type
+        || DTM.DOCUMENT_FRAGMENT_NODE == type) {
+      return super.getNumberValue(nodeHandle);
+    }
+
+    final String value = getNodeValue(nodeHandle);
+    return null == value ? Double.NaN : NumberParser.parse(value);
+  }
+
+  /**
+   * @param identity the node identity
+   * @return the identity of the first node after the subtree of the node: the next sibling of the
+   *     node or of its nearest ancestor that has one, or the number of nodes
+   */
+  private int getSubtreeEnd(int identity) {
+    while (NULL != identity) {
+      final int next = _nextsib(identity);
+      if (NULL != next) {
+        return next;
+      }
+      identity = _parent(identity);
+    }
+    return m_size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getNodeName(final int nodeHandle) {
+    return getString(DTMSnapshot.NODE_NAME, nodeHandle);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getNodeNameX(final int nodeHandle) {
+    return getString(DTMSnapshot.NODE_NAME_X, nodeHandle);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getLocalName(final int nodeHandle) {
+    return getString(DTMSnapshot.LOCAL_NAME, nodeHandle);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getPrefix(final int nodeHandle) {
+    return getString(DTMSnapshot.PREFIX, nodeHandle);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getNamespaceURI(final int nodeHandle) {
+    return getString(DTMSnapshot.NAMESPACE_URI, nodeHandle);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getNodeValue(final int nodeHandle) {
+    return getString(DTMSnapshot.NODE_VALUE, nodeHandle);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getElementById(final String elementId) {
+    return DTM.NULL;
+  }
+}
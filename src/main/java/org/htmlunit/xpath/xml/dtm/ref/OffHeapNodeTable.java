@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.dtm.ref;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.function.IntUnaryOperator;
+
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.utils.SuballocatedIntVector;
+
+/**
+ * DTMNodeTable stored outside of the Java heap, in one direct buffer per column. However large the
+ * document is, the garbage collector only sees a few objects.
+ *
+ * <p>Java 17 has no public API to free a direct buffer on demand; {@link #release()} drops all
+ * references, and the memory is returned once the buffer's cleaner has run.
+ */
+final class OffHeapNodeTable implements DTMNodeTable {
+
+  private IntBuffer m_exptype;
+  private IntBuffer m_firstch;
+  private IntBuffer m_nextsib;
+  private IntBuffer m_prevsib;
+  private IntBuffer m_parent;
+
+  /**
+   * Construct an OffHeapNodeTable by copying the node vectors of a completely built DTM.
+   *
+   * @param size the number of nodes
+   * @param exptype the expanded type vector
+   * @param firstch the first child vector
+   * @param nextsib the next sibling vector
+   * @param prevsib the previous sibling vector, may be null
+   * @param parent the parent vector
+   */
+  OffHeapNodeTable(
+      final int size,
+      final SuballocatedIntVector exptype,
+      final SuballocatedIntVector firstch,
+      final SuballocatedIntVector nextsib,
+      final SuballocatedIntVector prevsib,
+      final SuballocatedIntVector parent) {
+    m_exptype = column(size, exptype);
+    m_firstch = column(size, firstch);
+    m_nextsib = column(size, nextsib);
+    m_prevsib = column(size, prevsib);
+    m_parent = column(size, parent);
+  }
+
+  /**
+   * Construct an OffHeapNodeTable by copying another node table.
+   *
+   * @param size the number of nodes
+   * @param nodes the node table to copy
+   */
+  OffHeapNodeTable(final int size, final DTMNodeTable nodes) {
+    m_exptype = column(size, nodes::exptype);
+    m_firstch = column(size, nodes::firstch);
+    m_nextsib = column(size, nodes::nextsib);
+    m_prevsib = column(size, nodes::prevsib);
+    m_parent = column(size, nodes::parent);
+  }
+
+  /**
+   * Construct an OffHeapNodeTable on top of existing columns, for example views into a mapped
+   * snapshot file. The buffers are used as they are, not copied.
+   *
+   * @param exptype the expanded type column
+   * @param firstch the first child column
+   * @param nextsib the next sibling column
+   * @param prevsib the previous sibling column
+   * @param parent the parent column
+   */
+  OffHeapNodeTable(
+      final IntBuffer exptype,
+      final IntBuffer firstch,
+      final IntBuffer nextsib,
+      final IntBuffer prevsib,
+      final IntBuffer parent) {
+    m_exptype = exptype;
+    m_firstch = firstch;
+    m_nextsib = nextsib;
+    m_prevsib = prevsib;
+    m_parent = parent;
+  }
+
+  private static IntBuffer column(final int size, final SuballocatedIntVector values) {
+    return column(size, null == values ? identity -> DTM.NULL : values::elementAt);
+  }
+
+  private static IntBuffer column(final int size, final IntUnaryOperator values) {
+    final IntBuffer ints =
+        ByteBuffer.allocateDirect(size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    for (int i = 0; i < size; i++) {
+      ints.put(i, values.applyAsInt(i));
+    }
+    return ints;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int exptype(final int identity) {
+    return m_exptype.get(identity);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int firstch(final int identity) {
+    return m_firstch.get(identity);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int nextsib(final int identity) {
+    return m_nextsib.get(identity);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int prevsib(final int identity) {
+    return m_prevsib.get(identity);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int parent(final int identity) {
+    return m_parent.get(identity);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void release() {
+    m_exptype = null;
+    m_firstch = null;
+    m_nextsib = null;
+    m_prevsib = null;
+    m_parent = null;
+  }
+}
@@ -22,7 +22,12 @@ import java.util.List;
 
 import javax.xml.transform.dom.DOMSource;
 
+import org.htmlunit.xpath.jfr.DTMBuildEvent;
+import org.htmlunit.xpath.jfr.FlightRecorderSupport;
+import org.htmlunit.xpath.metrics.Metrics;
+import org.htmlunit.xpath.objects.NumberParser;
 import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.objects.XStringForNode;
 import org.htmlunit.xpath.res.XPATHErrorResources;
 import org.htmlunit.xpath.res.XPATHMessages;
 import org.htmlunit.xpath.xml.dtm.DTM;
@@ -30,6 +35,7 @@ import org.htmlunit.xpath.xml.dtm.DTMManager;
 import org.htmlunit.xpath.xml.dtm.ref.DTMDefaultBaseIterators;
 import org.htmlunit.xpath.xml.dtm.ref.DTMManagerDefault;
 import org.htmlunit.xpath.xml.dtm.ref.ExpandedNameTable;
+import org.htmlunit.xpath.xml.utils.HeapSize;
 import org.htmlunit.xpath.xml.utils.XMLCharacterRecognizer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -68,19 +74,22 @@ public class DOM2DTM extends DTMDefaultBaseIterators {
    */
   boolean m_processedFirstElement = false;
 
-  /**
-   * true if ALL the nodes in the m_root subtree have been processed; false if our incremental build
-   * has not yet finished scanning the DOM tree.
-   */
-  private transient boolean m_nodesAreProcessed;
-
   /**
    * The node objects. The instance part of the handle indexes directly into this vector. Each DTM
    * node may actually be composed of several DOM nodes (for example, if logically-adjacent
    * Text/CDATASection nodes in the DOM have been coalesced into a single DTM Text node); this table
    * points only to the first in that sequence.
    */
-  protected final List<Node> m_nodes = new ArrayList<>();
+  protected final List<Node> m_nodes;
+
+  /** The cached string-values, or null if caching is off. */
+  private StringValueCache m_stringValueCache;
+
+  /** The number of nodes reported to the metrics. */
+  private int m_reportedSize;
+
+  /** The largest block size we use for the node arrays when pre-sizing them from a hint. */
+  private static final int MAX_PRESIZED_BLOCKSIZE = 1 << 20;
 
   /**
    * Construct a DOM2DTM object from a DOM node.
@@ -95,7 +104,30 @@ public class DOM2DTM extends DTMDefaultBaseIterators {
       final DOMSource domSource,
       final int dtmIdentity,
       final boolean doIndexing) {
-    super(mgr, domSource, dtmIdentity, doIndexing);
+    this(mgr, domSource, dtmIdentity, doIndexing, 0);
+  }
+
+  /**
+   * Construct a DOM2DTM object from a DOM node, sizing the node arrays for the expected number of
+   * nodes. If the hint is not smaller than the real number of nodes, the arrays never have to grow
+   * and every lookup is served from a single block. Call {@link #buildFully()} afterwards to build
+   * the DTM eagerly.
+   *
+   * @param mgr The DTMManager who owns this DTM.
+   * @param domSource the DOM source that this DTM will wrap.
+   * @param dtmIdentity The DTM identity ID for this DTM.
+   * @param doIndexing true if the caller considers it worth it to use indexing schemes.
+   * @param nodeCountHint The expected number of DTM nodes, or 0 if unknown.
+   */
+  public DOM2DTM(
+      final DTMManager mgr,
+      final DOMSource domSource,
+      final int dtmIdentity,
+      final boolean doIndexing,
+      final int nodeCountHint) {
+    super(mgr, domSource, dtmIdentity, doIndexing, blocksizeFor(nodeCountHint), true);
+
+    m_nodes = new ArrayList<>(Math.max(10, Math.min(nodeCountHint, MAX_PRESIZED_BLOCKSIZE)));
 
     // Initialize DOM navigation
     m_pos = m_root = domSource.getNode();
@@ -136,6 +168,30 @@ public class DOM2DTM extends DTMDefaultBaseIterators {
 
     // Initialize DTM-completed status
     m_nodesAreProcessed = false;
+    reportNodesAdded();
+  }
+
+  /** Report the nodes added since the last report to the metrics, once per batch of nodes. */
+  private void reportNodesAdded() {
+    if (m_size > m_reportedSize && Metrics.isEnabled()) {
+      Metrics.getMetrics().dtmNodesAdded(m_size - m_reportedSize);
+      m_reportedSize = m_size;
+    }
+  }
+
+  /**
+   * @param nodeCountHint The expected number of DTM nodes, or 0 if unknown.
+   * @return the block size for the node arrays; the smallest power of two that is large enough
+   *     for the hint, but not larger than {@link #MAX_PRESIZED_BLOCKSIZE}.
+   */
+  private static int blocksizeFor(final int nodeCountHint) {
+    if (nodeCountHint <= DEFAULT_BLOCKSIZE) {
+      return DEFAULT_BLOCKSIZE;
+    }
+    if (nodeCountHint >= MAX_PRESIZED_BLOCKSIZE) {
+      return MAX_PRESIZED_BLOCKSIZE;
+    }
+    return Integer.highestOneBit(nodeCountHint - 1) << 1;
   }
 
   /**
@@ -274,9 +330,146 @@ public class DOM2DTM extends DTMDefaultBaseIterators {
     return nodeIndex;
   }
 
+  /**
+   * Run the incremental build to completion, so that every node of the wrapped DOM subtree has its
+   * DTM identity, and switch to the flat node arrays. After this call the DTM tables are no longer
+   * modified, which allows them to be read from several threads at once (as long as the DOM itself
+   * tolerates concurrent reads).
+   */
+  public void buildFully() {
+    buildFully(false);
+  }
+
+  /**
+   * Run the incremental build to completion, see {@link #buildFully()}.
+   *
+   * @param offHeap true if the node arrays should be moved off the Java heap, false for flat
+   *     arrays on the heap.
+   */
+  public void buildFully(final boolean offHeap) {
+    final DTMBuildEvent event = FlightRecorderSupport.isAvailable() ? new DTMBuildEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+
+    while (addNextNode()) {
+      // keep going
+    }
+    reportNodesAdded();
+    if (offHeap) {
+      moveNodeArraysOffHeap();
+    }
+    else {
+      compactNodeArrays();
+    }
+
+    if (null != event) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.describe(this, true);
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * @return true if all the nodes of the wrapped DOM subtree have been added to this DTM.
+   */
+  public boolean isFullyBuilt() {
+    return m_nodesAreProcessed;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Adds the list of DOM nodes and the string-value cache; the DOM nodes themselves belong to
+   * the document.
+   */
+  @Override
+  public long getHeapBytes() {
+    long bytes = super.getHeapBytes()
+        + HeapSize.align(HeapSize.OBJECT_HEADER + 2 * Integer.BYTES + HeapSize.REFERENCE)
+        + HeapSize.ofReferences(m_nodes.size());
+    if (null != m_stringValueCache) {
+      bytes += m_stringValueCache.getHeapBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Cache the string-values of elements whose text is spread over several nodes, for example if
+   * several predicates ask for the string-value of the same large element. The cache only lives for
+   * one evaluation, see {@link #clearStringValueCache()}.
+   *
+   * @param maxEntries the maximum number of cached values, 0 to switch caching off
+   */
+  public void setStringValueCacheSize(final int maxEntries) {
+    if (maxEntries > 0) {
+      m_stringValueCache = new StringValueCache(maxEntries);
+      if (null != m_mgrDefault) {
+        m_mgrDefault.stringValueCacheCreated();
+      }
+    }
+    else {
+      m_stringValueCache = null;
+    }
+  }
+
+  /**
+   * Drop the cached string-values, the document may have changed. XPath.execute() calls this
+   * through {@link org.htmlunit.xpath.XPathContext#clearInvariants()} before each evaluation.
+   */
+  public void clearStringValueCache() {
+    if (null != m_stringValueCache) {
+      m_stringValueCache.clear();
+    }
+  }
+
+  /**
+   * @return the string-value cache with its statistics, or null if caching is off
+   */
+  public StringValueCache getStringValueCache() {
+    return m_stringValueCache;
+  }
+
+  /**
+   * Get the number of DTM nodes of a subtree. The identities are in document order, so the subtree
+   * ends where the next sibling of the node or of its nearest ancestor that has one begins.
+   *
+   * @param identity the identity of the root of the subtree
+   * @return the number of nodes of the subtree, including the root and attributes
+   */
+  private int getSubtreeSize(final int identity) {
+    for (int node = identity; DTM.NULL != node; node = _parent(node)) {
+      final int next = _nextsib(node);
+      if (DTM.NULL != next) {
+        return next - identity;
+      }
+    }
+    return m_size - identity;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void release() {
+    super.release();
+    clearStringValueCache();
+  }
+
   /** {@inheritDoc} */
   @Override
   protected boolean nextNode() {
+    final boolean more = addNextNode();
+    reportNodesAdded();
+    return more;
+  }
+
+  /**
+   * Add the next node of the DOM and its attributes to the DTM.
+   *
+   * @return true if there may be more nodes, false if the DOM has been processed completely
+   */
+  private boolean addNextNode() {
     // Non-recursive one-fetch-at-a-time depth-first traversal with
     // attribute/namespace nodes and white-space stripping.
     // Navigating the DOM is simple, navigating the DTM is simple;
@@ -698,16 +891,37 @@ public class DOM2DTM extends DTMDefaultBaseIterators {
 
     final int type = getNodeType(nodeHandle);
     Node node = getNode(nodeHandle);
-    // %TBD% If an element only has one text node, we should just use it
-    // directly.
     if (DTM.ELEMENT_NODE == type
         || DTM.DOCUMENT_NODE == type
         || DTM.DOCUMENT_FRAGMENT_NODE == type) {
-      final StringBuilder buf = new StringBuilder();
-      getNodeData(node, buf);
-      final String s = (buf.length() > 0) ? buf.toString() : "";
+      final Node first = node.getFirstChild();
+      if (null == first) {
+        return XString.EMPTYSTRING;
+      }
+      if (null == first.getNextSibling()) {
+        final short firstType = first.getNodeType();
+        if (Node.TEXT_NODE == firstType || Node.CDATA_SECTION_NODE == firstType) {
+          // a single text child is the value, nothing to concatenate
+          return new XString(first.getNodeValue());
+        }
+      }
 
-      return new XString(s);
+      final StringValueCache cache = m_stringValueCache;
+      if (null == cache) {
+        // the text of the subtree is only concatenated if the caller needs it as one string
+        return new XStringForNode(node);
+      }
+
+      final int identity = makeNodeIdentity(nodeHandle);
+      if (getSubtreeSize(identity) < StringValueCache.MIN_SUBTREE_SIZE) {
+        return new XStringForNode(node);
+      }
+      XString value = cache.get(identity);
+      if (null == value) {
+        value = new XStringForNode(node);
+        cache.put(identity, value);
+      }
+      return value;
     }
     else if (TEXT_NODE == type || CDATA_SECTION_NODE == type) {
       // If this is a DTM text node, it may be made of multiple DOM text
@@ -730,6 +944,36 @@ public class DOM2DTM extends DTMDefaultBaseIterators {
     }
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public double getNumberValue(final int nodeHandle) {
+    final int type = getNodeType(nodeHandle);
+    final Node node = getNode(nodeHandle);
+    if (DTM.ELEMENT_NODE == type
+        || DTM.DOCUMENT_NODE == type
+        || DTM.DOCUMENT_FRAGMENT_NODE == type) {
+      final Node first = node.getFirstChild();
+      if (null == first) {
+        return Double.NaN;
+      }
+      if (null == first.getNextSibling()) {
+        final short firstType = first.getNodeType();
+        if (Node.TEXT_NODE == firstType || Node.CDATA_SECTION_NODE == firstType) {
+          // parse the text of the only child, without an XString in between
+          return NumberParser.parse(first.getNodeValue());
+        }
+      }
+      return getStringValue(nodeHandle).toDouble();
+    }
+    else if (TEXT_NODE == type || CDATA_SECTION_NODE == type) {
+      if (null != logicalNextDOMTextNode(node)) {
+        return getStringValue(nodeHandle).toDouble();
+      }
+    }
+    final String value = node.getNodeValue();
+    return null == value ? Double.NaN : NumberParser.parse(value);
+  }
+
   /**
    * Retrieve the text content of a DOM subtree, appending it into a user-supplied FastStringBuffer
    * object. Note that attributes are not considered part of the content of an element.
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.dtm.ref.dom2dtm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.xml.utils.HeapSize;
+
+/**
+ * Bounded cache of the string-values of the nodes of one DTM, keyed by node identity. The least
+ * recently used entry is dropped when the cache is full. DOM2DTM only caches the values of subtrees
+ * of at least {@link #MIN_SUBTREE_SIZE} nodes; smaller ones are cheap to gather again and would
+ * push the large ones out. The values are dropped before each evaluation, the document may have
+ * changed since.
+ *
+ * <p>The cached values are built lazily, see {@link org.htmlunit.xpath.objects.XStringForNode}; once
+ * one is converted to a String, every later hit returns it without walking the subtree again.
+ */
+public final class StringValueCache {
+
+  /** The number of DTM nodes a subtree needs for its string-value to be cached. */
+  public static final int MIN_SUBTREE_SIZE = 16;
+
+  private final Map<Integer, XString> m_values;
+  private long m_hits;
+  private long m_misses;
+
+  /**
+   * Construct a StringValueCache.
+   *
+   * @param maxEntries the maximum number of cached values
+   */
+  StringValueCache(final int maxEntries) {
+    m_values = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Integer, XString> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * @param identity the node identity
+   * @return the cached value, or null
+   */
+  synchronized XString get(final int identity) {
+    final XString value = m_values.get(identity);
+    if (null == value) {
+      m_misses++;
+    }
+    else {
+      m_hits++;
+    }
+    return value;
+  }
+
+  /**
+   * @param identity the node identity
+   * @param value the value to cache
+   */
+  synchronized void put(final int identity, final XString value) {
+    m_values.put(identity, value);
+  }
+
+  /** Drop all values, for example because the DTM is released. The statistics are kept. */
+  public synchronized void clear() {
+    m_values.clear();
+  }
+
+  /**
+   * @return the number of cached values
+   */
+  public synchronized int size() {
+    return m_values.size();
+  }
+
+  /**
+   * @return the number of lookups that found a value
+   */
+  public synchronized long getHits() {
+    return m_hits;
+  }
+
+  /**
+   * @return the number of lookups that found nothing
+   */
+  public synchronized long getMisses() {
+    return m_misses;
+  }
+
+  /**
+   * @return the share of lookups that found a value, 0 if there were none
+   */
+  public synchronized double getHitRate() {
+    final long total = m_hits + m_misses;
+    return total == 0 ? 0 : (double) m_hits / total;
+  }
+
+  /**
+   * @return the estimated heap size of the cache and of the values converted to a String
+   */
+  public synchronized long getHeapBytes() {
+    // map entry with a boxed key, value object
+    final int perEntry = 40 + 16 + 24;
+    long bytes = (long) m_values.size() * perEntry + HeapSize.ofReferences(m_values.size() * 2);
+    for (final XString value : m_values.values()) {
+      if (value.hasString()) {
+        bytes += HeapSize.align(HeapSize.ARRAY_HEADER + (long) value.length() * Character.BYTES);
+      }
+    }
+    return bytes;
+  }
+}
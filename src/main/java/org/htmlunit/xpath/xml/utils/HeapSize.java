@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.xml.utils;
+
+/**
+ * Estimates of the heap size of arrays and objects, assuming a 64 bit VM with compressed
+ * references. Used for the memory accounting of the DTMs; the results are approximations, the
+ * real layout depends on the VM and its settings.
+ */
+public final class HeapSize {
+
+  /** The size of an object header. */
+  public static final int OBJECT_HEADER = 12;
+
+  /** The size of an array header, including the length. */
+  public static final int ARRAY_HEADER = 16;
+
+  /** The size of a reference. */
+  public static final int REFERENCE = 4;
+
+  private HeapSize() {
+  }
+
+  /**
+   * @param length the array length
+   * @return the estimated size of an int array
+   */
+  public static long ofInts(final int length) {
+    return align(ARRAY_HEADER + (long) length * Integer.BYTES);
+  }
+
+  /**
+   * @param length the array length
+   * @return the estimated size of an array of references, not including the referenced objects
+   */
+  public static long ofReferences(final int length) {
+    return align(ARRAY_HEADER + (long) length * REFERENCE);
+  }
+
+  /**
+   * @param bytes the unaligned size
+   * @return the size rounded up to the object alignment of 8 bytes
+   */
+  public static long align(final long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+}
@@ -210,6 +210,46 @@ public class SuballocatedIntVector {
     return m_map[i >>> m_SHIFT][i & m_MASK];
   }
 
+  /**
+   * Get the content of this vector as one contiguous array, indexed like {@link #elementAt(int)}.
+   * If all elements fit into the first block, that block itself is returned (no copy is made) and
+   * may be longer than {@link #size()}. Either way the result must not be modified by the caller;
+   * this is meant for vectors that are not going to change anymore.
+   *
+   * @return an array containing at least the first {@link #size()} elements.
+   */
+  public int[] toFlatArray() {
+    if (m_firstFree <= m_blocksize) {
+      return m_map0;
+    }
+
+    final int[] flat = new int[m_firstFree];
+    for (int index = 0, start = 0; start < m_firstFree; index++, start += m_blocksize) {
+      final int[] block = m_map[index];
+      if (null != block) {
+        System.arraycopy(block, 0, flat, start, Math.min(m_blocksize, m_firstFree - start));
+      }
+    }
+    return flat;
+  }
+
+  /**
+   * Estimate the heap size of this vector: the allocated blocks, which may hold more elements than
+   * {@link #size()}, and the block map.
+   *
+   * @return the estimated number of bytes retained by this vector
+   */
+  public long getHeapBytes() {
+    long bytes = HeapSize.align(HeapSize.OBJECT_HEADER + 7 * Integer.BYTES + 3 * HeapSize.REFERENCE);
+    bytes += HeapSize.ofReferences(m_map.length);
+    for (final int[] block : m_map) {
+      if (null != block) {
+        bytes += HeapSize.ofInts(block.length);
+      }
+    }
+    return bytes;
+  }
+
   /**
    * Searches for the first occurence of the given argument, beginning the search at index, and
    * testing for equality using the equals method.
@@ -29,11 +29,14 @@
  */
 module org.htmlunit.xpath {
     requires java.xml;
+    requires static jdk.jfr;
 
     exports org.htmlunit.xpath;
     exports org.htmlunit.xpath.axes;
     exports org.htmlunit.xpath.compiler;
     exports org.htmlunit.xpath.functions;
+    exports org.htmlunit.xpath.jfr;
+    exports org.htmlunit.xpath.metrics;
     exports org.htmlunit.xpath.objects;
     exports org.htmlunit.xpath.operations;
     exports org.htmlunit.xpath.patterns;
@@ -18,6 +18,7 @@
 package org.htmlunit.xpath;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -26,6 +27,8 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Assertions;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 /** Parent for our tests */
 public abstract class AbstractXPathTest {
@@ -60,4 +63,54 @@ public abstract class AbstractXPathTest {
       final String xPath, final String exMsg, final String exCauseMsg) throws Exception {
     assertGetByXpathException("<root></root>", xPath, exMsg, exCauseMsg);
   }
+
+  /**
+   * Parse the xml with a namespace aware parser.
+   *
+   * @param xml the xml
+   * @return the document
+   * @throws Exception in case of problems
+   */
+  public static Document parse(final String xml) throws Exception {
+    final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    return factory.newDocumentBuilder().parse(IOUtils.toInputStream(xml, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A root with sections of items, every item has an id and a class of even or odd, every third
+   * item has a text.
+   *
+   * @param sections the number of sections
+   * @param items the number of items in every section
+   * @return the xml
+   */
+  public static String sectionsXml(final int sections, final int items) {
+    final StringBuilder xml = new StringBuilder("<root>");
+    for (int i = 0; i < sections; i++) {
+      xml.append("<section name='s").append(i).append("'>");
+      for (int j = 0; j < items; j++) {
+        xml.append("<item id='").append(i).append('-').append(j)
+            .append("' class='").append(j % 2 == 0 ? "even" : "odd").append("'>");
+        if (j % 3 == 0) {
+          xml.append("text ").append(j);
+        }
+        xml.append("</item>");
+      }
+      xml.append("</section>");
+    }
+    return xml.append("</root>").toString();
+  }
+
+  /**
+   * @param nodeList the nodes
+   * @return the nodes as list, to compare them
+   */
+  public static List<Node> toList(final NodeList nodeList) {
+    final List<Node> result = new ArrayList<>();
+    for (int i = 0; i < nodeList.getLength(); i++) {
+      result.add(nodeList.item(i));
+    }
+    return result;
+  }
 }
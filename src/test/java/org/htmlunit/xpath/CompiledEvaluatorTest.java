@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.htmlunit.xpath.objects.XObject;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/** Unit test for the CompiledEvaluator. */
+public class CompiledEvaluatorTest extends AbstractXPathTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameResultAsInterpreted() throws Exception {
+    final Document doc = parse(sectionsXml(10, 8));
+    for (final String expr :
+        new String[] {
+          "//item",
+          "//item[@class='odd']",
+          "//item['even'=@class]",
+          "//item[@id][@class='even']",
+          "//section/item[text()]",
+          "/root//item[@id]",
+          "/root/*",
+          "/root/section/item/@class",
+          "//@class",
+          "//@*",
+          "//text()",
+          "//node()",
+          "//*",
+          "/descendant::item",
+          "/descendant-or-self::node()",
+          "//section//text()",
+          "//section[item[@class='even']]",
+          "//section[@name='s3']/item[@id='3-4']",
+          "//item[@missing]",
+          "//item[normalize-space(.)='text 3']",
+          "//item[normalize-space(.)='text 3'][@id]",
+          "//item/self::item",
+          "//item/self::section",
+          "section/item"
+        }) {
+      final CompiledEvaluator evaluator = new CompiledEvaluator(expr, null);
+      assertTrue(evaluator.isCompiled(), expr);
+
+      final XObject compiled = evaluator.execute(new XPathContext(), doc, null);
+      final XObject interpreted = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+      assertEquals(toList(interpreted.nodelist()), toList(compiled.nodelist()), expr);
+    }
+  }
+
+  /**
+   * CDATA sections are text nodes.
+   *
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void cdata() throws Exception {
+    final Document doc = parse("<root>t<a>x<![CDATA[y]]></a><![CDATA[cd]]><b/></root>");
+    for (final String expr : new String[] {"//text()", "/root/text()", "//a/text()", "//node()", "/root//text()"}) {
+      final CompiledEvaluator evaluator = new CompiledEvaluator(expr, null);
+      assertTrue(evaluator.isCompiled(), expr);
+
+      final XObject compiled = evaluator.execute(new XPathContext(), doc, null);
+      final XObject interpreted = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+      assertEquals(toList(interpreted.nodelist()), toList(compiled.nodelist()), expr);
+    }
+    assertEquals(3, new CompiledEvaluator("//text()", null).execute(new XPathContext(), doc, null).nodelist().getLength());
+  }
+
+  /**
+   * Attribute context nodes inside the subtree of an earlier context node.
+   *
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void attributesInsideCoveredSubtree() throws Exception {
+    final Document doc = parse("<r><a c='1'><b c='2'>t</b></a><a c='3'/></r>");
+    for (final String expr :
+        new String[] {
+          "//@c/ancestor-or-self::node()/descendant-or-self::node()",
+          "//@c/ancestor-or-self::node()/descendant::node()",
+          "//b/ancestor-or-self::node()/@c/self::node()"
+        }) {
+      final CompiledEvaluator evaluator = new CompiledEvaluator(expr, null);
+      assertTrue(evaluator.isCompiled(), expr);
+
+      final XObject compiled = evaluator.execute(new XPathContext(), doc, null);
+      final XObject interpreted = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+      assertEquals(toList(interpreted.nodelist()), toList(compiled.nodelist()), expr);
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void relativeToContextNode() throws Exception {
+    final Document doc = parse(sectionsXml(10, 8));
+    final Node section = doc.getDocumentElement().getChildNodes().item(2);
+    for (final String expr : new String[] {"item", ".//text()", "item[@class='odd']/@id", "//section", "."}) {
+      final CompiledEvaluator evaluator = new CompiledEvaluator(expr, null);
+      assertTrue(evaluator.isCompiled(), expr);
+
+      final XObject compiled = evaluator.execute(new XPathContext(), section, null);
+      final XObject interpreted = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), section, null);
+      assertEquals(toList(interpreted.nodelist()), toList(compiled.nodelist()), expr);
+    }
+  }
+
+  /**
+   * Steps the plan does not support are evaluated by the interpreter, the other steps are not.
+   *
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void interpretedSteps() throws Exception {
+    final Document doc = parse(sectionsXml(10, 8));
+    for (final String expr :
+        new String[] {
+          "//item/..",
+          "//section//item/..",
+          "//item[1]",
+          "//item[last()]",
+          "/root/section[position() > 8]/item[@class='odd']",
+          "//item[3]/@id",
+          "//item/following-sibling::item[1]",
+          "//item[@id='2-3']/preceding-sibling::*",
+          "//item[@id='2-3']/ancestor::*",
+          "//item[@id='2-3']/ancestor-or-self::node()[2]/item",
+          "//item[@id='9-7']/preceding::section[2]/item[@class='even']",
+          "//section[1]/following::item[text()]",
+          "//item[@class='odd']/@id/..",
+          "/root/section/item[2]/parent::section/@name",
+          "//@class/ancestor-or-self::node()/descendant-or-self::node()"
+        }) {
+      final CompiledEvaluator evaluator = new CompiledEvaluator(expr, null);
+      assertTrue(evaluator.isCompiled(), expr);
+
+      final XObject compiled = evaluator.execute(new XPathContext(), doc, null);
+      final XObject interpreted = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+      assertEquals(toList(interpreted.nodelist()), toList(compiled.nodelist()), expr);
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void interpretedFallback() throws Exception {
+    final Document doc = parse(sectionsXml(10, 8));
+    for (final String expr :
+        new String[] {"count(//item)", "//item | //section", "string(//item/@id)", "..", "parent::*[1]",
+          "id('x')/item"}) {
+      final CompiledEvaluator evaluator = new CompiledEvaluator(expr, null);
+      assertFalse(evaluator.isCompiled(), expr);
+
+      final XObject result = evaluator.execute(new XPathContext(), doc, null);
+      final XObject interpreted = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+      assertEquals(interpreted.str(), result.str(), expr);
+    }
+  }
+}
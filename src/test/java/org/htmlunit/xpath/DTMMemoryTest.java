@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.DTMManager;
+import org.htmlunit.xpath.xml.dtm.ref.DTMManagerDefault;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for the heap accounting and the memory limit of the DTMs. */
+public class DTMMemoryTest extends AbstractXPathTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void heapBytes() throws Exception {
+    final XPathContext xctxt = new XPathContext();
+    final DTMManagerDefault manager = (DTMManagerDefault) xctxt.getDTMManager();
+    assertEquals(0, manager.getHeapBytes());
+
+    final DOM2DTM small = getDTM(xctxt, buildDocument(10));
+    final long smallBytes = small.getHeapBytes();
+    assertTrue(smallBytes > 0);
+    assertEquals(smallBytes, manager.getHeapBytes());
+
+    small.buildFully();
+    assertTrue(small.getHeapBytes() > smallBytes);
+
+    final DOM2DTM large = getDTM(xctxt, buildDocument(5000));
+    large.buildFully();
+    // five int columns and the node list
+    assertTrue(large.getHeapBytes() > 5000L * 6 * Integer.BYTES);
+    assertEquals(small.getHeapBytes() + large.getHeapBytes(), manager.getHeapBytes());
+
+    manager.release(large);
+    assertEquals(small.getHeapBytes(), manager.getHeapBytes());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void compactDropsVectors() throws Exception {
+    final XPathContext xctxt = new XPathContext();
+    final DOM2DTM flat = getDTM(xctxt, buildDocument(5000));
+    flat.buildFully(false);
+    final DOM2DTM offHeap = getDTM(xctxt, buildDocument(5000));
+    offHeap.buildFully(true);
+
+    // the flat arrays are not held next to the vectors they were copied from
+    final long columns = 5L * flat.getNumberOfNodes() * Integer.BYTES;
+    assertTrue(flat.getHeapBytes() - offHeap.getHeapBytes() < 2 * columns);
+
+    // and they can still be moved off-heap
+    final XPath xpath = new XPath("count(//a)", null, XPath.SELECT);
+    final double count = xpath.execute(xctxt, flat.getNode(flat.getDocument()), null).num();
+    flat.buildFully(true);
+    assertEquals(count, xpath.execute(xctxt, flat.getNode(flat.getDocument()), null).num());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void memoryLimit() throws Exception {
+    final XPathContext xctxt = new XPathContext();
+    xctxt.setIncremental(false);
+    final DTMManagerDefault manager = (DTMManagerDefault) xctxt.getDTMManager();
+
+    final Document first = buildDocument(1000);
+    final Document second = buildDocument(1000);
+    final DTM firstDTM = getDTM(xctxt, first);
+    final DTM secondDTM = getDTM(xctxt, second);
+
+    // the uses are tracked while there is a limit, the first one was used most recently
+    manager.setMemoryLimit(manager.getHeapBytes());
+    assertNotNull(xctxt.getDTM(xctxt.getDTMHandleFromNode(first)));
+
+    final DTM thirdDTM = getDTM(xctxt, buildDocument(1000));
+    assertTrue(manager.getHeapBytes() <= manager.getMemoryLimit());
+
+    // the second DTM was evicted
+    assertFalse(manager.release(secondDTM));
+    assertTrue(manager.release(firstDTM));
+    assertTrue(manager.release(thirdDTM));
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void nodeSetAcrossEviction() throws Exception {
+    final XPathContext xctxt = new XPathContext();
+    xctxt.setIncremental(false);
+    final DTMManagerDefault manager = (DTMManagerDefault) xctxt.getDTMManager();
+
+    final Document first = buildDocument(1000);
+    final XObject nodes = new XPath("/root/a", null, XPath.SELECT).execute(xctxt, first, null);
+    final int handle = nodes.iter().nextNode();
+    assertNotNull(xctxt.getDTM(handle));
+
+    // creating the second DTM evicts the first one
+    manager.setMemoryLimit(manager.getHeapBytes());
+    getDTM(xctxt, buildDocument(1000));
+
+    // the handle of the first document does not resolve to a node of the second one
+    assertThrows(RuntimeException.class, () -> xctxt.getDTM(handle));
+
+    // the ID is only reused once the others are gone
+    assertNotEquals(handle >>> DTMManager.IDENT_DTM_NODE_BITS,
+        getDTM(xctxt, buildDocument(10)).getDocument() >>> DTMManager.IDENT_DTM_NODE_BITS);
+  }
+
+  private static DOM2DTM getDTM(final XPathContext xctxt, final Document doc) {
+    return (DOM2DTM) xctxt.getDTM(xctxt.getDTMHandleFromNode(doc));
+  }
+
+  private static Document buildDocument(final int children) throws Exception {
+    return parse("<root>" + "<a/>".repeat(children) + "</root>");
+  }
+}
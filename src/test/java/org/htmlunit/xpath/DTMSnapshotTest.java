@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.DTMIterator;
+import org.htmlunit.xpath.xml.dtm.ref.DTMManagerDefault;
+import org.htmlunit.xpath.xml.dtm.ref.DTMSnapshot;
+import org.htmlunit.xpath.xml.utils.PrefixResolver;
+import org.htmlunit.xpath.xml.utils.PrefixResolverDefault;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for DTM snapshots. */
+public class DTMSnapshotTest extends AbstractXPathTest {
+
+  private static final String XML =
+      "<root xmlns:p='urn:p'>"
+          + "<!-- comment --><?pi data?>"
+          + "<a id='1'>text<![CDATA[cdata]]>more<b/></a>"
+          + "<p:a p:id='2'>  <c>deep<d>deeper</d></c></p:a>"
+          + "<e/>"
+          + "</root>";
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameResultAsDOM() throws Exception {
+    final String[] expressions = {
+      "//a",
+      "//node()",
+      "//@*",
+      "//text()",
+      "//c/following::*",
+      "//d/ancestor::*",
+      "//e/preceding::node()",
+      "/root/*[2]/following-sibling::*",
+      "//*[last()]/preceding-sibling::*",
+      "//namespace::*",
+      "//p:a/@p:id",
+      "//a[@id='1']",
+      "count(//*)",
+      "string(/root)",
+      "string(/)",
+      "string(//c)",
+      "string(//a[@id='1'])",
+      "count(//*[string() = 'deeper'])",
+      "local-name(//p:a)",
+      "namespace-uri(//p:a)",
+      "name(//processing-instruction())",
+      "string(//comment())"
+    };
+    assertSameResults(parse(XML), expressions);
+  }
+
+  /**
+   * More nodes than fit into the addressing range of one DTM identity.
+   *
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void largeDocument() throws Exception {
+    final StringBuilder xml = new StringBuilder("<root>");
+    for (int i = 0; i < 25_000; i++) {
+      xml.append("<a id='").append(i).append("'>").append(i).append("<b/></a>");
+    }
+    xml.append("</root>");
+
+    assertSameResults(parse(xml.toString()),
+        new String[] {"count(//b)", "string(//a[@id='24999'])", "count(//a[@id='20000']/following::b)",
+          "sum(//a[position() > 24990]/@id)"});
+  }
+
+  private static void assertSameResults(final Document doc, final String[] expressions) throws Exception {
+    final Path file = Files.createTempFile("dtm", ".snapshot");
+    final XPathContext mapped = new XPathContext();
+    final DTMManagerDefault manager = (DTMManagerDefault) mapped.getDTMManager();
+    DTM dtm = null;
+    try {
+      final XPathContext xctxt = new XPathContext();
+      DTMSnapshot.write(xctxt.getDTM(xctxt.getDTMHandleFromNode(doc)), file);
+
+      dtm = manager.loadSnapshot(file);
+
+      final PrefixResolver resolver = new PrefixResolverDefault(doc.getDocumentElement());
+      for (final String expr : expressions) {
+        final XPath xpath = new XPath(expr, resolver, XPath.SELECT);
+        final XPathContext dom = new XPathContext();
+        assertEquals(
+            toString(xpath.execute(dom, doc, resolver), dom),
+            toString(xpath.execute(mapped, dtm.getDocument(), resolver), mapped),
+            expr);
+      }
+    }
+    finally {
+      if (null != dtm) {
+        manager.release(dtm);
+      }
+      try {
+        Files.deleteIfExists(file);
+      }
+      catch (final IOException e) {
+        // Windows keeps a mapped file until the buffer is garbage collected
+        file.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  private static String toString(final XObject result, final XPathContext xctxt) throws Exception {
+    if (result.getType() != XObject.CLASS_NODESET) {
+      return result.str();
+    }
+    // compare the DTM view, a DOM text node may be only a part of an XPath text node
+    final StringBuilder sb = new StringBuilder();
+    final DTMIterator nodes = result.iter();
+    int node;
+    while (DTM.NULL != (node = nodes.nextNode())) {
+      final DTM dtm = xctxt.getDTM(node);
+      sb.append(dtm.getNodeName(node)).append('=').append(dtm.getNodeValue(node)).append(';');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.htmlunit.xpath.objects.XObject;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/** Unit test for eagerly built DTMs. */
+public class EagerDTMTest extends AbstractXPathTest {
+
+  private static final String XML =
+      "<root xmlns:p='urn:p'>"
+          + "<!-- comment --><?pi data?>"
+          + "<a id='1'>text<![CDATA[cdata]]>more<b/></a>"
+          + "<p:a p:id='2'>  <c>deep<d>deeper</d></c></p:a>"
+          + "<e/>"
+          + "</root>";
+
+  private static final String[] EXPRESSIONS = {
+    "//a",
+    "//node()",
+    "//@*",
+    "//text()",
+    "//c/following::*",
+    "//d/ancestor::*",
+    "//e/preceding::node()",
+    "/root/*[2]/following-sibling::*",
+    "//*[last()]/preceding-sibling::*",
+    "//namespace::*",
+    "count(//*)",
+    "string(/root)"
+  };
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameResultAsIncremental() throws Exception {
+    final Document doc = parse(XML);
+    for (final int hint : new int[] {0, 3, 30, 3000}) {
+      for (final String expr : EXPRESSIONS) {
+        final XPathContext incremental = new XPathContext();
+        final XPathContext eager = new XPathContext();
+        eager.setIncremental(false);
+        eager.setNodeCountHint(hint);
+
+        final XPath xpath = new XPath(expr, null, XPath.SELECT);
+        assertEquals(
+            xpath.execute(incremental, doc, null).str(), xpath.execute(eager, doc, null).str(), expr);
+        assertEquals(
+            toString(xpath.execute(incremental, doc, null)), toString(xpath.execute(eager, doc, null)), expr);
+      }
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void fullyBuilt() throws Exception {
+    final Document doc = parse(XML);
+
+    final XPathContext incremental = new XPathContext();
+    assertFalse(((DOM2DTM) incremental.getDTM(incremental.getDTMHandleFromNode(doc))).isFullyBuilt());
+
+    final XPathContext eager = new XPathContext();
+    eager.setIncremental(false);
+    assertFalse(eager.getIncremental());
+    assertTrue(((DOM2DTM) eager.getDTM(eager.getDTMHandleFromNode(doc))).isFullyBuilt());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void offHeap() throws Exception {
+    final Document doc = parse(XML);
+    for (final String expr : EXPRESSIONS) {
+      final XPathContext offHeap = new XPathContext();
+      offHeap.setIncremental(false);
+      offHeap.setOffHeap(true);
+
+      final XPath xpath = new XPath(expr, null, XPath.SELECT);
+      assertEquals(
+          toString(xpath.execute(new XPathContext(), doc, null)), toString(xpath.execute(offHeap, doc, null)), expr);
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void release() throws Exception {
+    final Document doc = parse(XML);
+
+    final XPathContext xctxt = new XPathContext();
+    xctxt.setIncremental(false);
+    xctxt.setOffHeap(true);
+    final DTM dtm = xctxt.getDTM(xctxt.getDTMHandleFromNode(doc));
+
+    assertTrue(xctxt.release(dtm));
+    assertFalse(xctxt.release(dtm));
+
+    // a new DTM is built for the next evaluation
+    assertEquals("7", new XPath("count(//*)", null, XPath.SELECT).execute(xctxt, doc, null).str());
+  }
+
+  /**
+   * More nodes than fit into one block of the node arrays.
+   *
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void largeDocument() throws Exception {
+    final StringBuilder xml = new StringBuilder("<root>");
+    for (int i = 0; i < 300; i++) {
+      xml.append("<a id='").append(i).append("'><b>").append(i).append("</b><c/></a>");
+    }
+    xml.append("</root>");
+    final Document doc = parse(xml.toString());
+
+    for (final String expr :
+        new String[] {"count(//b)", "count(//a[@id='250']/following::c)", "count(//c/preceding::b)",
+          "count(//a[250]/preceding-sibling::*)", "string(//b[../@id='299']/ancestor::a/@id)"}) {
+      final XPathContext eager = new XPathContext();
+      eager.setIncremental(false);
+
+      final XPath xpath = new XPath(expr, null, XPath.SELECT);
+      assertEquals(xpath.execute(new XPathContext(), doc, null).str(), xpath.execute(eager, doc, null).str(), expr);
+    }
+  }
+
+  private static String toString(final XObject result) throws Exception {
+    if (result.getType() != XObject.CLASS_NODESET) {
+      return result.str();
+    }
+    final StringBuilder sb = new StringBuilder();
+    final NodeList nodes = result.nodelist();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      sb.append(nodes.item(i).getNodeName()).append('=').append(nodes.item(i).getNodeValue()).append(';');
+    }
+    return sb.toString();
+  }
+}
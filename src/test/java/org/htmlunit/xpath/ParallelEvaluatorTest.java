@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.htmlunit.xpath.objects.XObject;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for the ParallelEvaluator. */
+public class ParallelEvaluatorTest extends AbstractXPathTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameResultAsSequential() throws Exception {
+    final Document doc = parse(sectionsXml(50, 20));
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (final String expr :
+          new String[] {
+            "//item",
+            "//item[@class='odd']",
+            "//section/item[text()]",
+            "/root//item[@id]",
+            "//@class",
+            "//text()",
+            "//node()",
+            "//*",
+            "//item | //section",
+            "//section[item[@class='even']]",
+            "//item[@id = /root/section[3]/item[7]/@id]",
+            "//item[normalize-space(.)='text 3']"
+          }) {
+        final ParallelEvaluator evaluator = new ParallelEvaluator(expr, null, pool);
+        assertTrue(evaluator.isParallelizable(), expr);
+        evaluator.setThreshold(0);
+        evaluator.setChunkSize(64);
+
+        final XObject parallel = evaluator.execute(new XPathContext(), doc, null);
+        final XObject sequential = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+        assertEquals(toList(sequential.nodelist()), toList(parallel.nodelist()), expr);
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * CDATA sections are text nodes.
+   *
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void cdata() throws Exception {
+    final Document doc = parse("<root>t<a>x<![CDATA[y]]></a><![CDATA[cd]]><b/></root>");
+    final ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      for (final String expr : new String[] {"//text()", "/root/text()", "//node()", "/root//text()"}) {
+        final ParallelEvaluator evaluator = new ParallelEvaluator(expr, null, pool);
+        assertTrue(evaluator.isParallelizable(), expr);
+        evaluator.setThreshold(0);
+        evaluator.setChunkSize(2);
+
+        final XObject parallel = evaluator.execute(new XPathContext(), doc, null);
+        final XObject sequential = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+        assertEquals(toList(sequential.nodelist()), toList(parallel.nodelist()), expr);
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sequentialFallback() throws Exception {
+    final Document doc = parse(sectionsXml(50, 20));
+    final ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      for (final String expr :
+          new String[] {"count(//item)", "//item[1]", "//item[last()]", "section/item", "/descendant::item"}) {
+        final ParallelEvaluator evaluator = new ParallelEvaluator(expr, null, pool);
+        assertFalse(evaluator.isParallelizable(), expr);
+
+        final XObject result = evaluator.execute(new XPathContext(), doc, null);
+        final XObject sequential = new XPath(expr, null, XPath.SELECT).execute(new XPathContext(), doc, null);
+        assertEquals(sequential.str(), result.str(), expr);
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.StringValueCache;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for {@link StringValueCache}. */
+public class StringValueCacheTest extends AbstractXPathTest {
+
+  private static final String XML =
+      "<root>"
+          + div(0) + div(1) + div(2) + div(3) + div(4)
+          + "<span><i>s</i>t</span><span><i>s</i>t</span>"
+          + "</root>";
+
+  private static final String EXPRESSION =
+      "//div[contains(., 'b3') or starts-with(normalize-space(.), 'x')][string-length(.) > 3]"
+          + " | //div[. = 'a1123456b1']";
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameResult() throws Exception {
+    final Document doc = parse(XML);
+    final XPath xpath = new XPath(EXPRESSION, null, XPath.SELECT);
+
+    final XPathContext plain = new XPathContext();
+    final XPathContext cached = new XPathContext();
+    cached.setStringValueCacheSize(8);
+
+    assertEquals(
+        xpath.execute(plain, doc, null).nodelist().getLength(),
+        xpath.execute(cached, doc, null).nodelist().getLength());
+
+    final DOM2DTM dtm = (DOM2DTM) cached.getDTM(cached.getDTMHandleFromNode(doc));
+    final StringValueCache cache = dtm.getStringValueCache();
+    // one miss for each div, every other lookup is a hit
+    assertEquals(5, cache.getMisses());
+    assertTrue(cache.getHitRate() > 0.7);
+    assertEquals(5, cache.size());
+
+    cached.release(dtm);
+    assertEquals(0, cache.size());
+
+    // bounded, the least recently used values are dropped
+    final XPathContext small = new XPathContext();
+    small.setStringValueCacheSize(2);
+    assertEquals(2, xpath.execute(small, doc, null).nodelist().getLength());
+    assertEquals(2, ((DOM2DTM) small.getDTM(small.getDTMHandleFromNode(doc))).getStringValueCache().size());
+
+    assertNull(((DOM2DTM) plain.getDTM(plain.getDTMHandleFromNode(doc))).getStringValueCache());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void smallSubtreesNotCached() throws Exception {
+    final Document doc = parse(XML);
+    final XPathContext xctxt = new XPathContext();
+    xctxt.setStringValueCacheSize(8);
+
+    assertEquals(2, new XPath("//span[. = 'st'][contains(., 's')]", null, XPath.SELECT)
+        .execute(xctxt, doc, null).nodelist().getLength());
+    final StringValueCache cache = ((DOM2DTM) xctxt.getDTM(xctxt.getDTMHandleFromNode(doc))).getStringValueCache();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMisses());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void clearedForEachEvaluation() throws Exception {
+    final Document doc = parse(XML);
+    final XPathContext xctxt = new XPathContext();
+    xctxt.setStringValueCacheSize(8);
+    final XPath xpath = new XPath("//div[concat(., '') = 'a1123456b1']", null, XPath.SELECT);
+
+    assertEquals(1, xpath.execute(xctxt, doc, null).nodelist().getLength());
+    final StringValueCache cache = ((DOM2DTM) xctxt.getDTM(xctxt.getDTMHandleFromNode(doc))).getStringValueCache();
+    assertEquals(5, cache.size());
+
+    // the text changes, the next evaluation does not see the old value
+    doc.getElementsByTagName("div").item(1).getLastChild().setNodeValue("changed");
+    assertEquals(0, xpath.execute(xctxt, doc, null).nodelist().getLength());
+    assertEquals(1, new XPath("//div[. = 'a1123456changed']", null, XPath.SELECT)
+        .execute(xctxt, doc, null).nodelist().getLength());
+  }
+
+  private static String div(final int i) {
+    return "<div><a>a" + i + "</a><b>1</b><b>2</b><b>3</b><b>4</b><b>5</b><b>6</b>b" + i + "</div>";
+  }
+}
@@ -85,6 +85,18 @@ public class XPathGeneralTest extends AbstractXPathTest {
     assertEquals(2, hits.size());
   }
 
+  /** @throws Exception in case of problems */
+  @Test
+  public void descendantTextWithCDATA() throws Exception {
+    final String xml = "<root><a><b/>x</a><![CDATA[cd]]><b/></root>";
+    assertEquals(2, getByXpath(xml, "//text()").size());
+    assertEquals(2, getByXpath(xml, "/descendant::text()").size());
+    assertEquals(2, getByXpath(xml, "/root//text()").size());
+    assertEquals(1, getByXpath(xml, "/root/text()").size());
+    assertEquals("x", getByXpath(xml, "string(.//text())").get(0));
+    assertEquals("cd", getByXpath(xml, "string(//text()[. = 'cd'])").get(0));
+  }
+
   /** @throws Exception in case of problems */
   @Test
   public void descendantOrSelfAxis() throws Exception {
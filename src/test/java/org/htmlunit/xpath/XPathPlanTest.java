@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.htmlunit.xpath.axes.WalkerFactory;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link XPath#explain()}. */
+public class XPathPlanTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void oneStepIterators() throws Exception {
+    XPathPlan plan = explain("//a");
+    assertEquals("DescendantIterator", plan.getType());
+    assertEquals("descendant", plan.getAxis());
+    assertEquals("a", plan.getNodeTest());
+    assertTrue(WalkerFactory.isAbsolute(plan.getAnalysis()));
+    assertFalse(plan.needsSorting());
+
+    plan = explain("a");
+    assertEquals("ChildTestIterator", plan.getType());
+    assertEquals("child", plan.getAxis());
+
+    plan = explain("node()");
+    assertEquals("ChildIterator", plan.getType());
+    assertEquals("node()", plan.getNodeTest());
+
+    plan = explain("@id");
+    assertEquals("AttributeIterator", plan.getType());
+    assertEquals("attribute", plan.getAxis());
+    assertEquals("id", plan.getNodeTest());
+
+    plan = explain("ancestor::text()");
+    assertEquals("OneStepIterator", plan.getType());
+    assertEquals("ancestor", plan.getAxis());
+    assertEquals("text()", plan.getNodeTest());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void walkers() throws Exception {
+    final XPathPlan plan = explain("/root/a[@id='x']/text()");
+    assertEquals("WalkingIterator", plan.getType());
+    assertEquals(4, plan.getSteps().size());
+    assertEquals("root", plan.getSteps().get(0).getAxis());
+
+    final XPathPlan step = plan.getSteps().get(2);
+    assertEquals("child", step.getAxis());
+    assertEquals("a", step.getNodeTest());
+    assertEquals(1, step.getPredicates().size());
+
+    final XPathPlan predicate = step.getPredicates().get(0);
+    assertEquals("Equals", predicate.getType());
+    assertEquals("AttributeIterator", predicate.getArguments().get(0).getType());
+    assertEquals("'x'", predicate.getArguments().get(1).getLiteral());
+
+    assertEquals("text()", plan.getSteps().get(3).getNodeTest());
+
+    int cost = 0;
+    for (final XPathPlan s : plan.getSteps()) {
+      cost += s.getCost();
+    }
+    assertEquals(cost, plan.getCost());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sorted() throws Exception {
+    final XPathPlan plan = explain("//a/..");
+    assertEquals("WalkingIteratorSorted", plan.getType());
+    assertTrue(plan.needsSorting());
+    assertTrue(plan.isCached());
+    assertEquals("parent", plan.getSteps().get(plan.getSteps().size() - 1).getAxis());
+
+    assertFalse(explain("/a/b").needsSorting());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void operationsAndFunctions() throws Exception {
+    final XPathPlan plan = explain("count(//a) > 2 and string-length() = 3");
+    assertEquals("And", plan.getType());
+    assertNull(plan.getAxis());
+
+    final XPathPlan gt = plan.getArguments().get(0);
+    assertEquals("Gt", gt.getType());
+    assertEquals("FuncCount", gt.getArguments().get(0).getType());
+    assertEquals("DescendantIterator", gt.getArguments().get(0).getArguments().get(0).getType());
+
+    // the expensive path costs more than the string-value of the context node
+    assertTrue(gt.getCost() > plan.getArguments().get(1).getCost());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void stringValues() throws Exception {
+    // the compiler's cost model: the string-values of elements cost, the ones of attributes not
+    assertEquals(12, explain("b = 'x'").getCost());
+    assertEquals(1, explain("@b = 'x'").getCost());
+    assertEquals(12, explain("contains(b, 'x')").getCost());
+    assertEquals(8, explain("count(b)").getCost());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void unions() throws Exception {
+    XPathPlan plan = explain("//a | //b");
+    assertEquals("UnionPathIterator", plan.getType());
+    assertEquals(2, plan.getArguments().size());
+
+    plan = explain("a | b[@c]");
+    assertEquals("UnionChildIterator", plan.getType());
+    assertEquals("b", plan.getArguments().get(1).getNodeTest());
+    assertEquals(1, plan.getArguments().get(1).getPredicates().size());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void filter() throws Exception {
+    final XPathPlan plan = explain("(//a)[1]/b");
+    final XPathPlan filter = plan.getSteps().get(0);
+    assertEquals("FilterExprWalker", filter.getType());
+    assertEquals("DescendantIterator", filter.getArguments().get(0).getType());
+    assertEquals("XNumber", filter.getPredicates().get(0).getType());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void text() throws Exception {
+    assertEquals(
+        "ChildTestIterator child::a (cost 9, analysis count: 1 PRED|CH|)\n"
+            + "  predicate: AttributeIterator attribute::b (cost 1, analysis count: 1 ATTR|)\n",
+        explain("a[@b]").toString());
+  }
+
+  private static XPathPlan explain(final String expr) throws Exception {
+    return new XPath(expr, null, XPath.SELECT).explain();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for {@link XPath#setProfiling(boolean)}. */
+public class XPathProfileTest extends AbstractXPathTest {
+
+  private static final String XML =
+      "<root>"
+          + "<a class='even'><b/></a><a class='odd'><b/></a><a class='even'><b/></a><a class='odd'><b/></a>"
+          + "<a class='even'><b/></a><a class='odd'><b/></a><a class='even'><b/></a><a class='odd'><b/></a>"
+          + "<a class='even'><b/></a><a class='odd'><b/></a>"
+          + "</root>";
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void counters() throws Exception {
+    final Document doc = parse(XML);
+    final XPath xpath = new XPath("/root/a[@class='odd']/b", null, XPath.SELECT);
+    assertNull(xpath.getProfile());
+
+    xpath.setProfiling(true);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(5, xpath.execute(new XPathContext(), doc, null).nodelist().getLength());
+    }
+
+    final XPathProfile profile = xpath.getProfile();
+    assertEquals(3, profile.getExecutions());
+
+    final XPathProfile.Step a = find(profile, "AxesWalker child::a");
+    assertEquals(3 * 10, a.getVisited());
+    assertEquals(3 * 5, a.getAccepted());
+    assertEquals(3 * 10, a.getPredicateEvaluations());
+
+    final XPathProfile.Step b = find(profile, "AxesWalker child::b");
+    assertEquals(3 * 5, b.getVisited());
+    assertEquals(3 * 5, b.getAccepted());
+    assertEquals(0, b.getPredicateEvaluations());
+
+    final XPathProfile.Step attribute = find(profile, "AttributeIterator attribute::class");
+    assertEquals(3 * 10, attribute.getAccepted());
+
+    assertTrue(profile.toString().contains("AxesWalker child::a: visited 30, accepted 15, predicates 30"));
+
+    profile.reset();
+    assertEquals(0, profile.getExecutions());
+    assertEquals(0, a.getVisited());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void last() throws Exception {
+    final Document doc = parse(XML);
+    final XPath xpath = new XPath("/root/a[last()]", null, XPath.SELECT);
+    xpath.setProfiling(true);
+    assertEquals(1, xpath.execute(new XPathContext(), doc, null).nodelist().getLength());
+
+    // every node tested counts the nodes again in a clone
+    assertTrue(find(xpath.getProfile(), "AxesWalker child::a").getClones() > 0);
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void off() throws Exception {
+    final Document doc = parse(XML);
+    final XPath xpath = new XPath("count(//a)", null, XPath.SELECT);
+    xpath.setProfiling(true);
+    assertEquals(10, (int) xpath.execute(new XPathContext(), doc, null).num());
+    final XPathProfile.Step step = find(xpath.getProfile(), "DescendantIterator descendant::a");
+    assertEquals(10, step.getAccepted());
+
+    xpath.setProfiling(false);
+    assertNull(xpath.getProfile());
+    assertEquals(10, (int) xpath.execute(new XPathContext(), doc, null).num());
+    assertEquals(10, step.getAccepted());
+
+    // new counters
+    xpath.setProfiling(true);
+    assertEquals(10, (int) xpath.execute(new XPathContext(), doc, null).num());
+    assertEquals(10, find(xpath.getProfile(), "DescendantIterator descendant::a").getAccepted());
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void positionFilterStopsEarly() throws Exception {
+    final Document doc = parse(XML);
+    final XPath xpath = new XPath("/root/a[position() < 3]", null, XPath.SELECT);
+    xpath.setProfiling(true);
+    assertEquals(2, xpath.execute(new XPathContext(), doc, null).nodelist().getLength());
+    assertEquals(2, find(xpath.getProfile(), "AxesWalker child::a").getVisited());
+
+    final XPath plain = new XPath("/root/a[number(position()) < 3]", null, XPath.SELECT);
+    plain.setProfiling(true);
+    assertEquals(2, plain.execute(new XPathContext(), doc, null).nodelist().getLength());
+    assertEquals(10, find(plain.getProfile(), "AxesWalker child::a").getVisited());
+  }
+
+  private static XPathProfile.Step find(final XPathProfile profile, final String description) {
+    for (final XPathProfile.Step step : profile.getSteps()) {
+      if (description.equals(step.getDescription())) {
+        return step;
+      }
+    }
+    throw new AssertionError(description + " not found in " + profile);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Timing helper for the benchmark programs of this package. The benchmarks are plain main
+ * programs, they are not run by the unit tests.
+ */
+final class Benchmarks {
+
+  private Benchmarks() {
+  }
+
+  /**
+   * Run the task for warm up, then time it and print the median and the best time.
+   *
+   * @param label the label printed
+   * @param runs the number of timed runs, the same number of runs is done for warm up
+   * @param task the task; its result is printed to keep it alive
+   * @return the median time in nanoseconds
+   * @throws Exception in case of problems
+   */
+  static long measure(final String label, final int runs, final Callable<?> task) throws Exception {
+    Object result = null;
+    for (int i = 0; i < runs; i++) {
+      result = task.call();
+    }
+
+    final long[] times = new long[runs];
+    for (int i = 0; i < runs; i++) {
+      final long start = System.nanoTime();
+      result = task.call();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+
+    final long median = times[runs / 2];
+    System.out.printf("%-60s median %10.3f ms  best %10.3f ms  (%s)%n",
+        label, median / 1e6, times[0] / 1e6, result);
+    return median;
+  }
+}
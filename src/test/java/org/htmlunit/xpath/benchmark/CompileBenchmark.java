@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.benchmark;
+
+import java.util.Random;
+
+import org.htmlunit.xpath.XPath;
+
+/**
+ * Compile throughput for one-off selectors, which never hit a compile cache. No corpus of real
+ * selectors ships with the project; the corpus is generated from the shapes HtmlUnit users write,
+ * with a fixed seed.
+ *
+ * <p>Run with the test class path, the optional argument is the number of selectors.
+ */
+public final class CompileBenchmark {
+
+  private static final String[] ELEMENTS = {"div", "span", "a", "input", "td", "tr", "li", "button", "form"};
+  private static final String[] ATTRIBUTES = {"id", "class", "name", "type", "href", "title", "data-test-id"};
+  private static final String[] AXES = {"following-sibling", "ancestor", "preceding-sibling", "descendant"};
+
+  private CompileBenchmark() {
+  }
+
+  /**
+   * @param args the number of selectors, 100000 by default
+   * @throws Exception in case of problems
+   */
+  public static void main(final String[] args) throws Exception {
+    final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    final String[] corpus = corpus(count, new Random(42));
+
+    for (int round = 0; round < 3; round++) {
+      Benchmarks.measure("compile " + count + " selectors", 5, () -> {
+        int ops = 0;
+        for (final String selector : corpus) {
+          ops += new XPath(selector, null, XPath.SELECT).getPatternString().length();
+        }
+        return ops;
+      });
+    }
+  }
+
+  /**
+   * @param count the number of selectors
+   * @param random the source of the shapes
+   * @return generated selectors, most of them unique
+   */
+  static String[] corpus(final int count, final Random random) {
+    final String[] corpus = new String[count];
+    for (int i = 0; i < count; i++) {
+      final String element = pick(ELEMENTS, random);
+      final String attribute = pick(ATTRIBUTES, random);
+      final String value = "v" + random.nextInt(100_000);
+      switch (random.nextInt(8)) {
+        case 0:
+          corpus[i] = "//" + element + "[@" + attribute + "='" + value + "']";
+          break;
+        case 1:
+          corpus[i] = "//" + element + "[contains(@class, '" + value + "')]/" + pick(ELEMENTS, random);
+          break;
+        case 2:
+          corpus[i] = "//" + element + "[normalize-space(.)='" + value + " text']";
+          break;
+        case 3:
+          corpus[i] = "/html/body/div[" + (1 + random.nextInt(5)) + "]/" + element + "[" + (1 + random.nextInt(9)) + "]";
+          break;
+        case 4:
+          corpus[i] = "//" + element + "[@" + attribute + "='" + value + "']/" + pick(AXES, random) + "::"
+              + pick(ELEMENTS, random) + "[1]";
+          break;
+        case 5:
+          corpus[i] = "//form[@name='" + value + "']//input[@type='submit' and @value=\"Go " + value + "\"]";
+          break;
+        case 6:
+          corpus[i] = "count(//" + element + "[starts-with(@" + attribute + ", '" + value + "')]) > "
+              + random.nextInt(10);
+          break;
+        default:
+          corpus[i] = "//" + element + "[text()='" + value + "' or @title='" + value + "'] | //*[@id='" + value + "']";
+      }
+    }
+    return corpus;
+  }
+
+  private static String pick(final String[] values, final Random random) {
+    return values[random.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.benchmark;
+
+import org.htmlunit.xpath.AbstractXPathTest;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.xml.dtm.DTM;
+import org.htmlunit.xpath.xml.dtm.ref.DTMNodeTable;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.w3c.dom.Document;
+
+/**
+ * The node table of a DTM keeps one array per column. This compares it with an interleaved layout,
+ * all columns of a node next to each other in one array, on walks of the descendant and the
+ * following axis over a document of about 200k DTM nodes.
+ *
+ * <p>Run with the test class path.
+ */
+public final class NodeTableLayoutBenchmark {
+
+  /** Start nodes of the following axis walks. */
+  private static final int FOLLOWING_STARTS = 200;
+
+  private NodeTableLayoutBenchmark() {
+  }
+
+  /**
+   * @param args not used
+   * @throws Exception in case of problems
+   */
+  public static void main(final String[] args) throws Exception {
+    final Document doc = AbstractXPathTest.parse(AbstractXPathTest.sectionsXml(1500, 40));
+
+    final XPathContext xctxt = new XPathContext();
+    final DOM2DTM dtm = (DOM2DTM) xctxt.getDTM(xctxt.getDTMHandleFromNode(doc));
+    dtm.buildFully();
+    final int size = dtm.getNumberOfNodes();
+    final int item = dtm.getExpandedTypeID(null, "item", DTM.ELEMENT_NODE);
+    System.out.println(size + " nodes");
+
+    final DTMNodeTable columns = dtm.getNodeTable();
+    final DTMNodeTable interleaved = new InterleavedNodeTable(size, columns);
+
+    for (int round = 0; round < 3; round++) {
+      Benchmarks.measure("descendant, one array per column", 20, () -> descendants(columns, 0, item));
+      Benchmarks.measure("descendant, interleaved", 20, () -> descendants(interleaved, 0, item));
+      Benchmarks.measure("following, one array per column", 5, () -> following(columns, size, item));
+      Benchmarks.measure("following, interleaved", 5, () -> following(interleaved, size, item));
+    }
+  }
+
+  /**
+   * Count the nodes of a type on the descendant axis.
+   *
+   * @param nodes the node table
+   * @param root the identity of the context node
+   * @param exptype the expanded type to count
+   * @return the number of matching descendants
+   */
+  static int descendants(final DTMNodeTable nodes, final int root, final int exptype) {
+    int count = 0;
+    int node = nodes.firstch(root);
+    while (DTM.NULL != node) {
+      if (nodes.exptype(node) == exptype) {
+        count++;
+      }
+
+      int next = nodes.firstch(node);
+      while (DTM.NULL == next && node != root) {
+        next = nodes.nextsib(node);
+        if (DTM.NULL == next) {
+          node = nodes.parent(node);
+        }
+      }
+      node = node == root ? DTM.NULL : next;
+    }
+    return count;
+  }
+
+  /**
+   * Count the nodes of a type on the following axis of evenly spread start nodes.
+   *
+   * @param nodes the node table
+   * @param size the number of nodes
+   * @param exptype the expanded type to count
+   * @return the number of matching nodes over all walks
+   */
+  static int following(final DTMNodeTable nodes, final int size, final int exptype) {
+    int count = 0;
+    for (int start = 1; start < size; start += size / FOLLOWING_STARTS) {
+      // the following axis is the rest of the document after the subtree of the start node
+      int node = start;
+      while (DTM.NULL != node) {
+        final int next = nodes.nextsib(node);
+        if (DTM.NULL != next) {
+          if (nodes.exptype(next) == exptype) {
+            count++;
+          }
+          count += descendants(nodes, next, exptype);
+          node = next;
+        }
+        else {
+          node = nodes.parent(node);
+        }
+      }
+    }
+    return count;
+  }
+
+  /** All five columns of a node next to each other in one array. */
+  private static final class InterleavedNodeTable implements DTMNodeTable {
+
+    private static final int COLUMNS = 5;
+
+    private final int[] m_nodes;
+
+    InterleavedNodeTable(final int size, final DTMNodeTable nodes) {
+      m_nodes = new int[size * COLUMNS];
+      for (int identity = 0, pos = 0; identity < size; identity++, pos += COLUMNS) {
+        m_nodes[pos] = nodes.exptype(identity);
+        m_nodes[pos + 1] = nodes.firstch(identity);
+        m_nodes[pos + 2] = nodes.nextsib(identity);
+        m_nodes[pos + 3] = nodes.prevsib(identity);
+        m_nodes[pos + 4] = nodes.parent(identity);
+      }
+    }
+
+    @Override
+    public int exptype(final int identity) {
+      return m_nodes[identity * COLUMNS];
+    }
+
+    @Override
+    public int firstch(final int identity) {
+      return m_nodes[identity * COLUMNS + 1];
+    }
+
+    @Override
+    public int nextsib(final int identity) {
+      return m_nodes[identity * COLUMNS + 2];
+    }
+
+    @Override
+    public int prevsib(final int identity) {
+      return m_nodes[identity * COLUMNS + 3];
+    }
+
+    @Override
+    public int parent(final int identity) {
+      return m_nodes[identity * COLUMNS + 4];
+    }
+  }
+}
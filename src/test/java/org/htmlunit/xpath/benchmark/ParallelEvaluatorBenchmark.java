@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.htmlunit.xpath.AbstractXPathTest;
+import org.htmlunit.xpath.ParallelEvaluator;
+import org.htmlunit.xpath.XPath;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.xml.dtm.ref.dom2dtm.DOM2DTM;
+import org.w3c.dom.Document;
+
+/**
+ * Sequential and parallel evaluation of descendant-heavy expressions on a document of about 200k
+ * DTM nodes.
+ *
+ * <p>Run with the test class path, the optional argument is the parallelism of the pool.
+ */
+public final class ParallelEvaluatorBenchmark {
+
+  private static final String[] EXPRESSIONS = {
+    "//item[@class='odd']",
+    "//item[contains(., '3')]",
+    "//section//text()",
+    "//item[@id = /root/section[1000]/item[7]/@id]"
+  };
+
+  private ParallelEvaluatorBenchmark() {
+  }
+
+  /**
+   * @param args the parallelism of the pool, the number of processors by default
+   * @throws Exception in case of problems
+   */
+  public static void main(final String[] args) throws Exception {
+    final int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    final Document doc = AbstractXPathTest.parse(AbstractXPathTest.sectionsXml(1500, 40));
+
+    final XPathContext xctxt = new XPathContext();
+    final DOM2DTM dtm = (DOM2DTM) xctxt.getDTM(xctxt.getDTMHandleFromNode(doc));
+    dtm.buildFully();
+    System.out.println(dtm.getNumberOfNodes() + " nodes, parallelism " + parallelism);
+
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      for (final String expr : EXPRESSIONS) {
+        final XPath sequential = new XPath(expr, null, XPath.SELECT);
+        final ParallelEvaluator parallel = new ParallelEvaluator(expr, null, pool);
+
+        Benchmarks.measure("sequential " + expr, 10,
+            () -> sequential.execute(xctxt, doc, null).nodelist().getLength());
+        Benchmarks.measure("parallel   " + expr, 10,
+            () -> parallel.execute(xctxt, doc, null).nodelist().getLength());
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.htmlunit.xpath.AbstractXPathTest;
+import org.htmlunit.xpath.XPath;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for the simplifications done by the Compiler. */
+public class CompilerTest extends AbstractXPathTest {
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void foldConstants() throws Exception {
+    assertRewrites("1 + 2", "1 + 2 -> 3");
+    assertRewrites("(1 + 2) * 3", "1 + 2 -> 3", "3 * 3 -> 9");
+    assertRewrites("concat('a', 'b')", "concat('a', 'b') -> 'ab'");
+    assertRewrites("not(true())", "true() -> true()", "not(true()) -> false()");
+    assertRewrites("string-length('abc')", "string-length('abc') -> 3");
+    assertRewrites("number('12')", "number('12') -> 12");
+    assertRewrites("-(2)", "-2 -> -2");
+    assertRewrites("substring-before(\"it's\", \"'\")", "substring-before(\"it's\", \"'\") -> 'it'");
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void contextDependentNotFolded() throws Exception {
+    assertRewrites("string-length()");
+    assertRewrites("number() + 1");
+    assertRewrites("count(//a) + 1");
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void simplifyBoolean() throws Exception {
+    assertRewrites("not(not(a = 1))", "not(not(x)) -> x");
+    assertRewrites("not(not(a))", "not(not(x)) -> boolean(x)");
+    assertRewrites("boolean(a = 1)", "boolean(x) -> x");
+    assertRewrites("boolean(a) and b", "boolean(x) -> x");
+    assertRewrites("not(boolean(a))", "not(boolean(x)) -> not(x)");
+    assertRewrites("a and false()", "false() -> false()", "and terms swapped by cost", "x and false() -> false()");
+    assertRewrites("true() or a", "true() -> true()", "x or true() -> true()");
+    assertRewrites("boolean(a)");
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void fuseNormalizeSpace() throws Exception {
+    assertRewrites("normalize-space() = 'a'", "normalize-space(x) = 'a' -> fused comparison");
+    assertRewrites("'a' != normalize-space(b)", "normalize-space(x) != 'a' -> fused comparison");
+    assertRewrites("normalize-space() = ''", "normalize-space(x) = '' -> fused comparison");
+    assertRewrites("contains(normalize-space(), 'a')", "contains(normalize-space(x), 'a') -> fused comparison");
+    assertRewrites("starts-with(normalize-space(), 'a')",
+        "starts-with(normalize-space(x), 'a') -> fused comparison");
+    assertRewrites("not(normalize-space())", "not(normalize-space(x)) -> fused comparison");
+    assertRewrites("normalize-space() = b");
+    assertRewrites("contains(normalize-space(), b)");
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void fusePosition() throws Exception {
+    assertRewrites("//a[position() < 3]", "position() < 3 -> position filter");
+    assertRewrites("//a[3 >= position()]", "3 >= position() -> position filter");
+    assertRewrites("//a[position() mod 2 = 0]", "position() mod 2 = 0 -> position filter");
+    assertRewrites("//a[1 = position() mod 2]", "position() mod 2 = 1 -> position filter");
+    assertRewrites("//a[position() = last()]", "position() = last() -> position filter");
+    assertRewrites("//a[last() = position()]", "position() = last() -> position filter");
+    assertRewrites("//a[position() < last()]");
+    assertRewrites("//a[position() = @x]");
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void reorderPredicates() throws Exception {
+    assertRewrites("//a[contains(., 'foo')][@href]", "predicates reordered by cost");
+    assertRewrites("//a[b][name() = 'a'][@x]", "predicates reordered by cost");
+    assertRewrites("//a[@href][contains(., 'foo')]");
+    assertRewrites("//a[contains(., 'foo') and @href]", "and terms swapped by cost");
+    assertRewrites("//a[.//b or @href]", "or terms swapped by cost");
+    assertRewrites("//a[normalize-space(.)='x'][@id]",
+        "normalize-space(x) = 'x' -> fused comparison", "predicates reordered by cost");
+
+    // positional predicates stay where they are
+    assertRewrites("//a[contains(., 'foo')][1][@href]");
+    assertRewrites("//a[contains(., 'foo')][position() > 1][@href]", "position() > 1 -> position filter");
+    assertRewrites("//a[contains(., 'foo')][count(b)][@href]");
+    assertRewrites("//a[b][@x][last()][.//c][@y]", "predicates reordered by cost");
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void reorderedPredicatesSameResults() throws Exception {
+    final String xml = "<root>"
+        + "<a href='1'>foo</a><a>foo</a><a href='2'>bar</a><a href='3'>foo<b/></a><a href='4'>foo</a>"
+        + "</root>";
+
+    assertEquals(3, getByXpath(xml, "//a[contains(., 'foo')][@href]").size());
+    assertEquals("3", getByXpath(xml, "string(//a[contains(., 'foo')][@href][2]/@href)").get(0));
+    assertEquals("4", getByXpath(xml, "string(//a[contains(., 'foo')][last()][@href]/@href)").get(0));
+    assertEquals(0, getByXpath(xml, "//a[contains(., 'foo')][2][@href]").size());
+    assertEquals("3", getByXpath(xml, "string(//a[b or @href = '1'][last()]/@href)").get(0));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void sameResults() throws Exception {
+    final String xml = "<root><a>1</a><a>2</a><b/></root>";
+
+    assertEquals(1, getByXpath(xml, "//a[1 + 1]").size());
+    assertEquals("2", getByXpath(xml, "string(//a[1 + 1])").get(0));
+    assertEquals(2, getByXpath(xml, "//a[not(not(.))]").size());
+    assertEquals(0, getByXpath(xml, "//a[. and false()]").size());
+    assertEquals(3, getByXpath(xml, "/root/*[. or true()]").size());
+    assertEquals(Boolean.TRUE, getByXpath(xml, "not(not(//b))").get(0));
+    assertEquals(Boolean.FALSE, getByXpath(xml, "not(not(//c))").get(0));
+    assertEquals(1, getByXpath(xml, "//a[string-length('abc') - 1]").size());
+  }
+
+  private static void assertRewrites(final String expr, final String... expected) throws Exception {
+    final XPath xpath = new XPath(expr, null, XPath.SELECT);
+    assertEquals(Arrays.asList(expected), xpath.getRewrites(), expr);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.transform.TransformerException;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link Lexer}. */
+public class LexerTest {
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void tokens() throws Exception {
+    assertEquals(Arrays.asList("/", "/", "a", "[", "@", "b", "=", "'x'", "]", "/", "c", "::", "d"),
+        tokens("//a[@b='x']/c::d"));
+    assertEquals(Arrays.asList("-", "1.5", "-", "a-b"), tokens("-1.5 - a-b"));
+    assertEquals(Arrays.asList("f", "(", "\"it's\"", ",", "$", "v", ")"), tokens("f( \"it's\" ,$v)"));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void types() throws Exception {
+    final Compiler compiler = tokenize("//div[@b='x']/c::dd");
+    assertEquals(Arrays.asList((int) '/', (int) '/', OpMap.TOKEN_NAME, (int) '[', (int) '@', (int) 'b',
+        (int) '=', OpMap.TOKEN_LITERAL, (int) ']', (int) '/', (int) 'c', OpMap.TOKEN_AXIS_SEPARATOR,
+        OpMap.TOKEN_NAME), types(compiler));
+    assertEquals(9, compiler.getTokenStart(7));
+    assertEquals(12, compiler.getTokenEnd(7));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void names() throws Exception {
+    final Compiler compiler = tokenize("//item[@name='a']/item[@name]");
+    assertSame(compiler.getToken(2), compiler.getToken(10));
+    assertSame(compiler.getToken(5), compiler.getToken(13));
+    assertSame(compiler.getToken(5), tokenize("name()").getToken(0));
+  }
+
+  private static List<Object> tokens(final String expr) throws TransformerException {
+    final Compiler compiler = tokenize(expr);
+    final List<Object> tokens = new ArrayList<>();
+    for (int i = 0; i < compiler.getTokenQueueSize(); i++) {
+      tokens.add(compiler.getToken(i));
+    }
+    return tokens;
+  }
+
+  private static List<Integer> types(final Compiler compiler) {
+    final List<Integer> types = new ArrayList<>();
+    for (int i = 0; i < compiler.getTokenQueueSize(); i++) {
+      types.add(compiler.getTokenType(i));
+    }
+    return types;
+  }
+
+  private static Compiler tokenize(final String expr) throws TransformerException {
+    final Compiler compiler = new Compiler(null, new FunctionTable());
+    final XPathParser parser = new XPathParser(null);
+    new Lexer(compiler, null, parser).tokenize(expr, null);
+    return compiler;
+  }
+}
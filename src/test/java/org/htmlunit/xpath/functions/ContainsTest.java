@@ -99,6 +99,28 @@ public class ContainsTest extends AbstractXPathTest {
     assertEquals(Boolean.TRUE, hits.get(0));
   }
 
+  /** @throws Exception in case of problems */
+  @Test
+  public void containsComputedString() throws Exception {
+    List<?> hits = getByXpath("contains('xpath', concat('pa', 'th'))");
+    assertEquals(1, hits.size());
+    assertEquals(Boolean.TRUE, hits.get(0));
+
+    hits = getByXpath("contains('xpath', concat('pa', 'x'))");
+    assertEquals(1, hits.size());
+    assertEquals(Boolean.FALSE, hits.get(0));
+
+    hits = getByXpath("contains('', string(''))");
+    assertEquals(1, hits.size());
+    assertEquals(Boolean.TRUE, hits.get(0));
+    // searched over the text nodes of the element
+    hits = getByXpath("<root>x<b>pa</b>t<![CDATA[h]]></root>", "//root[contains(., concat('pa', 'th'))]");
+    assertEquals(1, hits.size());
+
+    hits = getByXpath("<root>x<b>pa</b>t<![CDATA[h]]></root>", "//root[contains(., concat('a', 'x'))]");
+    assertEquals(0, hits.size());
+  }
+
   /** @throws Exception in case of problems */
   @Test
   public void containsFunctionRequiresAtLeastTwoArguments() throws Exception {
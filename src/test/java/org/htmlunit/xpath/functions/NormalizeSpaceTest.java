@@ -51,4 +51,61 @@ public class NormalizeSpaceTest extends AbstractXPathTest {
         "Could not retrieve XPath >normalize-space('a', 'a')< on [#document: null]",
         "FuncNormalizeSpace only allows 0 or 1 arguments");
   }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void normalizeSpaceCompare() throws Exception {
+    final String xml = "<root>"
+        + "<b id='1'>  Submit\n</b><b id='2'>Sub  mit</b><b id='3'> Sub\t mit </b><b id='4'> \n </b><b id='5'/>"
+        + "</root>";
+
+    assertEquals(1, getByXpath(xml, "//b[normalize-space(.) = 'Submit']").size());
+    assertEquals(1, getByXpath(xml, "//b['Submit' = normalize-space()]").size());
+    assertEquals(4, getByXpath(xml, "//b[normalize-space() != 'Submit']").size());
+    assertEquals(2, getByXpath(xml, "//b[normalize-space() = 'Sub mit']").size());
+    assertEquals(0, getByXpath(xml, "//b[normalize-space() = 'Sub  mit']").size());
+    assertEquals(0, getByXpath(xml, "//b[normalize-space() = 'Sub']").size());
+    assertEquals(2, getByXpath(xml, "//b[normalize-space() = '']").size());
+    assertEquals(3, getByXpath(xml, "//b[normalize-space() != '']").size());
+    assertEquals(3, getByXpath(xml, "//b[normalize-space()]").size());
+    assertEquals(3, getByXpath(xml, "//b[boolean(normalize-space())]").size());
+    assertEquals(2, getByXpath(xml, "//b[not(normalize-space())]").size());
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void normalizeSpaceContainsStartsWith() throws Exception {
+    final String xml = "<root>"
+        + "<b id='1'>  Submit\n</b><b id='2'>Sub  mit</b><b id='3'> aab\t aabaabc </b><b id='4'>aa baab</b>"
+        + "</root>";
+
+    assertEquals(1, getByXpath(xml, "//b[contains(normalize-space(), 'b m')]").size());
+    assertEquals(1, getByXpath(xml, "//b[contains(normalize-space(), 'ub m')]").size());
+    assertEquals(4, getByXpath(xml, "//b[contains(normalize-space(), '')]").size());
+    assertEquals(1, getByXpath(xml, "//b[contains(normalize-space(), 'aab aabaabc')]").size());
+    assertEquals(1, getByXpath(xml, "//b[contains(normalize-space(), 'aabaabc')]").size());
+    assertEquals(0, getByXpath(xml, "//b[contains(normalize-space(), 'aabc ')]").size());
+    assertEquals(2, getByXpath(xml, "//b[starts-with(normalize-space(), 'Sub')]").size());
+    assertEquals(1, getByXpath(xml, "//b[starts-with(normalize-space(), 'aab a')]").size());
+    assertEquals(0, getByXpath(xml, "//b[starts-with(normalize-space(), ' aab')]").size());
+    assertEquals("1", getByXpath(xml, "string(//b[starts-with(normalize-space(@id), '1')]/@id)").get(0));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void normalizeSpaceCompareSeveralTextNodes() throws Exception {
+    final String xml = "<root>"
+        + "<b id='1'> Sub<i>mit</i> </b><b id='2'>Sub <i> </i> mit<i/> </b><b id='3'><i> </i>  <i>\n</i></b>"
+        + "<b id='4'>Sub<![CDATA[ mit ]]>ted</b>"
+        + "</root>";
+
+    assertEquals("1", getByXpath(xml, "string(//b[normalize-space(.) = 'Submit']/@id)").get(0));
+    assertEquals("2", getByXpath(xml, "string(//b[normalize-space(.) = 'Sub mit']/@id)").get(0));
+    assertEquals(1, getByXpath(xml, "//b[normalize-space() = '']").size());
+    assertEquals(3, getByXpath(xml, "//b[normalize-space()]").size());
+    assertEquals(2, getByXpath(xml, "//b[contains(normalize-space(), 'b mit')]").size());
+    assertEquals(1, getByXpath(xml, "//b[contains(normalize-space(), 'mit ted')]").size());
+    assertEquals(3, getByXpath(xml, "//b[starts-with(normalize-space(), 'Sub')]").size());
+    assertEquals(0, getByXpath(xml, "//b[starts-with(normalize-space(), 'Sub  mit')]").size());
+  }
 }
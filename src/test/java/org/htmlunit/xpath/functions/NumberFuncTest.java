@@ -83,4 +83,14 @@ public class NumberFuncTest extends AbstractXPathTest {
     final List<?> hits = getByXpath(xml, "//p[number(@a)=3.14]");
     assertEquals(1, hits.size());
   }
-}
\ No newline at end of file
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void numberOfContextNode() throws Exception {
+    final String xml = "<root><p>42</p><p> 7 </p><p>4<b>2</b></p><p>x</p><p/></root>";
+    assertEquals(2, getByXpath(xml, "//p[number() = 42]").size());
+    assertEquals(1, getByXpath(xml, "//p[number() = 7]").size());
+    assertEquals(2, getByXpath(xml, "//p[number() != number()]").size());
+    assertEquals(1, getByXpath(xml, "//p[. > 10 and . < 50][b]").size());
+  }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 
 import org.htmlunit.xpath.AbstractXPathTest;
 import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
 
 /** Unit tests for the XPath position() function. */
 public class PositionTest extends AbstractXPathTest {
@@ -90,4 +91,49 @@ public class PositionTest extends AbstractXPathTest {
     final List<?> hits = getByXpath(xml, "//p[position()!=2]");
     assertEquals(2, hits.size());
   }
-}
\ No newline at end of file
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void positionFilterSameAsComparison() throws Exception {
+    final String xml = "<root>"
+        + "<d><p i='1'/><p i='2'/><p i='3'/><p i='4'/><p i='5'/></d>"
+        + "<d><p i='6'/><p i='7'/><e><p i='8'/></e></d>"
+        + "<d/>"
+        + "</root>";
+    final String[] paths = {"//p", "/root/d/p", "//d/p", "//p/preceding-sibling::p", "//p/ancestor::*",
+      "(//p)", "//e/preceding::p", "//p/following::p"};
+    final String[] tests = {"position() < 3", "position() <= 2", "position() > 2", "position() >= 4",
+      "position() = 2", "position() != 2", "3 > position()", "2.5 >= position()", "position() < 0",
+      "position() = 1.5", "position() mod 2 = 0", "position() mod 3 = 1", "0 = position() mod 2",
+      "position() = last()", "last() = position()"};
+
+    for (final String path : paths) {
+      for (final String test : tests) {
+        final String fused = path + "[" + test + "]";
+        final String plain = path + "[" + test.replace("position()", "number(position())") + "]";
+        assertEquals(names(getByXpath(xml, plain)), names(getByXpath(xml, fused)), fused);
+        assertEquals(names(getByXpath(xml, plain + "[@i]")), names(getByXpath(xml, fused + "[@i]")), fused);
+        assertEquals(names(getByXpath(xml, path + "[@i][number(position()) < 3]")),
+            names(getByXpath(xml, path + "[@i][position() < 3]")), fused);
+      }
+    }
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void positionFilterInExpression() throws Exception {
+    final String xml = "<root><p/><p/><p/><p/></root>";
+    assertEquals(2, getByXpath(xml, "//p[position() < 3 and position() > 1 or position() = last()]").size());
+    assertEquals(3.0, getByXpath(xml, "count(//p[position() < 4])").get(0));
+    assertEquals("true", getByXpath(xml, "string(position() < 3)").get(0));
+  }
+
+  private static String names(final List<?> nodes) {
+    final StringBuilder names = new StringBuilder();
+    for (final Object node : nodes) {
+      final Element element = (Element) node;
+      names.append(element.getNodeName()).append(element.getAttribute("i")).append(' ');
+    }
+    return names.toString();
+  }
+}
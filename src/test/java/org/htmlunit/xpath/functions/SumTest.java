@@ -68,4 +68,18 @@ public class SumTest extends AbstractXPathTest {
         "Could not retrieve XPath >sum()< on [#document: null]",
         "FuncSum only allows 1 arguments");
   }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void sumNodeKinds() throws Exception {
+    final String xml = "<root a=' 1.5 '>"
+        + "<p>2</p><p><![CDATA[3]]></p><p>1<!-- c -->0</p><p><b>2</b>0</p><p> 40\n</p>"
+        + "</root>";
+
+    assertEquals(1.5, getByXpath(xml, "sum(/root/@a)").get(0));
+    assertEquals(75.0, getByXpath(xml, "sum(//p)").get(0));
+    assertEquals(46.0, getByXpath(xml, "sum(//p/text())").get(0));
+    assertEquals(Double.NaN, getByXpath(xml, "sum(//p | //comment())").get(0));
+    assertEquals(Double.NaN, getByXpath("<root><p/><p>1</p></root>", "sum(//p)").get(0));
+  }
 }
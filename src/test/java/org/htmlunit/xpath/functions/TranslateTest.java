@@ -59,6 +59,40 @@ public class TranslateTest extends AbstractXPathTest {
     assertEquals("abd", hits.get(0));
   }
 
+  /** @throws Exception in case of problems */
+  @Test
+  public void translateNodeValue() throws Exception {
+    final List<?> hits = getByXpath(
+        "<root><a>Hello World</a><a>hello</a></root>",
+        "//a[translate(., 'ABCDEFGHIJKLMNOPQRSTUVWXYZ', 'abcdefghijklmnopqrstuvwxyz') = 'hello world']");
+    assertEquals(1, hits.size());
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void translateDuplicateAndRemovedChars() throws Exception {
+    final List<?> hits = getByXpath("<root>a-b-a\u00e4\u4e2d</root>", "translate(/root, 'a-a\u4e2d', 'A')");
+    assertEquals(1, hits.size());
+    assertEquals("AbA\u00e4", hits.get(0));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void translateNothingToMap() throws Exception {
+    final List<?> hits = getByXpath("<root>xyz</root>", "translate(/root, 'abc', 'ABC')");
+    assertEquals(1, hits.size());
+    assertEquals("xyz", hits.get(0));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void translateComputedArguments() throws Exception {
+    final List<?> hits = getByXpath(
+        "<root><from>a-a</from><to>A</to></root>", "translate('a-b-a', /root/from, concat(/root/to, ''))");
+    assertEquals(1, hits.size());
+    assertEquals("AbA", hits.get(0));
+  }
+
   /** @throws Exception in case of problems */
   @Test
   public void translateFunctionRequiresAtLeastThreeArguments() throws Exception {
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.htmlunit.xpath.AbstractXPathTest;
+import org.htmlunit.xpath.XPath;
+import org.htmlunit.xpath.XPathContext;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for the flight recorder events. */
+public class JfrEventsTest extends AbstractXPathTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void events() throws Exception {
+    final Document doc = parse("<root>" + "<a/>".repeat(10) + "</root>");
+
+    final Path file = Files.createTempFile("xpath", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        recording.enable("org.htmlunit.xpath.Compile").withThreshold(null);
+        recording.enable("org.htmlunit.xpath.Evaluate").withThreshold(null);
+        recording.enable("org.htmlunit.xpath.DTMBuild").withThreshold(null);
+        recording.start();
+
+        final XPath xpath = new XPath("count(/root/a)", null, XPath.SELECT);
+        assertEquals(10, xpath.execute(new XPathContext(), doc, null).num(), 0);
+
+        recording.stop();
+        recording.dump(file);
+      }
+
+      final List<RecordedEvent> events = new ArrayList<>();
+      for (final RecordedEvent event : RecordingFile.readAllEvents(file)) {
+        if (event.getEventType().getName().startsWith("org.htmlunit.xpath.")) {
+          events.add(event);
+        }
+      }
+
+      final RecordedEvent compile = find(events, "org.htmlunit.xpath.Compile");
+      assertEquals("count(/root/a)", compile.getString("expression"));
+
+      final RecordedEvent evaluate = find(events, "org.htmlunit.xpath.Evaluate");
+      assertEquals("count(/root/a)", evaluate.getString("expression"));
+      assertEquals("#NUMBER", evaluate.getString("resultType"));
+      assertEquals(1, evaluate.getInt("resultSize"));
+
+      final RecordedEvent build = find(events, "org.htmlunit.xpath.DTMBuild");
+      assertTrue(build.getString("dtmClass").endsWith("DOM2DTM"));
+      assertTrue(build.getInt("nodeCount") > 0);
+    }
+    finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static RecordedEvent find(final List<RecordedEvent> events, final String name) {
+    for (final RecordedEvent event : events) {
+      if (name.equals(event.getEventType().getName())) {
+        return event;
+      }
+    }
+    throw new AssertionError("no event " + name + " in " + events);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.htmlunit.xpath.AbstractXPathTest;
+import org.htmlunit.xpath.XPath;
+import org.htmlunit.xpath.XPathContext;
+import org.htmlunit.xpath.xml.dtm.ref.DTMDefaultBase;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/** Unit test for {@link Metrics}. */
+public class MetricsTest extends AbstractXPathTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void counting() throws Exception {
+    final Document doc = parse("<root>" + "<a/>".repeat(10) + "</root>");
+
+    final CountingMetrics metrics = new CountingMetrics();
+    Metrics.setMetrics(metrics);
+    try {
+      assertTrue(Metrics.isEnabled());
+
+      final XPath xpath = new XPath("/root/a", null, XPath.SELECT);
+      final XPathContext xctxt = new XPathContext();
+      for (int i = 0; i < 3; i++) {
+        assertEquals(10, xpath.execute(xctxt, doc, null).nodelist().getLength());
+      }
+
+      assertEquals(1, metrics.getCompilations());
+      assertEquals(3, metrics.getEvaluations());
+      assertEquals(1, metrics.getDTMsCreated());
+      assertEquals(1, metrics.getDTMsNotReleased());
+      final DTMDefaultBase dtm = (DTMDefaultBase) xctxt.getDTM(xctxt.getDTMHandleFromNode(doc));
+      assertEquals(dtm.getNumberOfNodes(), metrics.getDTMNodesNotReleased());
+      assertTrue(dtm.getNumberOfNodes() >= 12);
+      assertEquals(3, metrics.getIteratorPoolHits() + metrics.getIteratorPoolMisses());
+      assertEquals(3, metrics.getNodeSequenceCacheFills());
+      assertEquals(30, metrics.getNodeSequenceCachedNodes());
+
+      xctxt.getDTMManager().release(dtm);
+      assertEquals(0, metrics.getDTMsNotReleased());
+      assertEquals(0, metrics.getDTMNodesNotReleased());
+
+      metrics.reset();
+      assertEquals(0, metrics.getEvaluations());
+    }
+    finally {
+      Metrics.setMetrics(null);
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void noop() throws Exception {
+    Metrics.setMetrics(null);
+    assertFalse(Metrics.isEnabled());
+    assertSame(XPathMetrics.NOOP, Metrics.getMetrics());
+  }
+}
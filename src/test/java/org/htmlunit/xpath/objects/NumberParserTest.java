@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link NumberParser}. */
+public class NumberParserTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void parse() throws Exception {
+    assertEquals(0.0, NumberParser.parse("0"));
+    assertEquals(-0.0, NumberParser.parse("-0"));
+    assertEquals(42.0, NumberParser.parse(" \t42\n"));
+    assertEquals(-1.5, NumberParser.parse("-1.5"));
+    assertEquals(0.5, NumberParser.parse(".5"));
+    assertEquals(-0.5, NumberParser.parse("-.5"));
+    assertEquals(5.0, NumberParser.parse("5."));
+    assertEquals(0.1, NumberParser.parse("0.1"));
+    assertEquals(0.3, NumberParser.parse("0.30"));
+    assertEquals(123456789012345.0, NumberParser.parse("123456789012345"));
+    assertEquals(1234567890123456789.0, NumberParser.parse("1234567890123456789"));
+    assertEquals(1e-30, NumberParser.parse("0.000000000000000000000000000001"));
+    assertEquals(100.0, NumberParser.parse(new StringBuilder("00100")));
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void notANumber() throws Exception {
+    for (final String s : new String[] {"", " ", "-", ".", "-.", "--1", "1-2", "1.2.3", "+1", "1e3", "0x10",
+        "1 2", "Infinity", "NaN", "- 1", "\u00a01"}) {
+      assertEquals(Double.NaN, NumberParser.parse(s), s);
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameAsParseDouble() throws Exception {
+    final Random random = new Random(42);
+    for (int n = 0; n < 100000; n++) {
+      final StringBuilder s = new StringBuilder();
+      if (random.nextInt(4) == 0) {
+        s.append('-');
+      }
+      final int intDigits = random.nextInt(random.nextBoolean() ? 4 : 20);
+      for (int i = 0; i < intDigits; i++) {
+        s.append((char) ('0' + random.nextInt(10)));
+      }
+      s.append('.');
+      final int fractionDigits = random.nextInt(random.nextBoolean() ? 4 : 25) + 1;
+      for (int i = 0; i < fractionDigits; i++) {
+        s.append((char) ('0' + random.nextInt(10)));
+      }
+      assertEquals(Double.parseDouble(s.toString()), NumberParser.parse(s), s.toString());
+    }
+  }
+}
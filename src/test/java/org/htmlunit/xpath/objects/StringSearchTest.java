@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link StringSearch}. */
+public class StringSearchTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void sameAsIndexOf() throws Exception {
+    final Random random = new Random(42);
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      // few letters and a char from outside of Latin 1 that shares a bucket with 'a'
+      text.append("abc\u0161".charAt(random.nextInt(4)));
+    }
+    final String haystack = text.toString();
+
+    for (int length = 0; length < 20; length++) {
+      for (int n = 0; n < 20; n++) {
+        final int start = random.nextInt(haystack.length() - length);
+        final String pattern = random.nextBoolean()
+            ? haystack.substring(start, start + length)
+            : haystack.substring(start, start + length) + "d";
+        final StringSearch search = new StringSearch(pattern);
+        final StringSearch runtime = new StringSearch(pattern, false);
+        for (final int from : new int[] {-1, 0, start, haystack.length()}) {
+          assertEquals(haystack.indexOf(pattern, from), search.indexOf(haystack, from), pattern);
+          assertEquals(haystack.indexOf(pattern, from), runtime.indexOf(haystack, from), pattern);
+        }
+      }
+    }
+  }
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void bounds() throws Exception {
+    assertEquals(0, new StringSearch("abcdefghij").indexOf("abcdefghij", 0));
+    assertEquals(3, new StringSearch("abcdefghij").indexOf("xyzabcdefghij", 0));
+    assertEquals(-1, new StringSearch("abcdefghij").indexOf("abcdefghi", 0));
+    assertEquals(-1, new StringSearch("abcdefghij").indexOf("", 0));
+    assertEquals(0, new StringSearch("").indexOf("abc", 0));
+  }
+}
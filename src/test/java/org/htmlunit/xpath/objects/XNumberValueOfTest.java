@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link XNumber#valueOf(double)}. */
+public class XNumberValueOfTest {
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void sharedInstances() throws Exception {
+    assertSame(XNumber.valueOf(1), XNumber.valueOf(1.0));
+    assertSame(XNumber.valueOf(-1), XNumber.valueOf(-1.0));
+    assertSame(XNumber.valueOf(1024.0), XNumber.valueOf(1024));
+    assertSame(XNumber.valueOf(0.0), XNumber.valueOf(0));
+    assertSame(XNumber.valueOf(Double.NaN), XNumber.valueOf(0.0 / 0.0));
+    assertSame(XNumber.valueOf(Double.POSITIVE_INFINITY), XNumber.valueOf(1 / 0.0));
+    assertSame(XNumber.valueOf(Double.NEGATIVE_INFINITY), XNumber.valueOf(-1 / 0.0));
+
+    assertNotSame(XNumber.valueOf(1025), XNumber.valueOf(1025));
+    assertNotSame(XNumber.valueOf(0.5), XNumber.valueOf(0.5));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void values() throws Exception {
+    for (final double d : new double[] {-2, -1, 0, 1, 2, 1024, 1025, 0.5, -0.5, 3e9, -3e9, Double.MAX_VALUE,
+        Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+      assertEquals(d, XNumber.valueOf(d).num());
+    }
+    assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(XNumber.valueOf(-0.0).num()));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/** Unit tests for {@link XStringForNode}. */
+public class XStringForNodeTest {
+
+  /**
+   * @throws Exception in case of problems
+   */
+  @Test
+  public void streamed() throws Exception {
+    final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    final Element root = doc.createElement("root");
+    doc.appendChild(root);
+    root.appendChild(doc.createTextNode("ab"));
+    final Element child = doc.createElement("child");
+    child.appendChild(doc.createTextNode("c"));
+    child.appendChild(doc.createComment("ignored"));
+    root.appendChild(child);
+    root.appendChild(doc.createElement("empty"));
+    root.appendChild(doc.createCDATASection("def"));
+    root.appendChild(doc.createTextNode("g"));
+
+    assertEquals(7, new XStringForNode(root).length());
+    assertTrue(new XStringForNode(root).bool());
+    assertFalse(new XStringForNode(root).hasString());
+
+    assertTrue(new XStringForNode(root).equals("abcdefg"));
+    assertFalse(new XStringForNode(root).equals("abcdef"));
+    assertFalse(new XStringForNode(root).equals("abcdefgh"));
+    assertFalse(new XStringForNode(root).equals("abXdefg"));
+    assertTrue(new XString("abcdefg").equals(new XStringForNode(root)));
+
+    assertTrue(new XStringForNode(root).startsWith(new XString("")));
+    assertTrue(new XStringForNode(root).startsWith(new XString("abcd")));
+    assertTrue(new XStringForNode(root).startsWith(new XString("abcdefg")));
+    assertFalse(new XStringForNode(root).startsWith(new XString("abcdefgh")));
+    assertFalse(new XStringForNode(root).startsWith(new XString("abd")));
+
+    // matches inside one text node and across several
+    for (final String pattern : new String[] {"", "a", "ab", "bc", "bcde", "abcdefg", "cdefg", "fg"}) {
+      assertTrue(new XStringForNode(root).contains(new XString(pattern)), pattern);
+    }
+    for (final String pattern : new String[] {"ac", "gh", "abcdefgh", "ignored"}) {
+      assertFalse(new XStringForNode(root).contains(new XString(pattern)), pattern);
+    }
+
+    assertEquals(2, new XStringForNode(root).indexOf(new XString("cdefg")));
+    assertEquals(1, new XStringForNode(root).indexOf(new XString("bcd")));
+    assertEquals(0, new XStringForNode(root).indexOf(new XString("")));
+    assertEquals(-1, new XStringForNode(root).indexOf(new XString("cdefgh")));
+    assertEquals(2, new XStringForNode(root).indexOf(new StringSearch("cdefg")));
+    assertEquals(-1, new XStringForNode(root).indexOf(new StringSearch("cdefgh")));
+    assertEquals("ab", new XStringForNode(root).substringBefore(new StringSearch("cd")).str());
+    assertEquals("", new XStringForNode(root).substringBefore(new StringSearch("abc")).str());
+    assertEquals("", new XStringForNode(root).substringBefore(new StringSearch("x")).str());
+    assertEquals("efg", new XStringForNode(root).substringAfter(new StringSearch("bcd")).str());
+    assertEquals("abcdefg", new XStringForNode(root).substringAfter(new StringSearch("")).str());
+    assertEquals("", new XStringForNode(root).substringAfter(new StringSearch("fg")).str());
+    assertEquals("", new XStringForNode(root).substringAfter(new StringSearch("x")).str());
+
+    final XStringForNode segmented = new XStringForNode(root);
+    final StringBuilder segments = new StringBuilder();
+    assertTrue(segmented.forEachSegment(segment -> segments.append(segment).append('|') != null));
+    assertEquals("ab|c|def|g|", segments.toString());
+    assertFalse(segmented.forEachSegment(segment -> !segment.startsWith("c")));
+    assertFalse(segmented.hasString());
+
+    final XStringForNode value = new XStringForNode(root);
+    assertEquals("abcdefg", value.str());
+    assertTrue(value.hasString());
+    assertEquals("bcd", value.substring(1, 4).str());
+
+    assertFalse(new XStringForNode(doc.createElement("empty")).bool());
+    assertEquals("", new XStringForNode(doc.createElement("empty")).str());
+  }
+}
@@ -202,4 +202,43 @@ public class ComparisonOperationsTest extends AbstractXPathTest {
     final List<?> hits = getByXpath(xml, "//p[@a != 'true']");
     assertEquals(1, hits.size());
   }
-}
\ No newline at end of file
+
+  // ============ Node-set against node-set ============
+
+  private static final java.lang.String JOIN_XML =
+      "<root>"
+          + "<keys><key id='b'/><key id='d'/><key id='x'/></keys>"
+          + "<row ref='a' n='1'/><row ref='b' n='2'/><row ref='c' n='3'/><row ref='d' n='4'/>"
+          + "<limits><limit>2</limit><limit>3</limit><limit>n/a</limit></limits>"
+          + "<same><s>v</s><s>v</s></same>"
+          + "</root>";
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void nodeSetEqualsNodeSet() throws Exception {
+    assertEquals(2, getByXpath(JOIN_XML, "//row[@ref = //key/@id]").size());
+    assertEquals(0, getByXpath(JOIN_XML, "//row[@ref = //missing/@id]").size());
+    assertEquals(0, getByXpath(JOIN_XML, "//row[//missing/@id = @ref]").size());
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void nodeSetNotEqualsNodeSet() throws Exception {
+    assertEquals(4, getByXpath(JOIN_XML, "//row[@ref != //key/@id]").size());
+    assertEquals(0, getByXpath(JOIN_XML, "//row[@ref != //missing/@id]").size());
+    assertEquals(3, getByXpath(JOIN_XML, "//row[@ref != //row[2]/@ref]").size());
+    assertEquals(0, getByXpath(JOIN_XML, "//same[s != s]").size());
+    assertEquals(1, getByXpath(JOIN_XML, "//same[s = s]").size());
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void nodeSetRelationalNodeSet() throws Exception {
+    assertEquals(2, getByXpath(JOIN_XML, "//row[@n < //limit]").size());
+    assertEquals(3, getByXpath(JOIN_XML, "//row[@n <= //limit]").size());
+    assertEquals(2, getByXpath(JOIN_XML, "//row[@n > //limit]").size());
+    assertEquals(3, getByXpath(JOIN_XML, "//row[@n >= //limit]").size());
+    assertEquals(0, getByXpath(JOIN_XML, "//row[@n < //key/@id]").size());
+    assertEquals(0, getByXpath(JOIN_XML, "//row[@n >= //missing]").size());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.xpath.operations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.htmlunit.xpath.AbstractXPathTest;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+/** Unit test for predicate subexpressions that do not depend on the context. */
+public class InvariantTest extends AbstractXPathTest {
+
+  private static final java.lang.String XML =
+      "<shop>"
+          + "<item id='a' price='10'/><item id='b' price='40'/><item id='c' price='25'/>"
+          + "<item id='d' price='5'/>"
+          + "<limit>20</limit><limit>30</limit>"
+          + "</shop>";
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void comparedWithAggregate() throws Exception {
+    final List<?> hits = getByXpath(XML, "//item[@price >= sum(//limit) div count(//limit)]");
+    assertEquals(2, hits.size());
+    assertEquals("b", ((Element) hits.get(0)).getAttribute("id"));
+    assertEquals("c", ((Element) hits.get(1)).getAttribute("id"));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void comparedWithNodeSet() throws Exception {
+    final List<?> hits = getByXpath(XML, "//item[@price < //limit]");
+    assertEquals(3, hits.size());
+
+    assertEquals(1, getByXpath(XML, "//item[//limit = 30][@id = 'd']").size());
+    assertEquals(0, getByXpath(XML, "//item[//limit = 31]").size());
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void positional() throws Exception {
+    List<?> hits = getByXpath(XML, "//item[count(//limit)]");
+    assertEquals(1, hits.size());
+    assertEquals("b", ((Element) hits.get(0)).getAttribute("id"));
+
+    hits = getByXpath(XML, "//item[count(//limit) + 1]");
+    assertEquals(1, hits.size());
+    assertEquals("c", ((Element) hits.get(0)).getAttribute("id"));
+
+    hits = getByXpath(XML, "//item[position() = count(//item)]");
+    assertEquals(1, hits.size());
+    assertEquals("d", ((Element) hits.get(0)).getAttribute("id"));
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void nested() throws Exception {
+    final List<?> hits = getByXpath(XML, "//item[@price = //item[@price > count(//limit) * 15]/@price]");
+    assertEquals(1, hits.size());
+    assertEquals("b", ((Element) hits.get(0)).getAttribute("id"));
+
+    assertEquals(3, getByXpath(XML, "//item[@price < sum(//item[@id != 'b']/@price)]").size());
+    assertEquals(1, getByXpath(XML, "//item[(//item)[last()]/@id = @id]").size());
+  }
+
+  /** @throws Exception in case of problems */
+  @Test
+  public void contextDependent() throws Exception {
+    assertEquals(2, getByXpath(XML, "//item[string-length() = 0][position() < 3]").size());
+    assertEquals(1, getByXpath(XML, "//item[position() = last() - count(//limit)]").size());
+    assertEquals(2, getByXpath(XML, "//limit[. > 10][string() = //limit]").size());
+  }
+}